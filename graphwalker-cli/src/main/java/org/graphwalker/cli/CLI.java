@@ -38,14 +38,22 @@ import org.glassfish.grizzly.http.server.HttpServer;
 import org.graphwalker.cli.commands.*;
 import org.graphwalker.cli.util.LoggerUtil;
 import org.graphwalker.cli.util.UnsupportedFileFormat;
+import org.graphwalker.core.condition.ShardCoverage;
+import org.graphwalker.core.condition.StopConditionException;
 import org.graphwalker.core.event.EventType;
 import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.Machine;
 import org.graphwalker.core.machine.MachineException;
 import org.graphwalker.core.machine.SimpleMachine;
+import org.graphwalker.core.metrics.MachineMetrics;
+import org.graphwalker.core.metrics.MetricRegistry;
+import org.graphwalker.core.metrics.MetricRegistryMBean;
+import org.graphwalker.core.metrics.MetricsHttpServer;
 import org.graphwalker.core.model.Edge;
 import org.graphwalker.core.model.Element;
 import org.graphwalker.core.model.Requirement;
 import org.graphwalker.core.model.Vertex;
+import org.graphwalker.core.statistics.PhaseTimer;
 import org.graphwalker.dsl.antlr.DslException;
 import org.graphwalker.dsl.antlr.generator.GeneratorFactory;
 import org.graphwalker.io.common.ResourceUtils;
@@ -54,6 +62,7 @@ import org.graphwalker.io.factory.dot.DotContextFactory;
 import org.graphwalker.io.factory.java.JavaContextFactory;
 import org.graphwalker.io.factory.json.JsonContextFactory;
 import org.graphwalker.io.factory.yed.YEdContextFactory;
+import org.graphwalker.java.test.Result;
 import org.graphwalker.java.test.TestExecutor;
 import org.graphwalker.modelchecker.ContextsChecker;
 import org.graphwalker.restful.Restful;
@@ -62,6 +71,7 @@ import org.graphwalker.websocket.WebSocketServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -313,6 +323,7 @@ public class CLI {
   private void runCommandOnline() throws Exception, UnsupportedFileFormat {
     if (online.service.equalsIgnoreCase(Online.SERVICE_WEBSOCKET)) {
       WebSocketServer GraphWalkerWebSocketServer = new WebSocketServer(online.port);
+      registerMetrics(GraphWalkerWebSocketServer.getMetricRegistry(), "websocket");
       try {
         GraphWalkerWebSocketServer.startService();
       } catch (Exception e) {
@@ -325,8 +336,11 @@ public class CLI {
         if (online.blocked) {
           org.graphwalker.io.common.Util.filterBlockedElements(contexts);
         }
+        setShard(contexts, online.shard);
 
-        rc.getSingletons().add(new Restful(contexts, online.verbose, online.unvisited));
+        Restful restful = new Restful(contexts, online.verbose, online.unvisited);
+        registerMetrics(restful.getMetricRegistry(), "restful");
+        rc.getSingletons().add(restful);
       } catch (MachineException e) {
         System.err.println("Was the argument --model correctly?");
         throw e;
@@ -449,14 +463,20 @@ public class CLI {
       if (offline.blocked) {
         org.graphwalker.io.common.Util.filterBlockedElements(contexts);
       }
+      setShard(contexts, offline.shard);
 
       TestExecutor executor = new TestExecutor(contexts);
+      setSeed(executor.getMachine(), offline.seed);
+      executor.setPhaseTiming(offline.phaseTiming);
       executor.getMachine().addObserver((machine, element, type) -> {
         if (EventType.BEFORE_ELEMENT.equals(type)) {
           System.out.println(Util.getStepAsJSON(machine, offline.verbose, offline.unvisited).toString());
         }
       });
-      executor.execute();
+      try (MetricsHttpServer metricsServer = serveMetrics(executor.getMachine(), offline.metricsPort)) {
+        executor.execute();
+      }
+      printPhaseTimes(executor.getMachine());
     } else if (!offline.gw3.isEmpty()) {
       //TODO Fix gw3. Should not be there
       List<Context> contexts = new JsonContextFactory().create(Paths.get(offline.gw3));
@@ -464,11 +484,74 @@ public class CLI {
       if (offline.blocked) {
         org.graphwalker.io.common.Util.filterBlockedElements(contexts);
       }
+      setShard(contexts, offline.shard);
 
       SimpleMachine machine = new SimpleMachine(contexts);
-      while (machine.hasNextStep()) {
-        machine.getNextStep();
-        System.out.println(Util.getStepAsJSON(machine, offline.verbose, offline.unvisited).toString());
+      setSeed(machine, offline.seed);
+      if (offline.phaseTiming) {
+        machine.setPhaseTimer(new PhaseTimer());
+      }
+      try (MetricsHttpServer metricsServer = serveMetrics(machine, offline.metricsPort)) {
+        while (machine.hasNextStep()) {
+          machine.getNextStep();
+          System.out.println(Util.getStepAsJSON(machine, offline.verbose, offline.unvisited).toString());
+        }
+      }
+      printPhaseTimes(machine);
+    }
+  }
+
+  /**
+   * Serves the metrics of the machine over HTTP and JMX during the run, if a port is given.
+   */
+  private MetricsHttpServer serveMetrics(Machine machine, Integer port) throws IOException {
+    if (null == port) {
+      return null;
+    }
+    MetricRegistry registry = new MetricRegistry();
+    registry.register(new MachineMetrics(machine));
+    registerMetrics(registry, "offline");
+    MetricsHttpServer server = new MetricsHttpServer(port, registry);
+    System.err.println("Metrics are served at http://localhost:" + server.getPort() + MetricsHttpServer.PATH);
+    return server;
+  }
+
+  private void registerMetrics(MetricRegistry registry, String name) {
+    try {
+      MetricRegistryMBean.register(registry, name);
+    } catch (JMException e) {
+      logger.warn("Could not register the metrics at JMX: " + e.getMessage());
+    }
+  }
+
+  private void printPhaseTimes(Machine machine) {
+    if (null != machine.getPhaseTimer()) {
+      Result result = new Result();
+      result.updateResults(machine, Collections.emptyMap());
+      if (result.getResults().has("phaseTimes")) {
+        System.err.println(result.getResults().getJSONObject("phaseTimes").toString(2));
+      }
+    }
+  }
+
+  private void setSeed(Machine machine, Long seed) {
+    if (machine instanceof SimpleMachine) {
+      SimpleMachine simpleMachine = (SimpleMachine) machine;
+      if (null != seed) {
+        simpleMachine.setSeed(seed);
+      }
+      logger.info("Seed: " + simpleMachine.getSeed());
+    }
+  }
+
+  private void setShard(List<Context> contexts, String shard) {
+    if (!shard.isEmpty()) {
+      try {
+        for (Context context : contexts) {
+          context.getPathGenerator().setStopCondition(ShardCoverage.parse(shard));
+        }
+      } catch (StopConditionException e) {
+        throw new ParameterException("--shard " + e.getMessage());
       }
     }
   }
@@ -57,6 +57,25 @@ public class Offline {
     description = "Sets the starting element in the [first] model.")
   public String startElement = "";
 
+  @Parameter(names = {"--shard"}, required = false,
+    description = "Walks only one shard of the edges, given as i/N, e.g. 2/4. Running all N shards covers all edges " +
+                  "of the models. The stop conditions of the generators are replaced by the coverage of the shard.")
+  public String shard = "";
+
+  @Parameter(names = {"--seed"}, required = false,
+    description = "Seeds the random choices, so that a previous run can be repeated. The seed of every run is logged.")
+  public Long seed = null;
+
+  @Parameter(names = {"--phase-timing"}, required = false,
+    description = "Times the phases of every step, i.e. path generation, guards, actions, shared state, observers and " +
+                  "the system under test, and prints their breakdown per model and generator to stderr after the run.")
+  public boolean phaseTiming = false;
+
+  @Parameter(names = {"--metrics-port"}, required = false,
+    description = "Serves the metrics of the run in the Prometheus text format at http://localhost:PORT/metrics, " +
+                  "and over JMX, while the run is going on. 0 picks a free port.")
+  public Integer metricsPort = null;
+
   @Parameter(names = {"--blocked",
                       "-b"}, arity = 1, description = "This option enables or disables the BLOCKED feature. When \"-b true\" GraphWalker will filter out elements in models with the keyword BLOCKED. When \"-b false\" GraphWalker will not filter out any elements in models with the keyword BLOCKED.")
   public boolean blocked = true;
@@ -63,6 +63,11 @@ public class Online {
     description = "Sets the starting element in the [first] model.")
   public String startElement = "";
 
+  @Parameter(names = {"--shard"}, required = false,
+    description = "Walks only one shard of the edges, given as i/N, e.g. 2/4. Running all N shards covers all edges " +
+                  "of the models. The stop conditions of the generators are replaced by the coverage of the shard.")
+  public String shard = "";
+
   @Parameter(names = {"--blocked",
                       "-b"}, arity = 1, description = "This option enables or disables the BLOCKED feature. When \"-b true\" GraphWalker will filter out elements in models with the keyword BLOCKED. When \"-b false\" GraphWalker will not filter out any elements in models with the keyword BLOCKED.")
   public boolean blocked = true;
@@ -0,0 +1,105 @@
+package org.graphwalker.core.algorithm;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.model.Element;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.graphwalker.core.common.Objects.isNull;
+import static org.graphwalker.core.model.Edge.RuntimeEdge;
+
+/**
+ * <h1>EdgePartition</h1>
+ * The EdgePartition splits the edges of a model into disjoint shards with about the same walking cost.
+ * </p>
+ * The edges are handed out in order of their distance from the start element. Each edge goes to the shard which
+ * reaches it at the lowest total cost, that is the cost of the shard so far plus the distance from the last edge
+ * of the shard. The partition only depends on the model and the start element, so separate processes compute the
+ * same shards.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+public class EdgePartition implements Algorithm {
+
+  private final Context context;
+
+  public EdgePartition(Context context) {
+    this.context = context;
+  }
+
+  /**
+   * @param start the element the walk starts from, may be null when it is not known
+   * @param count the number of shards
+   * @return the shards, some of them are empty when there are fewer edges than shards
+   */
+  public List<Set<RuntimeEdge>> partition(Element start, int count) {
+    if (1 > count) {
+      throw new AlgorithmException("The number of shards must be positive");
+    }
+    FloydWarshall floydWarshall = context.getAlgorithm(FloydWarshall.class);
+    List<RuntimeEdge> edges = new ArrayList<>(context.getModel().getEdges());
+    edges.sort(Comparator.comparingInt(edge -> getDistance(floydWarshall, start, edge)));
+    List<Set<RuntimeEdge>> shards = new ArrayList<>(count);
+    long[] costs = new long[count];
+    Element[] positions = new Element[count];
+    for (int i = 0; i < count; i++) {
+      shards.add(new LinkedHashSet<>());
+      positions[i] = start;
+    }
+    for (RuntimeEdge edge : edges) {
+      int shard = 0;
+      long cost = Long.MAX_VALUE;
+      for (int i = 0; i < count; i++) {
+        long candidate = costs[i] + getDistance(floydWarshall, positions[i], edge);
+        if (candidate < cost) {
+          cost = candidate;
+          shard = i;
+        }
+      }
+      costs[shard] = cost;
+      positions[shard] = edge;
+      shards.get(shard).add(edge);
+    }
+    return shards;
+  }
+
+  private int getDistance(FloydWarshall floydWarshall, Element origin, RuntimeEdge edge) {
+    if (isNull(origin)) {
+      return 0;
+    }
+    int distance = floydWarshall.getShortestDistance(origin, edge);
+    return Integer.MAX_VALUE == distance ? context.getModel().getElements().size() : distance;
+  }
+}
@@ -27,8 +27,14 @@ package org.graphwalker.core.condition;
  * #L%
  */
 
+import org.graphwalker.core.machine.Checkpointable;
+import org.graphwalker.core.machine.Checkpoints;
 import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.MachineException;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -43,7 +49,7 @@ import java.util.stream.Collectors;
  *
  * @author Nils Olsson
  */
-public class CombinedCondition extends StopConditionBase {
+public class CombinedCondition extends StopConditionBase implements Checkpointable {
 
   private final List<StopCondition> conditions = new ArrayList<>();
 
@@ -88,6 +94,24 @@ public class CombinedCondition extends StopConditionBase {
     return fulfilment / conditions.size();
   }
 
+  @Override
+  public void checkpoint(Context context, DataOutput output) throws IOException {
+    output.writeInt(conditions.size());
+    for (StopCondition condition : conditions) {
+      Checkpoints.writeState(context, output, condition);
+    }
+  }
+
+  @Override
+  public void resume(Context context, DataInput input) throws IOException {
+    if (input.readInt() != conditions.size()) {
+      throw new MachineException("The checkpoint does not match the stop conditions of " + this);
+    }
+    for (StopCondition condition : conditions) {
+      Checkpoints.readState(context, input, condition);
+    }
+  }
+
   @Override
   public StringBuilder toString(StringBuilder builder) {
     return builder.append(conditions.stream().map(StopCondition::toString)
@@ -28,8 +28,7 @@ package org.graphwalker.core.condition;
  */
 
 import org.graphwalker.core.machine.Context;
-
-import java.util.List;
+import org.graphwalker.core.model.Element;
 
 import static org.graphwalker.core.model.Edge.RuntimeEdge;
 
@@ -43,27 +42,29 @@ import static org.graphwalker.core.model.Edge.RuntimeEdge;
  */
 public class DependencyEdgeCoverage extends DependencyCoverageStopConditionBase {
 
+  private final VisitCounter visitedDependencyEdges = new VisitCounter(this::isDependencyEdge);
+
   public DependencyEdgeCoverage(int dependency) {
     super(dependency);
   }
 
   @Override
   public boolean isFulfilled() {
-    return getFulfilment() >= FULFILLMENT_LEVEL && super.isFulfilled();
+    return super.isFulfilled() && getFulfilment() >= FULFILLMENT_LEVEL;
   }
 
   @Override
   public double getFulfilment() {
     Context context = getContext();
-    List<RuntimeEdge> edges = getContext().getModel().getEdges();
-    long totalDependencyEdgesCount = edges.stream()
-      .filter(edge -> edge.getDependencyAsDouble() >= super.getDependencyAsDouble()).count();
+    long totalDependencyEdgesCount = visitedDependencyEdges.getCount(context);
     if (totalDependencyEdgesCount != 0) {
-      long visitedDependencyEdgesCount = edges.stream()
-        .filter(edge -> edge.getDependencyAsDouble() >= super.getDependencyAsDouble())
-        .filter(edge -> context.getProfiler().isVisited(context, edge)).count();
+      long visitedDependencyEdgesCount = visitedDependencyEdges.getVisitedCount(context);
       return ((double) visitedDependencyEdgesCount / totalDependencyEdgesCount);
     }
     return 0;
   }
+
+  private boolean isDependencyEdge(Element element) {
+    return element instanceof RuntimeEdge && ((RuntimeEdge) element).getDependencyAsDouble() >= getDependencyAsDouble();
+  }
 }
@@ -29,6 +29,8 @@ package org.graphwalker.core.condition;
 
 import org.graphwalker.core.machine.Context;
 
+import static org.graphwalker.core.model.Edge.RuntimeEdge;
+
 /**
  * <h1>EdgeCoverage</h1>
  * The EdgeCoverage stop condition is fulfilled when the percentage of visited edges in the
@@ -39,21 +41,22 @@ import org.graphwalker.core.machine.Context;
  */
 public class EdgeCoverage extends CoverageStopConditionBase {
 
+  private final VisitCounter visitedEdges = new VisitCounter(element -> element instanceof RuntimeEdge);
+
   public EdgeCoverage(int percent) {
     super(percent);
   }
 
   @Override
   public boolean isFulfilled() {
-    return getFulfilment() >= FULFILLMENT_LEVEL && super.isFulfilled();
+    return super.isFulfilled() && getFulfilment() >= FULFILLMENT_LEVEL;
   }
 
   @Override
   public double getFulfilment() {
     Context context = getContext();
-    long totalEdgesCount = context.getModel().getEdges().size();
-    long visitedEdgesCount = context.getModel().getEdges().stream()
-      .filter(edge -> context.getProfiler().isVisited(context, edge)).count();
+    long totalEdgesCount = visitedEdges.getCount(context);
+    long visitedEdgesCount = visitedEdges.getVisitedCount(context);
     return ((double) visitedEdgesCount / totalEdgesCount) / getPercentAsDouble();
   }
 }
@@ -27,6 +27,7 @@ package org.graphwalker.core.condition;
  * #L%
  */
 
+import org.graphwalker.core.machine.ExecutionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,7 +49,9 @@ public class InternalState extends StopConditionBase {
   @Override
   public boolean isFulfilled() {
     try {
-      Object value = getContext().getScriptEngine().eval(script);
+      Object value = getContext() instanceof ExecutionContext
+        ? ((ExecutionContext) getContext()).evaluate(script)
+        : getContext().getScriptEngine().eval(script);
       if (value instanceof Boolean) {
         return (Boolean) value;
       } else {
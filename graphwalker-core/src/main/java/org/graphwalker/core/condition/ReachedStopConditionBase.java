@@ -28,16 +28,21 @@ package org.graphwalker.core.condition;
  */
 
 import org.graphwalker.core.algorithm.FloydWarshall;
+import org.graphwalker.core.machine.Checkpointable;
 import org.graphwalker.core.machine.Context;
 import org.graphwalker.core.model.Element;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import static org.graphwalker.core.common.Objects.isNotNull;
 import static org.graphwalker.core.common.Objects.isNull;
 
 /**
  * @author Nils Olsson
  */
-public abstract class ReachedStopConditionBase extends StopConditionBase implements ReachedStopCondition {
+public abstract class ReachedStopConditionBase extends StopConditionBase implements ReachedStopCondition, Checkpointable {
 
   private boolean fulfilled = false;
 
@@ -82,4 +87,14 @@ public abstract class ReachedStopConditionBase extends StopConditionBase impleme
     }
     return maxFulfilment;
   }
+
+  @Override
+  public void checkpoint(Context context, DataOutput output) throws IOException {
+    output.writeBoolean(fulfilled);
+  }
+
+  @Override
+  public void resume(Context context, DataInput input) throws IOException {
+    fulfilled = input.readBoolean();
+  }
 }
@@ -0,0 +1,174 @@
+package org.graphwalker.core.condition;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.algorithm.EdgePartition;
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.model.Element;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.common.Objects.isNull;
+import static org.graphwalker.core.model.Edge.RuntimeEdge;
+import static org.graphwalker.core.model.Model.RuntimeModel;
+
+/**
+ * <h1>ShardCoverage</h1>
+ * The ShardCoverage stop condition is fulfilled when all edges of one shard of the model are visited.
+ * </p>
+ * The edges are split into shards by the {@link EdgePartition} algorithm, from the start element configured for
+ * the context before the walk begins, so that every process computes the same shards no matter where its own walk
+ * is when the shards are first needed. If the walk had begun before the start element was seen, the shards are
+ * computed without a start element. Running every shard, e.g. in separate processes, covers all edges of the
+ * model. The target elements are the
+ * edges of the shard not visited yet, which lets the {@link org.graphwalker.core.generator.AStarPath} generator
+ * walk to the closest of them. Once they are all visited, the walk ends on a vertex.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+public class ShardCoverage extends StopConditionBase implements ReachedStopCondition {
+
+  private final int index;
+  private final int count;
+  private final VisitCounter visitedEdges = new VisitCounter(this::isShardEdge);
+  private Set<RuntimeEdge> edges;
+  private RuntimeModel model;
+  private Element start;
+
+  /**
+   * @param index the shard, counted from 1
+   * @param count the number of shards
+   */
+  public ShardCoverage(int index, int count) {
+    super(index + "/" + count);
+    if (1 > count || 1 > index || index > count) {
+      throw new StopConditionException("Invalid shard " + index + "/" + count);
+    }
+    this.index = index;
+    this.count = count;
+  }
+
+  /**
+   * Parses a shard written as {@code i/N}, e.g. {@code 2/4} for the second of four shards.
+   */
+  public static ShardCoverage parse(String shard) {
+    String[] parts = shard.trim().split("/");
+    try {
+      if (2 == parts.length) {
+        return new ShardCoverage(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new StopConditionException("A shard must be given as i/N, but was [" + shard + "]");
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  @Override
+  public void setContext(Context context) {
+    super.setContext(context);
+    this.edges = null;
+    this.model = null;
+    this.start = null;
+    updateStart();
+  }
+
+  public Set<RuntimeEdge> getEdges() {
+    Context context = getContext();
+    if (model != context.getModel()) {
+      if (isNotNull(model)) {
+        start = null;
+      }
+      model = context.getModel();
+      edges = null;
+    }
+    if (isNull(edges)) {
+      updateStart();
+      edges = context.getAlgorithm(EdgePartition.class).partition(start, count).get(index - 1);
+      visitedEdges.reset();
+    }
+    return edges;
+  }
+
+  private boolean isShardEdge(Element element) {
+    return getEdges().contains(element);
+  }
+
+  /**
+   * Remembers the start element of the context, as long as the walk has not begun and moved away from it.
+   */
+  private void updateStart() {
+    Context context = getContext();
+    if (isNull(start) && isNotNull(context) && isNull(context.getCurrentElement())) {
+      start = context.getNextElement();
+    }
+  }
+
+  @Override
+  public Set<Element> getTargetElements() {
+    Set<Element> targets = new HashSet<>();
+    for (RuntimeEdge edge : getEdges()) {
+      if (!isVisited(edge)) {
+        targets.add(edge);
+      }
+    }
+    if (targets.isEmpty()) {
+      for (RuntimeEdge edge : getEdges()) {
+        targets.add(edge.getTargetVertex());
+      }
+    }
+    if (targets.isEmpty()) {
+      targets.addAll(getContext().getModel().getVertices());
+    }
+    return targets;
+  }
+
+  @Override
+  public boolean isFulfilled() {
+    return super.isFulfilled() && getFulfilment() >= FULFILLMENT_LEVEL;
+  }
+
+  @Override
+  public double getFulfilment() {
+    Set<RuntimeEdge> edges = getEdges();
+    if (edges.isEmpty()) {
+      return 1.0;
+    }
+    return (double) visitedEdges.getVisitedCount(getContext()) / edges.size();
+  }
+}
@@ -28,7 +28,10 @@ package org.graphwalker.core.condition;
  */
 
 import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.model.Element;
+import org.graphwalker.core.statistics.SharedCoverage;
 
+import static org.graphwalker.core.common.Objects.isNotNull;
 import static org.graphwalker.core.model.Vertex.RuntimeVertex;
 
 /**
@@ -60,6 +63,16 @@ public abstract class StopConditionBase implements StopCondition {
     return getContext().getCurrentElement() instanceof RuntimeVertex;
   }
 
+  /**
+   * Checks whether the element is visited by the context, or by the other machines sharing its coverage.
+   */
+  protected boolean isVisited(Element element) {
+    Context context = getContext();
+    SharedCoverage sharedCoverage = context.getSharedCoverage();
+    return (isNotNull(sharedCoverage) && sharedCoverage.isVisited(element))
+      || context.getProfiler().isVisited(context, element);
+  }
+
   @Override
   public String toString() {
     return toString(new StringBuilder()).toString();
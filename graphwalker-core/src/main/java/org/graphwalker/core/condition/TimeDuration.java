@@ -27,6 +27,12 @@ package org.graphwalker.core.condition;
  * #L%
  */
 
+import org.graphwalker.core.machine.Checkpointable;
+import org.graphwalker.core.machine.Context;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -34,13 +40,15 @@ import java.util.concurrent.TimeUnit;
  * The TimeDuration stop condition is fulfilled when the executed time of the test has exceeded the
  * time given as a parameter in the constructor.
  * </p>
+ * When a machine is resumed from a checkpoint, the time executed before the checkpoint is counted in.
+ * </p>
  *
  * @author Nils Olsson
  */
-public class TimeDuration extends StopConditionBase {
+public class TimeDuration extends StopConditionBase implements Checkpointable {
 
   private final long duration;
-  private final long timestamp;
+  private long timestamp;
 
   public TimeDuration(long duration, TimeUnit unit) {
     super(String.valueOf(duration));
@@ -64,4 +72,14 @@ public class TimeDuration extends StopConditionBase {
   public double getFulfilment() {
     return (double) (System.nanoTime() - timestamp) / duration;
   }
+
+  @Override
+  public void checkpoint(Context context, DataOutput output) throws IOException {
+    output.writeLong(System.nanoTime() - timestamp);
+  }
+
+  @Override
+  public void resume(Context context, DataInput input) throws IOException {
+    timestamp = System.nanoTime() - input.readLong();
+  }
 }
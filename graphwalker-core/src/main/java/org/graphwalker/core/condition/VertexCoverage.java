@@ -29,8 +29,6 @@ package org.graphwalker.core.condition;
 
 import org.graphwalker.core.machine.Context;
 
-import java.util.List;
-
 import static org.graphwalker.core.model.Vertex.RuntimeVertex;
 
 /**
@@ -43,22 +41,22 @@ import static org.graphwalker.core.model.Vertex.RuntimeVertex;
  */
 public class VertexCoverage extends CoverageStopConditionBase {
 
+  private final VisitCounter visitedVertices = new VisitCounter(element -> element instanceof RuntimeVertex);
+
   public VertexCoverage(int percent) {
     super(percent);
   }
 
   @Override
   public boolean isFulfilled() {
-    return getFulfilment() >= FULFILLMENT_LEVEL && super.isFulfilled();
+    return super.isFulfilled() && getFulfilment() >= FULFILLMENT_LEVEL;
   }
 
   @Override
   public double getFulfilment() {
     Context context = getContext();
-    List<RuntimeVertex> vertices = context.getModel().getVertices();
-    double visitedVertexCount = context.getModel().getVertices().stream()
-      .filter(vertex -> context.getProfiler().isVisited(context, vertex))
-      .count();
-    return (visitedVertexCount / vertices.size()) / getPercentAsDouble();
+    double vertexCount = visitedVertices.getCount(context);
+    double visitedVertexCount = visitedVertices.getVisitedCount(context);
+    return (visitedVertexCount / vertexCount) / getPercentAsDouble();
   }
 }
@@ -0,0 +1,182 @@
+package org.graphwalker.core.condition;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.model.Element;
+import org.graphwalker.core.statistics.Profiler;
+import org.graphwalker.core.statistics.SharedCoverage;
+import org.graphwalker.core.statistics.VisitListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.common.Objects.isNull;
+import static org.graphwalker.core.model.Model.RuntimeModel;
+
+/**
+ * <h1>VisitCounter</h1>
+ * The VisitCounter keeps count of the elements of the model, and of the ones visited by the context or by the
+ * machines sharing its coverage, which match a filter. The model is scanned once, when the counter is first used
+ * with a context, a model, a profiler or a shared coverage, and the visited count is kept up to date from the
+ * visits reported by the profiler and the shared coverage, so reading the counts is O(1). Profilers not reporting
+ * their visits are polled, which scans the model on every read.
+ * </p>
+ * The visits of the other machines are reported on their own threads, so the counter is synchronized.
+ *
+ * @author Ivan Bonkin
+ */
+final class VisitCounter implements VisitListener, Consumer<Element> {
+
+  private final Predicate<Element> filter;
+
+  private Context context;
+  private RuntimeModel model;
+  private Profiler profiler;
+  private SharedCoverage sharedCoverage;
+  private boolean notified;
+  private final List<Element> elements = new ArrayList<>();
+  private final Map<Element, Integer> indexes = new IdentityHashMap<>();
+  private final Map<String, Integer> indexesById = new HashMap<>();
+  private final BitSet visited = new BitSet();
+  private int visitedCount;
+
+  VisitCounter(Predicate<Element> filter) {
+    this.filter = filter;
+  }
+
+  synchronized int getCount(Context context) {
+    update(context);
+    return elements.size();
+  }
+
+  synchronized int getVisitedCount(Context context) {
+    if (!update(context) && !notified) {
+      count();
+    }
+    return visitedCount;
+  }
+
+  /**
+   * Scans the model again the next time the counter is used, e.g. when the filter has changed.
+   */
+  synchronized void reset() {
+    unsubscribe();
+    context = null;
+  }
+
+  /**
+   * @return true if the model was scanned, as the context, its model, its profiler or its shared coverage changed
+   */
+  private boolean update(Context context) {
+    if (context == this.context && context.getModel() == model && context.getProfiler() == profiler
+        && context.getSharedCoverage() == sharedCoverage) {
+      return false;
+    }
+    unsubscribe();
+    this.context = context;
+    this.model = context.getModel();
+    this.profiler = context.getProfiler();
+    this.sharedCoverage = context.getSharedCoverage();
+    elements.clear();
+    indexes.clear();
+    indexesById.clear();
+    for (Element element : model.getElements()) {
+      if (filter.test(element)) {
+        indexes.put(element, elements.size());
+        if (isNotNull(element.getId())) {
+          indexesById.putIfAbsent(element.getId(), elements.size());
+        }
+        elements.add(element);
+      }
+    }
+    count();
+    notified = isNotNull(profiler) && profiler.addVisitListener(this);
+    if (isNotNull(sharedCoverage)) {
+      sharedCoverage.addListener(this);
+    }
+    return true;
+  }
+
+  private void unsubscribe() {
+    if (isNotNull(profiler)) {
+      profiler.removeVisitListener(this);
+    }
+    if (isNotNull(sharedCoverage)) {
+      sharedCoverage.removeListener(this);
+    }
+  }
+
+  private void count() {
+    visited.clear();
+    visitedCount = 0;
+    for (int index = 0; index < elements.size(); index++) {
+      Element element = elements.get(index);
+      if ((isNotNull(profiler) && profiler.isVisited(context, element))
+          || (isNotNull(sharedCoverage) && sharedCoverage.isVisited(element))) {
+        mark(index);
+      }
+    }
+  }
+
+  private void mark(Integer index) {
+    if (isNotNull(index) && !visited.get(index)) {
+      visited.set(index);
+      visitedCount++;
+    }
+  }
+
+  private Integer indexOf(Element element) {
+    Integer index = indexes.get(element);
+    return isNull(index) && isNotNull(element.getId()) ? indexesById.get(element.getId()) : index;
+  }
+
+  @Override
+  public synchronized void visited(Context context, Element element, boolean firstVisit) {
+    if (context == this.context) {
+      mark(indexOf(element));
+    }
+  }
+
+  /**
+   * Counts an element visited for the first time by any of the machines sharing the coverage.
+   */
+  @Override
+  public synchronized void accept(Element element) {
+    if (isNotNull(this.context)) {
+      mark(indexOf(element));
+    }
+  }
+}
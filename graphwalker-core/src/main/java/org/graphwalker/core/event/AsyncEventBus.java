@@ -0,0 +1,249 @@
+package org.graphwalker.core.event;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Machine;
+import org.graphwalker.core.model.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * <h1>AsyncEventBus</h1>
+ * The AsyncEventBus delivers machine events to observers on a thread of its own.
+ * </p>
+ * Events are written into a preallocated ring buffer, so publishing does not allocate, and a single daemon
+ * thread dispatches them, in order, to every subscribed observer. A slow observer therefore delays the other
+ * asynchronous observers, but not the machine, unless the buffer runs full and the {@link OverflowPolicy}
+ * says to wait.
+ * </p>
+ * Observers are called after the machine has moved on, so they should only rely on the element and event
+ * type they are given, not on the current state of the machine.
+ *
+ * @author Ivan Bonkin
+ * @see org.graphwalker.core.machine.MachineBase#addAsyncObserver(Observer)
+ */
+public class AsyncEventBus implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncEventBus.class);
+
+  public static final int DEFAULT_CAPACITY = 1024;
+  public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+  private final int mask;
+  private final Machine[] machines;
+  private final Element[] elements;
+  private final EventType[] types;
+  private final WaitStrategy waitStrategy;
+  private final OverflowPolicy overflowPolicy;
+  private final int sampleInterval;
+  private final List<Observer> observers = new CopyOnWriteArrayList<>();
+
+  private final AtomicLong published = new AtomicLong();
+  private final AtomicLong consumed = new AtomicLong();
+  private final AtomicLong delivered = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private long overflows = 0;
+
+  private final Thread consumer;
+  private volatile Thread producer;
+  private volatile boolean running = true;
+  private volatile boolean consumerWaiting = false;
+
+  public AsyncEventBus() {
+    this(DEFAULT_CAPACITY, WaitStrategy.BLOCKING, OverflowPolicy.BLOCK);
+  }
+
+  public AsyncEventBus(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy) {
+    this(capacity, waitStrategy, overflowPolicy, DEFAULT_SAMPLE_INTERVAL);
+  }
+
+  /**
+   * @param capacity       number of events the ring buffer holds, rounded up to a power of two
+   * @param waitStrategy   how waiting threads wait
+   * @param overflowPolicy what to do with events published while the buffer is full
+   * @param sampleInterval with {@link OverflowPolicy#SAMPLE}, one of this many overflowing events is kept
+   */
+  public AsyncEventBus(int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy, int sampleInterval) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+    }
+    if (sampleInterval < 1) {
+      throw new IllegalArgumentException("Sample interval must be positive, but was " + sampleInterval);
+    }
+    int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+    this.mask = size - 1;
+    this.machines = new Machine[size];
+    this.elements = new Element[size];
+    this.types = new EventType[size];
+    this.waitStrategy = waitStrategy;
+    this.overflowPolicy = overflowPolicy;
+    this.sampleInterval = sampleInterval;
+    this.consumer = new Thread(this::consume, "graphwalker-event-bus");
+    this.consumer.setDaemon(true);
+    this.consumer.start();
+  }
+
+  public void subscribe(Observer observer) {
+    if (!observers.contains(observer)) {
+      observers.add(observer);
+    }
+  }
+
+  public void unsubscribe(Observer observer) {
+    observers.remove(observer);
+  }
+
+  public List<Observer> getObservers() {
+    return observers;
+  }
+
+  public boolean hasObservers() {
+    return !observers.isEmpty();
+  }
+
+  /**
+   * Queues an event for the subscribed observers.
+   */
+  public synchronized void publish(Machine machine, Element element, EventType type) {
+    if (!running) {
+      throw new IllegalStateException("The event bus is closed");
+    }
+    long sequence = published.get();
+    if (sequence - consumed.get() > mask) {
+      if (OverflowPolicy.DROP == overflowPolicy
+        || (OverflowPolicy.SAMPLE == overflowPolicy && 0 != overflows++ % sampleInterval)) {
+        dropped.incrementAndGet();
+        return;
+      }
+      producer = Thread.currentThread();
+      while (sequence - consumed.get() > mask) {
+        if (!consumer.isAlive()) {
+          throw new IllegalStateException("The event bus thread has stopped");
+        }
+        waitStrategy.idle();
+      }
+      producer = null;
+    }
+    int index = (int) (sequence & mask);
+    machines[index] = machine;
+    elements[index] = element;
+    types[index] = type;
+    published.lazySet(sequence + 1);
+    if (consumerWaiting) {
+      LockSupport.unpark(consumer);
+    }
+  }
+
+  private void consume() {
+    long sequence = consumed.get();
+    while (running || sequence < published.get()) {
+      if (sequence < published.get()) {
+        int index = (int) (sequence & mask);
+        Machine machine = machines[index];
+        Element element = elements[index];
+        EventType type = types[index];
+        machines[index] = null;
+        elements[index] = null;
+        types[index] = null;
+        consumed.lazySet(++sequence);
+        Thread waitingProducer = producer;
+        if (null != waitingProducer) {
+          LockSupport.unpark(waitingProducer);
+        }
+        for (Observer observer : observers) {
+          try {
+            observer.update(machine, element, type);
+          } catch (Throwable t) {
+            LOG.error("Observer {} failed: {}", observer, t.getMessage());
+          }
+        }
+        delivered.lazySet(sequence);
+      } else {
+        consumerWaiting = true;
+        if (running && sequence == published.get()) {
+          waitStrategy.idle();
+        }
+        consumerWaiting = false;
+      }
+    }
+  }
+
+  /**
+   * Waits until all events published so far have been delivered.
+   */
+  public void flush() {
+    long target = published.get();
+    while (delivered.get() < target && consumer.isAlive()) {
+      LockSupport.parkNanos(MICROSECONDS.toNanos(100));
+    }
+  }
+
+  /**
+   * Delivers the remaining events and stops the observer thread.
+   */
+  @Override
+  public void close() {
+    running = false;
+    LockSupport.unpark(consumer);
+    try {
+      consumer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public long getPublishedCount() {
+    return published.get();
+  }
+
+  public long getDeliveredCount() {
+    return delivered.get();
+  }
+
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /**
+   * @return the number of published events not yet taken by the observer thread
+   */
+  public int getQueueSize() {
+    return (int) (published.get() - consumed.get());
+  }
+
+  public int getCapacity() {
+    return mask + 1;
+  }
+}
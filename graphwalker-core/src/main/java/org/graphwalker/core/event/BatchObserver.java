@@ -0,0 +1,52 @@
+package org.graphwalker.core.event;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Machine;
+import org.graphwalker.core.machine.Step;
+
+import java.util.List;
+
+/**
+ * <h1>BatchObserver</h1>
+ * An observer that is notified once per batch of steps taken by {@link Machine#getNextSteps(int)}, instead of
+ * before and after every element of the batch.
+ * </p>
+ * Steps taken one at a time by {@link Machine#getNextStep()} are still reported through
+ * {@link #update(Machine, org.graphwalker.core.model.Element, EventType)}.
+ *
+ * @author Ivan Bonkin
+ */
+public interface BatchObserver extends Observer {
+
+  /**
+   * @param machine the machine that took the steps
+   * @param steps   the steps of the batch, in the order they were taken
+   */
+  void updateBatch(Machine machine, List<Step> steps);
+}
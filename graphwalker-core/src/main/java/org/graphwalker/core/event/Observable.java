@@ -38,6 +38,14 @@ public interface Observable {
 
   void addObserver(Observer observer);
 
+  /**
+   * Registers an observer that is notified on a separate thread, so that it does not slow down the machine.
+   * Observables without such a thread notify it as any other observer.
+   */
+  default void addAsyncObserver(Observer observer) {
+    addObserver(observer);
+  }
+
   void deleteObserver(Observer observer);
 
   List<Observer> getObservers();
@@ -0,0 +1,76 @@
+package org.graphwalker.core.event;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * <h1>WaitStrategy</h1>
+ * How the threads of an {@link AsyncEventBus} wait, the observer thread for new events and, with
+ * {@link OverflowPolicy#BLOCK}, the machine for free space in the ring buffer.
+ * </p>
+ * The strategies trade latency for CPU usage, from {@link #BLOCKING}, which parks the thread until it is
+ * signalled, to {@link #BUSY_SPIN}, which keeps a core busy.
+ *
+ * @author Ivan Bonkin
+ */
+public enum WaitStrategy {
+
+  BLOCKING {
+    @Override
+    void idle() {
+      // woken up by the other side, the timeout only guards against a missed signal
+      LockSupport.parkNanos(MILLISECONDS.toNanos(1));
+    }
+  },
+
+  SLEEPING {
+    @Override
+    void idle() {
+      LockSupport.parkNanos(MICROSECONDS.toNanos(100));
+    }
+  },
+
+  YIELDING {
+    @Override
+    void idle() {
+      Thread.yield();
+    }
+  },
+
+  BUSY_SPIN {
+    @Override
+    void idle() {
+    }
+  };
+
+  abstract void idle();
+}
@@ -0,0 +1,63 @@
+package org.graphwalker.core.expression;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * <h1>Dependencies</h1>
+ * The variables read and written by a guard or an action script.
+ *
+ * @author Ivan Bonkin
+ * @see SimpleExpressionEngine#analyze(String)
+ */
+public final class Dependencies {
+
+  private final Set<String> reads;
+  private final Set<String> writes;
+
+  public Dependencies(Set<String> reads, Set<String> writes) {
+    this.reads = Collections.unmodifiableSet(new LinkedHashSet<>(reads));
+    this.writes = Collections.unmodifiableSet(new LinkedHashSet<>(writes));
+  }
+
+  public Set<String> getReads() {
+    return reads;
+  }
+
+  public Set<String> getWrites() {
+    return writes;
+  }
+
+  @Override
+  public String toString() {
+    return "reads " + reads + ", writes " + writes;
+  }
+}
@@ -0,0 +1,48 @@
+package org.graphwalker.core.expression;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * <h1>ExpressionEngine</h1>
+ * The ExpressionEngine evaluates guards and actions without a JSR-223 script engine.
+ * </p>
+ * An expression engine usually understands only a subset of the scripting language. Scripts outside of that
+ * subset are rejected when parsed, and the execution context then falls back to the script engine.
+ *
+ * @author Ivan Bonkin
+ * @see SimpleExpressionEngine
+ */
+public interface ExpressionEngine {
+
+  /**
+   * @param script guard or action script
+   * @return the parsed expression
+   * @throws UnsupportedExpressionException if the script is not understood by the engine
+   */
+  Expression parse(String script);
+}
@@ -0,0 +1,654 @@
+package org.graphwalker.core.expression;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <h1>SimpleExpressionEngine</h1>
+ * The SimpleExpressionEngine interprets the subset of JavaScript that is typically used in guards and actions.
+ * </p>
+ * Supported are boolean, number, string and null literals, variables, the arithmetic, comparison and
+ * logical operators, parentheses, assignments (optionally declared with {@code var}), compound assignments
+ * and increments, separated by semicolons. Like in JavaScript, numbers are doubles, {@code &&} and {@code ||}
+ * return one of their operands, and {@code +} concatenates when one of the operands is a string.
+ * </p>
+ * Anything else, for instance function calls, property access, objects or control statements, is rejected
+ * with an {@link UnsupportedExpressionException}.
+ *
+ * @author Ivan Bonkin
+ */
+public class SimpleExpressionEngine implements ExpressionEngine {
+
+  private static final Pattern DECIMAL = Pattern.compile("[+-]?(Infinity|(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?)");
+  private static final Pattern NON_DECIMAL = Pattern.compile("0([xX][0-9a-fA-F]+|[oO][0-7]+|[bB][01]+)");
+
+  private static final String[] OPERATORS = {
+    "===", "!==", "==", "!=", "<=", ">=", "&&", "||", "++", "--", "+=", "-=", "*=", "/=", "%=",
+    "+", "-", "*", "/", "%", "<", ">", "!", "=", "(", ")", ";"
+  };
+
+  private static final Set<String> RESERVED_WORDS = new HashSet<>(Arrays.asList(
+    "break", "case", "catch", "class", "const", "continue", "debugger", "default", "delete", "do", "else",
+    "export", "extends", "finally", "for", "function", "if", "import", "in", "instanceof", "let", "new",
+    "return", "super", "switch", "this", "throw", "try", "typeof", "void", "while", "with", "yield",
+    "undefined", "NaN", "Infinity", "arguments", "eval"
+  ));
+
+  @Override
+  public Expression parse(String script) {
+    if (null == script) {
+      throw new UnsupportedExpressionException(script, "no script");
+    }
+    return new Parser(script).parseProgram();
+  }
+
+  /**
+   * Finds the variables a script reads and writes, without evaluating it.
+   *
+   * @param script guard or action script
+   * @return the variables of the script
+   * @throws UnsupportedExpressionException if the script is not understood by the engine
+   */
+  public Dependencies analyze(String script) {
+    if (null == script) {
+      throw new UnsupportedExpressionException(script, "no script");
+    }
+    Parser parser = new Parser(script);
+    parser.parseProgram();
+    return new Dependencies(parser.reads, parser.writes);
+  }
+
+  private enum TokenType {
+    NUMBER, STRING, IDENTIFIER, OPERATOR, END
+  }
+
+  private static final class Token {
+
+    private final TokenType type;
+    private final String text;
+    private final Object value;
+
+    private Token(TokenType type, String text, Object value) {
+      this.type = type;
+      this.text = text;
+      this.value = value;
+    }
+
+    private boolean is(String operator) {
+      return TokenType.OPERATOR == type && text.equals(operator);
+    }
+
+    private boolean isKeyword(String keyword) {
+      return TokenType.IDENTIFIER == type && text.equals(keyword);
+    }
+  }
+
+  private static final class Parser {
+
+    private final String script;
+    private final List<Token> tokens;
+    private final Set<String> reads = new LinkedHashSet<>();
+    private final Set<String> writes = new LinkedHashSet<>();
+    private int position = 0;
+
+    private Parser(String script) {
+      this.script = script;
+      this.tokens = tokenize(script);
+    }
+
+    private UnsupportedExpressionException unsupported(String reason) {
+      return new UnsupportedExpressionException(script, reason);
+    }
+
+    private List<Token> tokenize(String script) {
+      List<Token> tokens = new ArrayList<>();
+      int index = 0;
+      next:
+      while (index < script.length()) {
+        char c = script.charAt(index);
+        if (Character.isWhitespace(c)) {
+          index++;
+        } else if (Character.isDigit(c) || (c == '.' && index + 1 < script.length() && Character.isDigit(script.charAt(index + 1)))) {
+          int start = index;
+          while (index < script.length() && (Character.isDigit(script.charAt(index)) || script.charAt(index) == '.')) {
+            index++;
+          }
+          if (index < script.length() && (script.charAt(index) == 'e' || script.charAt(index) == 'E')) {
+            index++;
+            if (index < script.length() && (script.charAt(index) == '+' || script.charAt(index) == '-')) {
+              index++;
+            }
+            while (index < script.length() && Character.isDigit(script.charAt(index))) {
+              index++;
+            }
+          }
+          if (index < script.length() && Character.isJavaIdentifierPart(script.charAt(index))) {
+            throw unsupported("malformed number");
+          }
+          String text = script.substring(start, index);
+          try {
+            tokens.add(new Token(TokenType.NUMBER, text, Double.valueOf(text)));
+          } catch (NumberFormatException e) {
+            throw unsupported("malformed number '" + text + "'");
+          }
+        } else if (c == '"' || c == '\'') {
+          StringBuilder value = new StringBuilder();
+          int start = index++;
+          while (true) {
+            if (index >= script.length()) {
+              throw unsupported("unterminated string");
+            }
+            char s = script.charAt(index++);
+            if (s == c) {
+              break;
+            } else if (s == '\\') {
+              if (index >= script.length()) {
+                throw unsupported("unterminated string");
+              }
+              char escaped = script.charAt(index++);
+              switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 't': value.append('\t'); break;
+                case 'r': value.append('\r'); break;
+                case '\\': case '\'': case '"': value.append(escaped); break;
+                default: throw unsupported("escape sequence \\" + escaped);
+              }
+            } else {
+              value.append(s);
+            }
+          }
+          tokens.add(new Token(TokenType.STRING, script.substring(start, index), value.toString()));
+        } else if (Character.isJavaIdentifierStart(c)) {
+          int start = index;
+          while (index < script.length() && Character.isJavaIdentifierPart(script.charAt(index))) {
+            index++;
+          }
+          String text = script.substring(start, index);
+          if (RESERVED_WORDS.contains(text)) {
+            throw unsupported("keyword '" + text + "'");
+          }
+          tokens.add(new Token(TokenType.IDENTIFIER, text, null));
+        } else {
+          for (String operator : OPERATORS) {
+            if (script.startsWith(operator, index)) {
+              tokens.add(new Token(TokenType.OPERATOR, operator, null));
+              index += operator.length();
+              continue next;
+            }
+          }
+          throw unsupported("character '" + c + "'");
+        }
+      }
+      tokens.add(new Token(TokenType.END, "", null));
+      return tokens;
+    }
+
+    private Token peek() {
+      return tokens.get(position);
+    }
+
+    private Token peek(int offset) {
+      return tokens.get(Math.min(position + offset, tokens.size() - 1));
+    }
+
+    private Token next() {
+      return tokens.get(position++);
+    }
+
+    private void expect(String operator) {
+      if (!next().is(operator)) {
+        throw unsupported("expected '" + operator + "'");
+      }
+    }
+
+    private Expression parseProgram() {
+      List<Expression> statements = new ArrayList<>();
+      while (TokenType.END != peek().type) {
+        if (peek().is(";")) {
+          next();
+          continue;
+        }
+        statements.add(parseStatement());
+        if (!peek().is(";") && TokenType.END != peek().type) {
+          throw unsupported("expected ';' instead of '" + peek().text + "'");
+        }
+      }
+      if (1 == statements.size()) {
+        return statements.get(0);
+      }
+      Expression[] program = statements.toArray(new Expression[0]);
+      return variables -> {
+        Object value = null;
+        for (Expression statement : program) {
+          value = statement.evaluate(variables);
+        }
+        return value;
+      };
+    }
+
+    private Expression parseStatement() {
+      if (peek().isKeyword("var")) {
+        next();
+        String name = parseVariableName();
+        writes.add(name);
+        expect("=");
+        Expression value = parseExpression();
+        return variables -> {
+          variables.put(name, value.evaluate(variables));
+          return null;
+        };
+      }
+      if ((peek().is("++") || peek().is("--")) && TokenType.IDENTIFIER == peek(1).type) {
+        double delta = next().is("++") ? 1 : -1;
+        String name = parseVariableName();
+        reads.add(name);
+        writes.add(name);
+        return variables -> {
+          Double value = toNumber(read(variables, name)) + delta;
+          variables.put(name, value);
+          return value;
+        };
+      }
+      if (TokenType.IDENTIFIER == peek().type && TokenType.OPERATOR == peek(1).type) {
+        Token operator = peek(1);
+        if (operator.is("++") || operator.is("--")) {
+          String name = parseVariableName();
+          reads.add(name);
+          writes.add(name);
+          double delta = next().is("++") ? 1 : -1;
+          return variables -> {
+            Double value = toNumber(read(variables, name));
+            variables.put(name, value + delta);
+            return value;
+          };
+        }
+        if (operator.is("=")) {
+          String name = parseVariableName();
+          writes.add(name);
+          next();
+          Expression value = parseExpression();
+          return variables -> {
+            Object result = value.evaluate(variables);
+            variables.put(name, result);
+            return result;
+          };
+        }
+        if (operator.is("+=") || operator.is("-=") || operator.is("*=") || operator.is("/=") || operator.is("%=")) {
+          String name = parseVariableName();
+          reads.add(name);
+          writes.add(name);
+          String binary = next().text.substring(0, 1);
+          Expression value = parseExpression();
+          return variables -> {
+            Object result = apply(binary, read(variables, name), value.evaluate(variables));
+            variables.put(name, result);
+            return result;
+          };
+        }
+      }
+      return parseExpression();
+    }
+
+    private String parseVariableName() {
+      Token token = next();
+      if (TokenType.IDENTIFIER != token.type || isLiteral(token)) {
+        throw unsupported("expected variable name instead of '" + token.text + "'");
+      }
+      return token.text;
+    }
+
+    private boolean isLiteral(Token token) {
+      return token.isKeyword("true") || token.isKeyword("false") || token.isKeyword("null") || token.isKeyword("var");
+    }
+
+    private Expression parseExpression() {
+      return parseOr();
+    }
+
+    private Expression parseOr() {
+      Expression left = parseAnd();
+      while (peek().is("||")) {
+        next();
+        Expression first = left, second = parseAnd();
+        left = variables -> {
+          Object value = first.evaluate(variables);
+          return isTrue(value) ? value : second.evaluate(variables);
+        };
+      }
+      return left;
+    }
+
+    private Expression parseAnd() {
+      Expression left = parseEquality();
+      while (peek().is("&&")) {
+        next();
+        Expression first = left, second = parseEquality();
+        left = variables -> {
+          Object value = first.evaluate(variables);
+          return !isTrue(value) ? value : second.evaluate(variables);
+        };
+      }
+      return left;
+    }
+
+    private Expression parseEquality() {
+      Expression left = parseRelational();
+      while (peek().is("==") || peek().is("!=") || peek().is("===") || peek().is("!==")) {
+        String operator = next().text;
+        Expression first = left, second = parseRelational();
+        boolean strict = 3 == operator.length();
+        boolean negate = operator.startsWith("!");
+        left = variables -> {
+          Object a = first.evaluate(variables), b = second.evaluate(variables);
+          return negate != (strict ? strictEquals(a, b) : looseEquals(a, b));
+        };
+      }
+      return left;
+    }
+
+    private Expression parseRelational() {
+      Expression left = parseAdditive();
+      while (peek().is("<") || peek().is("<=") || peek().is(">") || peek().is(">=")) {
+        String operator = next().text;
+        Expression first = left, second = parseAdditive();
+        left = variables -> compare(operator, first.evaluate(variables), second.evaluate(variables));
+      }
+      return left;
+    }
+
+    private Expression parseAdditive() {
+      Expression left = parseMultiplicative();
+      while (peek().is("+") || peek().is("-")) {
+        String operator = next().text;
+        Expression first = left, second = parseMultiplicative();
+        left = variables -> apply(operator, first.evaluate(variables), second.evaluate(variables));
+      }
+      return left;
+    }
+
+    private Expression parseMultiplicative() {
+      Expression left = parseUnary();
+      while (peek().is("*") || peek().is("/") || peek().is("%")) {
+        String operator = next().text;
+        Expression first = left, second = parseUnary();
+        left = variables -> apply(operator, first.evaluate(variables), second.evaluate(variables));
+      }
+      return left;
+    }
+
+    private Expression parseUnary() {
+      if (peek().is("!")) {
+        next();
+        Expression operand = parseUnary();
+        return variables -> !isTrue(operand.evaluate(variables));
+      }
+      if (peek().is("-")) {
+        next();
+        Expression operand = parseUnary();
+        return variables -> -toNumber(operand.evaluate(variables));
+      }
+      if (peek().is("+")) {
+        next();
+        Expression operand = parseUnary();
+        return variables -> toNumber(operand.evaluate(variables));
+      }
+      return parsePrimary();
+    }
+
+    private Expression parsePrimary() {
+      Token token = next();
+      switch (token.type) {
+        case NUMBER:
+        case STRING:
+          Object constant = token.value;
+          return variables -> constant;
+        case IDENTIFIER:
+          if (token.isKeyword("true")) {
+            return variables -> Boolean.TRUE;
+          } else if (token.isKeyword("false")) {
+            return variables -> Boolean.FALSE;
+          } else if (token.isKeyword("null")) {
+            return variables -> null;
+          } else if (token.isKeyword("var")) {
+            throw unsupported("unexpected 'var'");
+          }
+          String name = token.text;
+          reads.add(name);
+          return variables -> read(variables, name);
+        case OPERATOR:
+          if (token.is("(")) {
+            Expression expression = parseExpression();
+            expect(")");
+            return expression;
+          }
+          throw unsupported("unexpected '" + token.text + "'");
+        default:
+          throw unsupported("unexpected end of script");
+      }
+    }
+  }
+
+  private static Object read(Map<String, Object> variables, String name) {
+    if (!variables.containsKey(name)) {
+      throw new ExpressionException("ReferenceError: \"" + name + "\" is not defined");
+    }
+    return variables.get(name);
+  }
+
+  private static Object apply(String operator, Object a, Object b) {
+    switch (operator) {
+      case "+":
+        if (a instanceof String || b instanceof String) {
+          return toString(a) + toString(b);
+        }
+        return toNumber(a) + toNumber(b);
+      case "-":
+        return toNumber(a) - toNumber(b);
+      case "*":
+        return toNumber(a) * toNumber(b);
+      case "/":
+        return toNumber(a) / toNumber(b);
+      case "%":
+        return toNumber(a) % toNumber(b);
+      default:
+        throw new ExpressionException("Unknown operator " + operator);
+    }
+  }
+
+  private static boolean compare(String operator, Object a, Object b) {
+    int result;
+    if (a instanceof String && b instanceof String) {
+      result = ((String) a).compareTo((String) b);
+    } else {
+      double x = toNumber(a), y = toNumber(b);
+      if (Double.isNaN(x) || Double.isNaN(y)) {
+        return false;
+      }
+      result = Double.compare(x, y);
+      if (x == y) {
+        result = 0;
+      }
+    }
+    switch (operator) {
+      case "<":
+        return result < 0;
+      case "<=":
+        return result <= 0;
+      case ">":
+        return result > 0;
+      default:
+        return result >= 0;
+    }
+  }
+
+  private static boolean isPrimitive(Object value) {
+    return value instanceof Number || value instanceof String || value instanceof Boolean;
+  }
+
+  private static boolean looseEquals(Object a, Object b) {
+    if (null == a || null == b) {
+      return a == b;
+    }
+    if (!isPrimitive(a) || !isPrimitive(b)) {
+      return a == b;
+    }
+    if (a instanceof String && b instanceof String) {
+      return a.equals(b);
+    }
+    if (a instanceof Boolean && b instanceof Boolean) {
+      return a.equals(b);
+    }
+    return toNumber(a) == toNumber(b);
+  }
+
+  private static boolean strictEquals(Object a, Object b) {
+    if (null == a || null == b) {
+      return a == b;
+    }
+    boolean sameType = (a instanceof Number && b instanceof Number)
+      || (a instanceof String && b instanceof String)
+      || (a instanceof Boolean && b instanceof Boolean);
+    return sameType && looseEquals(a, b);
+  }
+
+  static boolean isTrue(Object value) {
+    if (null == value) {
+      return false;
+    } else if (value instanceof Boolean) {
+      return (Boolean) value;
+    } else if (value instanceof Number) {
+      double number = ((Number) value).doubleValue();
+      return 0 != number && !Double.isNaN(number);
+    } else if (value instanceof String) {
+      return !((String) value).isEmpty();
+    }
+    return true;
+  }
+
+  static double toNumber(Object value) {
+    if (null == value) {
+      return 0;
+    } else if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    } else if (value instanceof Boolean) {
+      return (Boolean) value ? 1 : 0;
+    } else if (value instanceof String) {
+      return stringToNumber(strip((String) value));
+    }
+    return Double.NaN;
+  }
+
+  /**
+   * Converts like the JavaScript {@code Number(string)}, the Java only forms accepted by {@link Double#parseDouble},
+   * such as {@code "1f"}, {@code "1d"} or {@code "0x1p3"}, are not numbers.
+   */
+  private static double stringToNumber(String string) {
+    if (string.isEmpty()) {
+      return 0;
+    } else if (DECIMAL.matcher(string).matches()) {
+      return Double.parseDouble(string);
+    } else if (NON_DECIMAL.matcher(string).matches()) {
+      char prefix = Character.toLowerCase(string.charAt(1));
+      int radix = 'x' == prefix ? 16 : 'o' == prefix ? 8 : 2;
+      return new BigInteger(string.substring(2), radix).doubleValue();
+    }
+    return Double.NaN;
+  }
+
+  private static String strip(String string) {
+    int start = 0, end = string.length();
+    while (start < end && isSpace(string.charAt(start))) {
+      start++;
+    }
+    while (end > start && isSpace(string.charAt(end - 1))) {
+      end--;
+    }
+    return string.substring(start, end);
+  }
+
+  private static boolean isSpace(char c) {
+    return Character.isWhitespace(c) || Character.isSpaceChar(c) || '\uFEFF' == c;
+  }
+
+  static String toString(Object value) {
+    if (value instanceof Number) {
+      return numberToString(((Number) value).doubleValue());
+    }
+    return String.valueOf(value);
+  }
+
+  /**
+   * Formats like the JavaScript {@code String(number)}: the digits of {@link Double#toString(double)} are laid out
+   * without an exponent from 1e-6 up to 1e21, and with a signed exponent, e.g. {@code 1e+21}, beyond.
+   */
+  private static String numberToString(double number) {
+    if (Double.isNaN(number)) {
+      return "NaN";
+    } else if (Double.isInfinite(number)) {
+      return number > 0 ? "Infinity" : "-Infinity";
+    } else if (0 == number) {
+      return "0";
+    }
+    BigDecimal decimal = new BigDecimal(Double.toString(Math.abs(number))).stripTrailingZeros();
+    String digits = decimal.unscaledValue().toString();
+    int k = digits.length();
+    int n = k - decimal.scale();
+    StringBuilder builder = new StringBuilder(number < 0 ? "-" : "");
+    if (k <= n && n <= 21) {
+      builder.append(digits);
+      for (int i = k; i < n; i++) {
+        builder.append('0');
+      }
+    } else if (0 < n && n <= 21) {
+      builder.append(digits, 0, n).append('.').append(digits, n, k);
+    } else if (-6 < n && n <= 0) {
+      builder.append("0.");
+      for (int i = n; i < 0; i++) {
+        builder.append('0');
+      }
+      builder.append(digits);
+    } else {
+      builder.append(digits.charAt(0));
+      if (k > 1) {
+        builder.append('.').append(digits, 1, k);
+      }
+      builder.append('e').append(n > 0 ? '+' : '-').append(Math.abs(n - 1));
+    }
+    return builder.toString();
+  }
+}
@@ -28,10 +28,17 @@ package org.graphwalker.core.generator;
  */
 
 import org.graphwalker.core.condition.StopCondition;
+import org.graphwalker.core.machine.Checkpoints;
 import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.MachineException;
+import org.graphwalker.core.machine.Seedable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 
 /**
@@ -54,7 +61,7 @@ import java.util.stream.Collectors;
  *
  * @author Nils Olsson
  */
-public class CombinedPath extends PathGeneratorBase<StopCondition> {
+public class CombinedPath extends PathGeneratorBase<StopCondition> implements Seedable {
 
   private final List<PathGenerator> generators = new ArrayList<>();
   private int index = 0;
@@ -83,6 +90,44 @@ public class CombinedPath extends PathGeneratorBase<StopCondition> {
     return getActivePathGenerator().getStopCondition();
   }
 
+  /**
+   * Sets the stop condition of all combined generators.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void setStopCondition(StopCondition stopCondition) {
+    super.setStopCondition(stopCondition);
+    generators.forEach(pathGenerator -> pathGenerator.setStopCondition(stopCondition));
+  }
+
+  /**
+   * Seeds the combined generators, each with a seed of its own derived from the given one.
+   */
+  @Override
+  public void seed(long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    for (PathGenerator generator : generators) {
+      long generatorSeed = random.split().nextLong();
+      if (generator instanceof Seedable) {
+        ((Seedable) generator).seed(generatorSeed);
+      }
+    }
+  }
+
+  /**
+   * Sets seeds of their own to the combined generators, each derived from the given one.
+   */
+  @Override
+  public void setSeed(long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    for (PathGenerator generator : generators) {
+      long generatorSeed = random.split().nextLong();
+      if (generator instanceof Seedable) {
+        ((Seedable) generator).setSeed(generatorSeed);
+      }
+    }
+  }
+
   @Override
   public Context getNextStep() {
     if (index > generators.size()-1) {
@@ -91,6 +136,26 @@ public class CombinedPath extends PathGeneratorBase<StopCondition> {
     return getActivePathGenerator().getNextStep();
   }
 
+  @Override
+  public void checkpoint(Context context, DataOutput output) throws IOException {
+    output.writeInt(index);
+    output.writeInt(generators.size());
+    for (PathGenerator generator : generators) {
+      Checkpoints.writeState(context, output, generator);
+    }
+  }
+
+  @Override
+  public void resume(Context context, DataInput input) throws IOException {
+    index = input.readInt();
+    if (input.readInt() != generators.size()) {
+      throw new MachineException("The checkpoint does not match the path generators of " + this);
+    }
+    for (PathGenerator generator : generators) {
+      Checkpoints.readState(context, input, generator);
+    }
+  }
+
   @Override
   public boolean hasNextStep() {
     for (; index < generators.size(); index++) {
@@ -28,15 +28,21 @@ package org.graphwalker.core.generator;
  */
 
 import org.graphwalker.core.condition.StopCondition;
+import org.graphwalker.core.machine.Checkpointable;
+import org.graphwalker.core.machine.Checkpoints;
 import org.graphwalker.core.machine.Context;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import static org.graphwalker.core.common.Objects.isNotNull;
 import static org.graphwalker.core.common.Objects.isNull;
 
 /**
  * @author Nils Olsson
  */
-public abstract class PathGeneratorBase<T extends StopCondition> implements PathGenerator<T> {
+public abstract class PathGeneratorBase<T extends StopCondition> implements PathGenerator<T>, Checkpointable {
 
   private Context context;
   private T stopCondition;
@@ -70,6 +76,16 @@ public abstract class PathGeneratorBase<T extends StopCondition> implements Path
     return getContext();
   }
 
+  @Override
+  public void checkpoint(Context context, DataOutput output) throws IOException {
+    Checkpoints.writeState(context, output, stopCondition);
+  }
+
+  @Override
+  public void resume(Context context, DataInput input) throws IOException {
+    Checkpoints.readState(context, input, stopCondition);
+  }
+
   @Override
   public String toString() {
     return toString(new StringBuilder()).toString();
@@ -31,14 +31,18 @@ package org.graphwalker.core.generator;
 
 import org.graphwalker.core.algorithm.AStar;
 import org.graphwalker.core.condition.StopCondition;
+import org.graphwalker.core.machine.Checkpoints;
 import org.graphwalker.core.machine.Context;
 import org.graphwalker.core.model.Element;
 import org.graphwalker.core.statistics.Profiler;
+import org.graphwalker.core.statistics.SharedCoverage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import static org.graphwalker.core.common.Objects.isNotNull;
@@ -56,7 +60,7 @@ import static org.graphwalker.core.common.Objects.isNull;
  *
  * @author Kristian Karl
  */
-public class QuickRandomPath extends PathGeneratorBase<StopCondition> {
+public class QuickRandomPath extends RandomPathGeneratorBase<StopCondition> {
 
   private static final Logger LOG = LoggerFactory.getLogger(QuickRandomPath.class);
   private final List<Element> elements = new ArrayList<>();
@@ -72,9 +76,9 @@ public class QuickRandomPath extends PathGeneratorBase<StopCondition> {
     if (elements.isEmpty()) {
       elements.addAll(context.getModel().getElements());
       elements.remove(context.getCurrentElement());
-      Collections.shuffle(elements);
+      shuffle(elements);
     }
-    if (isNull(target) || target.equals(context.getCurrentElement())) {
+    if (isNull(target) || target.equals(context.getCurrentElement()) || isVisitedByOthers(context, target)) {
       if (elements.isEmpty()) {
         throw new NoPathFoundException(context.getCurrentElement());
       } else {
@@ -88,14 +92,38 @@ public class QuickRandomPath extends PathGeneratorBase<StopCondition> {
     return context.setCurrentElement(nextElement);
   }
 
+  private boolean isVisitedByOthers(Context context, Element target) {
+    SharedCoverage sharedCoverage = context.getSharedCoverage();
+    return isNotNull(sharedCoverage) && sharedCoverage.isVisited(target)
+      && sharedCoverage.getVisitedEdgeCount() + sharedCoverage.getVisitedVertexCount()
+      < sharedCoverage.getEdgeCount() + sharedCoverage.getVertexCount();
+  }
+
   private void orderElementsUnvisitedFirst(List<Element> elements) {
     final Context context = getContext();
     final Profiler profiler = context.getProfiler();
-    if (isNotNull(profiler)) {
+    final SharedCoverage sharedCoverage = context.getSharedCoverage();
+    if (isNotNull(sharedCoverage)) {
+      elements.sort((a, b) -> Boolean.compare(sharedCoverage.isVisited(a), sharedCoverage.isVisited(b)));
+    } else if (isNotNull(profiler)) {
       elements.sort((a, b) -> Boolean.compare(profiler.isVisited(context, a), profiler.isVisited(context, b)));
     }
   }
 
+  @Override
+  public void checkpoint(Context context, DataOutput output) throws IOException {
+    super.checkpoint(context, output);
+    Checkpoints.writeElements(context, output, elements);
+    Checkpoints.writeElement(context, output, target);
+  }
+
+  @Override
+  public void resume(Context context, DataInput input) throws IOException {
+    super.resume(context, input);
+    Checkpoints.readElements(context, input, elements);
+    target = Checkpoints.readElement(context, input);
+  }
+
   @Override
   public boolean hasNextStep() {
     return !getStopCondition().isFulfilled();
@@ -34,7 +34,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Random;
 
 /**
  * <h1>RandomPath</h1>
@@ -45,12 +44,10 @@ import java.util.Random;
  *
  * @author Nils Olsson
  */
-public class RandomPath extends PathGeneratorBase<StopCondition> {
+public class RandomPath extends RandomPathGeneratorBase<StopCondition> {
 
   private static final Logger LOG = LoggerFactory.getLogger(RandomPath.class);
 
-  private final Random random = new Random(System.nanoTime());
-
   public RandomPath(StopCondition stopCondition) {
     setStopCondition(stopCondition);
   }
@@ -65,7 +62,7 @@ public class RandomPath extends PathGeneratorBase<StopCondition> {
       LOG.error("context.getModel().getElements(): " + context.getModel().getElements());
       throw new NoPathFoundException(context.getCurrentElement());
     }
-    context.setCurrentElement(elements.get(random.nextInt(elements.size())));
+    context.setCurrentElement(elements.get(getRandom().nextInt(elements.size())));
     return context;
   }
 
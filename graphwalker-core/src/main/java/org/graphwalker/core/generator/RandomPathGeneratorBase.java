@@ -0,0 +1,99 @@
+package org.graphwalker.core.generator;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.condition.StopCondition;
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.Seedable;
+import org.graphwalker.core.machine.StatefulRandom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <h1>RandomPathGeneratorBase</h1>
+ * The RandomPathGeneratorBase holds the random generator of the path generators making random choices.
+ * </p>
+ * The generator is seeded by the machine, unless a seed is set explicitly, so that a run can be repeated step by
+ * step from the seed recorded in its results.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+public abstract class RandomPathGeneratorBase<T extends StopCondition> extends PathGeneratorBase<T> implements Seedable {
+
+  private final StatefulRandom random = new StatefulRandom(ThreadLocalRandom.current().nextLong());
+  private boolean seeded = false;
+
+  protected Random getRandom() {
+    return random;
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    random.setSeed(seed);
+    this.seeded = true;
+  }
+
+  public boolean isSeeded() {
+    return seeded;
+  }
+
+  @Override
+  public void seed(long seed) {
+    if (!seeded) {
+      random.setSeed(seed);
+    }
+  }
+
+  protected void shuffle(List<?> list) {
+    for (int i = list.size() - 1; i > 0; i--) {
+      Collections.swap(list, i, random.nextInt(i + 1));
+    }
+  }
+
+  /**
+   * Writes the state of the random generator, which is left as it is.
+   */
+  @Override
+  public void checkpoint(Context context, DataOutput output) throws IOException {
+    super.checkpoint(context, output);
+    output.writeLong(random.getState());
+  }
+
+  @Override
+  public void resume(Context context, DataInput input) throws IOException {
+    super.resume(context, input);
+    random.setSeed(input.readLong());
+  }
+}
@@ -29,10 +29,16 @@ package org.graphwalker.core.generator;
 
 import org.graphwalker.core.algorithm.Eulerian;
 import org.graphwalker.core.condition.StopCondition;
+import org.graphwalker.core.machine.Checkpoints;
 import org.graphwalker.core.machine.Context;
 import org.graphwalker.core.model.Element;
 import org.graphwalker.core.model.Path;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
 import static org.graphwalker.core.common.Objects.isNull;
 
 /**
@@ -60,6 +66,26 @@ public class ShortestAllPaths extends PathGeneratorBase<StopCondition> {
     return context.getAlgorithm(Eulerian.class).getEulerPath(context.getCurrentElement());
   }
 
+  @Override
+  public void checkpoint(Context context, DataOutput output) throws IOException {
+    super.checkpoint(context, output);
+    output.writeBoolean(isNotNull(path));
+    if (isNotNull(path)) {
+      Checkpoints.writeElements(context, output, path);
+    }
+  }
+
+  @Override
+  public void resume(Context context, DataInput input) throws IOException {
+    super.resume(context, input);
+    if (input.readBoolean()) {
+      path = new Path<>();
+      Checkpoints.readElements(context, input, path);
+    } else {
+      path = null;
+    }
+  }
+
   @Override
   public boolean hasNextStep() {
     return !getStopCondition().isFulfilled();
@@ -27,23 +27,30 @@ package org.graphwalker.core.generator;
  * #L%
  */
 
-import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import org.graphwalker.core.algorithm.FloydWarshall;
 import org.graphwalker.core.algorithm.Yen;
 import org.graphwalker.core.condition.ReachedStopCondition;
+import org.graphwalker.core.expression.UnsupportedExpressionException;
+import org.graphwalker.core.machine.Checkpoints;
 import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.ContextSnapshot;
 import org.graphwalker.core.machine.ExecutionContext;
 import org.graphwalker.core.machine.MachineException;
+import org.graphwalker.core.machine.ShadowContext;
 import org.graphwalker.core.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.script.Bindings;
 import javax.script.ScriptException;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
@@ -52,8 +59,6 @@ import static java.util.Objects.hash;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
-import static javax.script.ScriptContext.ENGINE_SCOPE;
-import static jdk.nashorn.api.scripting.NashornScriptEngine.NASHORN_GLOBAL;
 import static org.graphwalker.core.generator.ShortestPath.Statistics.Reason.*;
 
 /**
@@ -62,11 +67,17 @@ import static org.graphwalker.core.generator.ShortestPath.Statistics.Reason.*;
 public class ShortestPath extends PathGeneratorBase<ReachedStopCondition> {
 
   private static final Logger LOG = LoggerFactory.getLogger(ShortestPath.class);
+  private static final ExecutorService VALIDATION_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "graphwalker-path-validation");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   private Action[] actionsToBeExecutedBefore;
   private AtomicReference<Consumer<Long>> generationMillisStats = new AtomicReference<>(aLong -> {});
   private final Path<Element> cachedPath = new Path<>();
   private boolean cacheEnabled = true;
+  private int parallelism = Integer.getInteger("graphwalker.shortestPath.parallelism", 1);
 
   public ShortestPath(ReachedStopCondition stopCondition) {
     setStopCondition(stopCondition);
@@ -103,6 +114,21 @@ public class ShortestPath extends PathGeneratorBase<ReachedStopCondition> {
     cacheEnabled = false;
   }
 
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Sets the number of candidate paths validated at once.
+   * </p>
+   * Candidates are validated in parallel only when the context uses the expression engine, see
+   * {@link ExecutionContext#shadow()}. Defaults to the {@code graphwalker.shortestPath.parallelism}
+   * system property, or 1.
+   */
+  public void setParallelism(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+  }
+
   @Override
   synchronized public Context getNextStep() {
     Context context = super.getNextStep();
@@ -117,10 +143,8 @@ public class ShortestPath extends PathGeneratorBase<ReachedStopCondition> {
 
       long startTime = System.currentTimeMillis();
 
-      Bindings engineBindings = (Bindings) context.getScriptEngine().getBindings(ENGINE_SCOPE).get(NASHORN_GLOBAL);
-      Map<String, Object> globalCopy = new HashMap<>();
-      for (Map.Entry<String, Object> e : engineBindings.entrySet()) {
-        globalCopy.put(e.getKey(), e.getValue());
+      if (actionsToBeExecutedBefore != null && context instanceof ExecutionContext) {
+        ((ExecutionContext) context).prepareActions(actionsToBeExecutedBefore);
       }
 
       if (cacheEnabled && context instanceof ExecutionContext) {
@@ -158,80 +182,236 @@ public class ShortestPath extends PathGeneratorBase<ReachedStopCondition> {
 
         Statistics statistics = new Statistics();
 
-        next:
-        while (iterator.hasNext()) {
+        ShadowContext shadow = context instanceof ExecutionContext ? ((ExecutionContext) context).shadow() : null;
+        if (null != shadow) {
           try {
-            Path<Element> path = iterator.next();
-            Action[] actions = actionsToBeExecutedBefore;
-
-            for (Element element : path) {
-
-              if (element instanceof Edge.RuntimeEdge) {
-                if (actions != null) {
-                  for (Action action : actions) {
-                    try {
-                      context.getScriptEngine().eval(action.getScript());
-                    } catch (ScriptException e) {
-                      LOG.error(e.getMessage());
-                      statistics.actionError(path, element, action);
-                      throw new PathGenerationException(statistics, context, e);
-                    } finally {
-                      actions = null;
+            Path<Element> path = findPath(context, shadow, iterator, statistics);
+            if (null == path) {
+              throw new NoPathFoundException(context.getCurrentElement());
+            }
+            return select(context, path, startTime);
+          } catch (UnsupportedExpressionException e) {
+            LOG.debug("Validating paths by the context itself: {}", e.getMessage());
+            iterator = yen.nextShortestPath((Vertex.RuntimeVertex) context.getCurrentElement(), (Vertex.RuntimeVertex) target);
+            statistics = new Statistics();
+          }
+        }
+
+        ContextSnapshot snapshot = context.snapshot();
+        try {
+          next:
+          while (iterator.hasNext()) {
+            try {
+              Path<Element> path = iterator.next();
+              Action[] actions = actionsToBeExecutedBefore;
+
+              for (Element element : path) {
+
+                if (element instanceof Edge.RuntimeEdge) {
+                  if (actions != null) {
+                    for (Action action : actions) {
+                      try {
+                        if (context instanceof ExecutionContext) {
+                          ((ExecutionContext) context).evaluate(action.getScript());
+                        } else {
+                          context.getScriptEngine().eval(action.getScript());
+                        }
+                      } catch (ScriptException e) {
+                        LOG.error(e.getMessage());
+                        statistics.actionError(path, element, action);
+                        throw new PathGenerationException(statistics, context, e);
+                      } finally {
+                        actions = null;
+                      }
                     }
                   }
-                }
-                try {
-                  if (!context.isAvailable((Edge.RuntimeEdge) element)) {
-                    statistics.guarded(path, element, ((Edge.RuntimeEdge) element).getGuard());
-                    iterator.remove();
-                    continue next;
+                  try {
+                    if (!context.isAvailable((Edge.RuntimeEdge) element)) {
+                      statistics.guarded(path, element, ((Edge.RuntimeEdge) element).getGuard());
+                      iterator.remove();
+                      continue next;
+                    }
+                  } catch (MachineException e) {
+                    statistics.guardError(path, element, ((Edge.RuntimeEdge) element).getGuard());
+                    throw new PathGenerationException(statistics, context, e);
                   }
-                } catch (MachineException e) {
-                  statistics.guardError(path, element, ((Edge.RuntimeEdge) element).getGuard());
-                  throw new PathGenerationException(statistics, context, e);
                 }
-              }
 
-              for (Action action : element.getActions()) {
-                context.execute(action);
+                for (Action action : element.getActions()) {
+                  context.execute(action);
+                }
               }
+
+              return select(context, path, startTime);
+
+            } finally {
+              context.rollback(snapshot);
             }
+          }
+        } finally {
+          context.release(snapshot);
+        }
+        throw new NoPathFoundException(context.getCurrentElement());
+      }
+    } else {
+      return context.setCurrentElement(((Edge.RuntimeEdge) context.getCurrentElement()).getTargetVertex());
+    }
+  }
 
-            path.pollFirst();
+  private Context select(Context context, Path<Element> path, long startTime) {
+    path.pollFirst();
 
-            LOG.info("Found shortest path: \"{}\"", path);
-            generationMillisStats.get().accept(System.currentTimeMillis() - startTime);
+    LOG.info("Found shortest path: \"{}\"", path);
+    generationMillisStats.get().accept(System.currentTimeMillis() - startTime);
 
-            Element nextElement = path.pollFirst();
-            if (null != actionsToBeExecutedBefore
-              && nextElement instanceof Edge.RuntimeEdge
-              && null != ((Edge.RuntimeEdge) nextElement).getArguments()
-              && !((Edge.RuntimeEdge) nextElement).getArguments().isEmpty()) {
-              actionsToBeExecutedBefore = null;
-            }
+    Element nextElement = path.pollFirst();
+    if (null != actionsToBeExecutedBefore
+      && nextElement instanceof Edge.RuntimeEdge
+      && null != ((Edge.RuntimeEdge) nextElement).getArguments()
+      && !((Edge.RuntimeEdge) nextElement).getArguments().isEmpty()) {
+      actionsToBeExecutedBefore = null;
+    }
 
-            if (cacheEnabled) {
-              cachedPath.clear();
-              cachedPath.addAll(path);
-              if (context instanceof ExecutionContext) {
-                ((ExecutionContext)context).resetAttributeSet();
-              }
-            }
+    if (cacheEnabled) {
+      cachedPath.clear();
+      cachedPath.addAll(path);
+      if (context instanceof ExecutionContext) {
+        ((ExecutionContext)context).resetAttributeSet();
+      }
+    }
 
-            return context.setCurrentElement(nextElement);
+    return context.setCurrentElement(nextElement);
+  }
 
-          } finally {
-            Bindings localBindings = context.getScriptEngine().createBindings();
-            localBindings.putAll(globalCopy);
-            ScriptObjectMirror mirror = (ScriptObjectMirror) localBindings;
-            context.getScriptEngine().getBindings(ENGINE_SCOPE).put(NASHORN_GLOBAL, mirror);
+  /**
+   * Finds the shortest feasible path by validating the candidates on copies of the shadow context.
+   * </p>
+   * Up to {@link #getParallelism()} candidates are validated at once, the results are still taken
+   * in the order of the candidates, so the path found is the same as with sequential validation.
+   *
+   * @return the path, or null if no candidate is feasible
+   */
+  private Path<Element> findPath(Context context, ShadowContext shadow, Yen.NextShortestPath iterator, Statistics statistics) {
+    if (parallelism < 2) {
+      while (iterator.hasNext()) {
+        Validation validation = validate(shadow.copy(), iterator.next());
+        if (accept(context, validation, statistics)) {
+          return validation.path;
+        }
+      }
+      return null;
+    }
+    List<Future<Validation>> validations = new ArrayList<>(parallelism);
+    while (iterator.hasNext()) {
+      validations.clear();
+      while (validations.size() < parallelism && iterator.hasNext()) {
+        ShadowContext candidateContext = shadow.copy();
+        Path<Element> path = iterator.next();
+        validations.add(VALIDATION_EXECUTOR.submit(() -> validate(candidateContext, path)));
+      }
+      try {
+        for (Future<Validation> validation : validations) {
+          Validation result = getValidation(context, validation);
+          if (accept(context, result, statistics)) {
+            return result.path;
           }
         }
-        throw new NoPathFoundException(context.getCurrentElement());
+      } finally {
+        for (Future<Validation> validation : validations) {
+          validation.cancel(true);
+        }
       }
-    } else {
-      return context.setCurrentElement(((Edge.RuntimeEdge) context.getCurrentElement()).getTargetVertex());
     }
+    return null;
+  }
+
+  private Validation getValidation(Context context, Future<Validation> validation) {
+    try {
+      return validation.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MachineException(context, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new MachineException(context, e.getCause());
+    }
+  }
+
+  private Validation validate(ShadowContext context, Path<Element> path) {
+    Action[] actions = actionsToBeExecutedBefore;
+    for (Element element : path) {
+      if (element instanceof Edge.RuntimeEdge) {
+        if (actions != null) {
+          for (Action action : actions) {
+            try {
+              context.evaluate(action.getScript());
+            } catch (ScriptException e) {
+              return new Validation(path, element, ACTION_ERROR, action.getScript(), e);
+            }
+          }
+          actions = null;
+        }
+        Guard guard = ((Edge.RuntimeEdge) element).getGuard();
+        try {
+          if (!context.isAvailable((Edge.RuntimeEdge) element)) {
+            return new Validation(path, element, GUARD_CONDITION, guard.getScript(), null);
+          }
+        } catch (MachineException e) {
+          return new Validation(path, element, GUARD_ERROR, guard.getScript(), e);
+        }
+      }
+      for (Action action : element.getActions()) {
+        context.execute(action);
+      }
+    }
+    return new Validation(path, null, null, null, null);
+  }
+
+  private boolean accept(Context context, Validation validation, Statistics statistics) {
+    if (null == validation.reason) {
+      return true;
+    }
+    statistics.record(new Statistics.Attempt(validation.path, validation.element, validation.reason, validation.script));
+    if (null != validation.error) {
+      LOG.error(validation.error.getMessage());
+      throw new PathGenerationException(statistics, context, validation.error);
+    }
+    return false;
+  }
+
+  private static final class Validation {
+
+    private final Path<Element> path;
+    private final Element element;
+    private final Statistics.Reason reason;
+    private final String script;
+    private final Throwable error;
+
+    private Validation(Path<Element> path, Element element, Statistics.Reason reason, String script, Throwable error) {
+      this.path = path;
+      this.element = element;
+      this.reason = reason;
+      this.script = script;
+      this.error = error;
+    }
+  }
+
+  @Override
+  public void checkpoint(Context context, DataOutput output) throws IOException {
+    super.checkpoint(context, output);
+    output.writeBoolean(null != actionsToBeExecutedBefore);
+    Checkpoints.writeElements(context, output, cachedPath);
+  }
+
+  @Override
+  public void resume(Context context, DataInput input) throws IOException {
+    super.resume(context, input);
+    if (!input.readBoolean()) {
+      actionsToBeExecutedBefore = null;
+    }
+    Checkpoints.readElements(context, input, cachedPath);
   }
 
   @Override
@@ -300,25 +480,18 @@ public class ShortestPath extends PathGeneratorBase<ReachedStopCondition> {
     }
 
     public void actionError(Path<Element> path, Element element, Action action) {
-      Attempt attempt = new Attempt(path, element, ACTION_ERROR, action.getScript());
-      if (!attempts.contains(attempt)) {
-        attempts.add(attempt);
-      } else {
-        skipped++;
-      }
+      record(new Attempt(path, element, ACTION_ERROR, action.getScript()));
     }
 
     public void guardError(Path<Element> path, Element element, Guard guard) {
-      Attempt attempt = new Attempt(path, element, GUARD_ERROR, guard.getScript());
-      if (!attempts.contains(attempt)) {
-        attempts.add(attempt);
-      } else {
-        skipped++;
-      }
+      record(new Attempt(path, element, GUARD_ERROR, guard.getScript()));
     }
 
     public void guarded(Path<Element> path, Element element, Guard guard) {
-      Attempt attempt = new Attempt(path, element, GUARD_CONDITION, guard.getScript());
+      record(new Attempt(path, element, GUARD_CONDITION, guard.getScript()));
+    }
+
+    void record(Attempt attempt) {
       if (!attempts.contains(attempt)) {
         attempts.add(attempt);
       } else {
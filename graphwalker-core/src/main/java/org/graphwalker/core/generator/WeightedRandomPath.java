@@ -37,7 +37,6 @@ import org.graphwalker.core.model.Vertex;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 /**
  * <h1>WeightedRandomPath</h1>
@@ -51,9 +50,7 @@ import java.util.Random;
  *
  * @author Kristian Karl
  */
-public class WeightedRandomPath extends PathGeneratorBase<StopCondition> {
-
-  private final Random random = new Random(System.nanoTime());
+public class WeightedRandomPath extends RandomPathGeneratorBase<StopCondition> {
 
   public WeightedRandomPath(StopCondition stopCondition) {
     setStopCondition(stopCondition);
@@ -70,7 +67,7 @@ public class WeightedRandomPath extends PathGeneratorBase<StopCondition> {
     if (currentElement instanceof Vertex.RuntimeVertex) {
       context.setCurrentElement(getWeightedEdge(elements, currentElement));
     } else {
-      context.setCurrentElement(elements.get(random.nextInt(elements.size())));
+      context.setCurrentElement(elements.get(getRandom().nextInt(elements.size())));
     }
     return context;
   }
@@ -116,7 +113,7 @@ public class WeightedRandomPath extends PathGeneratorBase<StopCondition> {
     } else {
       rest = 1 - sum;
     }
-    int index = random.nextInt(100);
+    int index = getRandom().nextInt(100);
     double weight = 0;
     for (Element element : elements) {
       if (element instanceof Edge.RuntimeEdge) {
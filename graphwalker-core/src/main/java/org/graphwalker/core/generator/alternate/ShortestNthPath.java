@@ -34,27 +34,23 @@ import io.jenetics.engine.EvolutionStatistics;
 import io.jenetics.stat.DoubleMomentStatistics;
 import io.jenetics.util.ISeq;
 import io.jenetics.util.RandomRegistry;
-import jdk.nashorn.api.scripting.ScriptObjectMirror;
-import jdk.nashorn.api.scripting.ScriptUtils;
 import org.graphwalker.core.algorithm.FloydWarshall;
 import org.graphwalker.core.algorithm.Yen;
 import org.graphwalker.core.condition.ReachedStopCondition;
 import org.graphwalker.core.generator.NoPathFoundException;
 import org.graphwalker.core.generator.PathGeneratorBase;
 import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.ContextSnapshot;
 import org.graphwalker.core.model.Action;
 import org.graphwalker.core.model.Edge.RuntimeEdge;
 import org.graphwalker.core.model.Element;
 import org.graphwalker.core.model.Path;
 import org.graphwalker.core.model.Vertex.RuntimeVertex;
 
-import javax.script.Bindings;
 import java.util.*;
 
 import static io.jenetics.engine.Limits.bySteadyFitness;
 import static java.lang.Integer.MAX_VALUE;
-import static javax.script.ScriptContext.ENGINE_SCOPE;
-import static jdk.nashorn.api.scripting.NashornScriptEngine.NASHORN_GLOBAL;
 
 /**
  * Path with ability to pick n-th of possible to be generated.
@@ -114,37 +110,33 @@ public class ShortestNthPath extends PathGeneratorBase<ReachedStopCondition> {
 
         Iterator<Path<Element>> iterator = paths.iterator();
 
-        Bindings engineBindings = (Bindings) context.getScriptEngine().getBindings(ENGINE_SCOPE).get(NASHORN_GLOBAL);
-        Map<String, Object> globalCopy = new HashMap<>();
-        for (Map.Entry<String, Object> e : engineBindings.entrySet()) {
-          globalCopy.put(e.getKey(), e.getValue());
-        }
-
-        next:
-        while (iterator.hasNext()) {
-          try {
-            Path<Element> path = iterator.next();
-
-            for (Element element : path) {
+        ContextSnapshot snapshot = context.snapshot();
+        try {
+          next:
+          while (iterator.hasNext()) {
+            try {
+              Path<Element> path = iterator.next();
+
+              for (Element element : path) {
+
+                if (element instanceof RuntimeEdge) {
+                  if (!context.isAvailable((RuntimeEdge) element)) {
+                    iterator.remove();
+                    continue next;
+                  }
+                }
 
-              if (element instanceof RuntimeEdge) {
-                if (!context.isAvailable((RuntimeEdge) element)) {
-                  iterator.remove();
-                  continue next;
+                for (Action action : element.getActions()) {
+                  context.execute(action);
                 }
               }
 
-              for (Action action : element.getActions()) {
-                context.execute(action);
-              }
+            } finally {
+              context.rollback(snapshot);
             }
-
-          } finally {
-            Bindings localBindings = context.getScriptEngine().createBindings();
-            localBindings.putAll(globalCopy);
-            ScriptObjectMirror mirror = ScriptUtils.wrap(localBindings);
-            context.getScriptEngine().getBindings(ENGINE_SCOPE).put(NASHORN_GLOBAL, mirror);
           }
+        } finally {
+          context.release(snapshot);
         }
 
         if (paths.size() > 1) {
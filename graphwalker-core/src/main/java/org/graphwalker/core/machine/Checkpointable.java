@@ -0,0 +1,52 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <h1>Checkpointable</h1>
+ * Implemented by path generators and stop conditions that keep a state of their own, so that the state is
+ * carried over when a machine is checkpointed and resumed, see {@link Machine#checkpoint(java.io.OutputStream)}.
+ *
+ * @author Ivan Bonkin
+ */
+public interface Checkpointable {
+
+  /**
+   * Writes the state, elements are written with {@link Checkpoints#writeElement(Context, DataOutput, org.graphwalker.core.model.Element)}.
+   */
+  void checkpoint(Context context, DataOutput output) throws IOException;
+
+  /**
+   * Reads back the state written by {@link #checkpoint(Context, DataOutput)}.
+   */
+  void resume(Context context, DataInput input) throws IOException;
+}
@@ -0,0 +1,119 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.model.Element;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <h1>Checkpoints</h1>
+ * Helpers for writing and reading the binary checkpoint of a machine.
+ * </p>
+ * Elements are written as their position in {@link org.graphwalker.core.model.Model.RuntimeModel#getElements()},
+ * so a checkpoint can only be resumed with contexts built from the same models.
+ *
+ * @author Ivan Bonkin
+ */
+public final class Checkpoints {
+
+  private static final String STATELESS = "";
+
+  private Checkpoints() {
+  }
+
+  public static void writeElement(Context context, DataOutput output, Element element) throws IOException {
+    output.writeInt(null == element ? -1 : indexOf(context.getModel().getElements(), element));
+  }
+
+  public static Element readElement(Context context, DataInput input) throws IOException {
+    int index = input.readInt();
+    if (-1 == index) {
+      return null;
+    }
+    List<Element> elements = context.getModel().getElements();
+    if (index < 0 || index >= elements.size()) {
+      throw new MachineException("The checkpoint does not match the model of the context");
+    }
+    return elements.get(index);
+  }
+
+  public static void writeElements(Context context, DataOutput output, Collection<Element> elements) throws IOException {
+    output.writeInt(elements.size());
+    for (Element element : elements) {
+      writeElement(context, output, element);
+    }
+  }
+
+  public static void readElements(Context context, DataInput input, Collection<Element> elements) throws IOException {
+    elements.clear();
+    for (int count = input.readInt(); count > 0; count--) {
+      elements.add(readElement(context, input));
+    }
+  }
+
+  /**
+   * Writes the state of a path generator or stop condition, prefixed by its type.
+   * Objects that are not {@link Checkpointable} are written as stateless.
+   */
+  public static void writeState(Context context, DataOutput output, Object state) throws IOException {
+    if (state instanceof Checkpointable) {
+      output.writeUTF(state.getClass().getName());
+      ((Checkpointable) state).checkpoint(context, output);
+    } else {
+      output.writeUTF(STATELESS);
+    }
+  }
+
+  /**
+   * Reads the state written by {@link #writeState(Context, DataOutput, Object)} into an object of the same type.
+   */
+  public static void readState(Context context, DataInput input, Object state) throws IOException {
+    String type = input.readUTF();
+    String expectedType = state instanceof Checkpointable ? state.getClass().getName() : STATELESS;
+    if (!expectedType.equals(type)) {
+      throw new MachineException("The checkpoint holds the state of '" + type + "', but '" + expectedType + "' is used");
+    }
+    if (state instanceof Checkpointable) {
+      ((Checkpointable) state).resume(context, input);
+    }
+  }
+
+  private static int indexOf(List<Element> elements, Element element) {
+    for (int i = 0; i < elements.size(); i++) {
+      if (elements.get(i) == element) {
+        return i;
+      }
+    }
+    throw new MachineException("Element " + element + " does not belong to the model of the context");
+  }
+}
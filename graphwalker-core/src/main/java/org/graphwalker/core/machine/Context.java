@@ -31,6 +31,8 @@ import org.graphwalker.core.algorithm.Algorithm;
 import org.graphwalker.core.generator.PathGenerator;
 import org.graphwalker.core.model.*;
 import org.graphwalker.core.statistics.Profiler;
+import org.graphwalker.core.statistics.PhaseTimer;
+import org.graphwalker.core.statistics.SharedCoverage;
 
 import javax.script.ScriptEngine;
 import java.util.Collection;
@@ -59,6 +61,38 @@ public interface Context {
 
   Context setProfiler(Profiler profiler);
 
+  /**
+   * @return the coverage shared with the contexts of other machines, or null if the coverage is not shared
+   */
+  default SharedCoverage getSharedCoverage() {
+    return null;
+  }
+
+  /**
+   * Shares the coverage with the contexts of other machines walking the same model, it should be set before the
+   * execution starts.
+   *
+   * @throws UnsupportedOperationException if the context can not share its coverage
+   */
+  default Context setSharedCoverage(SharedCoverage sharedCoverage) {
+    throw new UnsupportedOperationException(getClass().getName() + " does not share its coverage");
+  }
+
+  /**
+   * @return the timer the guard evaluations of the context are charged to, or null if they are not timed
+   */
+  default PhaseTimer getPhaseTimer() {
+    return null;
+  }
+
+  /**
+   * Sets the timer the guard evaluations of the context are charged to, or null to stop timing them. Contexts
+   * not timing their guard evaluations ignore it.
+   */
+  default Context setPhaseTimer(PhaseTimer phaseTimer) {
+    return this;
+  }
+
   PathGenerator getPathGenerator();
 
   Context setPathGenerator(PathGenerator pathGenerator);
@@ -92,4 +126,27 @@ public interface Context {
   void execute(String methodName, String groupName, List<Argument> arguments);
 
   Map<String, String> getKeys();
+
+  /**
+   * Takes a checkpoint of the variables of the context. The snapshot records changes until it is released.
+   * </p>
+   * By default the global variables of the script engine are copied, an {@link ExecutionContext} only saves
+   * values when they are changed.
+   */
+  default ContextSnapshot snapshot() {
+    return ContextSnapshot.copyOf(getScriptEngine());
+  }
+
+  /**
+   * Restores the variables to the state of the snapshot, the snapshot stays active for further rollbacks.
+   */
+  default void rollback(ContextSnapshot snapshot) {
+    snapshot.restore(getScriptEngine());
+  }
+
+  /**
+   * Stops recording changes for the snapshot, keeping the current state.
+   */
+  default void release(ContextSnapshot snapshot) {
+  }
 }
@@ -0,0 +1,94 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import javax.script.Bindings;
+import javax.script.ScriptEngine;
+import java.util.HashMap;
+import java.util.Map;
+
+import static javax.script.ScriptContext.ENGINE_SCOPE;
+import static org.graphwalker.core.common.Objects.isNotNull;
+
+/**
+ * <h1>ContextSnapshot</h1>
+ * A checkpoint of the variables of a context, see {@link Context#snapshot()}.
+ * </p>
+ * Taking a snapshot copies nothing. Before a variable is changed for the first time, its previous value is
+ * saved, and only when it is not known which variables a script changes, the whole variable state is copied.
+ *
+ * @author Ivan Bonkin
+ */
+public final class ContextSnapshot {
+
+  static final Object ABSENT = new Object();
+  private static final String NASHORN_GLOBAL = "nashorn.global";
+
+  final Map<String, Object> savedValues = new HashMap<>();
+  Map<String, Object> copy;
+
+  ContextSnapshot() {
+  }
+
+  boolean isCopied() {
+    return null != copy;
+  }
+
+  void clear() {
+    savedValues.clear();
+    copy = null;
+  }
+
+  /**
+   * Copies the global variables of a script engine, for contexts not recording their changes themselves.
+   */
+  @SuppressWarnings("unchecked")
+  static ContextSnapshot copyOf(ScriptEngine engine) {
+    ContextSnapshot snapshot = new ContextSnapshot();
+    Bindings bindings = isNotNull(engine) ? engine.getBindings(ENGINE_SCOPE) : null;
+    if (isNotNull(bindings)) {
+      Object global = bindings.get(NASHORN_GLOBAL);
+      snapshot.copy = new HashMap<>(global instanceof Map ? (Map<String, Object>) global : bindings);
+    }
+    return snapshot;
+  }
+
+  void restore(ScriptEngine engine) {
+    if (isCopied() && isNotNull(engine)) {
+      Bindings bindings = engine.getBindings(ENGINE_SCOPE);
+      if (bindings.get(NASHORN_GLOBAL) instanceof Map) {
+        Bindings global = engine.createBindings();
+        global.putAll(copy);
+        bindings.put(NASHORN_GLOBAL, global);
+      } else {
+        bindings.clear();
+        bindings.putAll(copy);
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+
+/**
+ * <h1>DispatchTable</h1>
+ * The DispatchTable maps vertex and edge names to the methods implementing them.
+ * </p>
+ * Public methods of every implementation class are resolved to {@link MethodHandle}s only once per class,
+ * and are bound to the group instances of a context when the table is created. Invoking an element
+ * therefore neither touches reflection nor the script engine.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+final class DispatchTable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DispatchTable.class);
+
+  private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+  private static final Map<Class<?>, Map<Signature, MethodHandle>> HANDLES_BY_CLASS = new ConcurrentHashMap<>();
+
+  private final Map<String, Map<Signature, MethodHandle>> handlesByGroup = new HashMap<>();
+  private final Map<String, Map<String, MethodHandle>> noArgumentHandlesByGroup = new HashMap<>();
+
+  /**
+   * @param groups group implementations by group name, the {@code null} key holds the default implementation
+   */
+  DispatchTable(Map<String, Object> groups) {
+    for (Map.Entry<String, Object> group : groups.entrySet()) {
+      Map<Signature, MethodHandle> boundHandles = new HashMap<>();
+      Map<String, MethodHandle> noArgumentHandles = new HashMap<>();
+      for (Map.Entry<Signature, MethodHandle> entry : getHandles(group.getValue().getClass()).entrySet()) {
+        MethodHandle handle = entry.getValue().bindTo(group.getValue());
+        boundHandles.put(entry.getKey(), handle);
+        if (0 == entry.getKey().parameterTypes.length) {
+          noArgumentHandles.put(entry.getKey().name, handle);
+        }
+      }
+      handlesByGroup.put(group.getKey(), boundHandles);
+      noArgumentHandlesByGroup.put(group.getKey(), noArgumentHandles);
+    }
+  }
+
+  /**
+   * Finds the bound method for the given element name.
+   * </p>
+   * Unknown group names fall back to the default implementation, the same way as the script glue does.
+   *
+   * @return bound handle of type {@code (Object[])Object}, or null if the method is not implemented
+   */
+  MethodHandle find(String groupName, String methodName, Class<?>[] parameterTypes) {
+    if (0 == parameterTypes.length) {
+      // most element methods have no arguments, look them up without creating a signature
+      Map<String, MethodHandle> handles = noArgumentHandlesByGroup.get(groupName);
+      if (null == handles) {
+        handles = noArgumentHandlesByGroup.get(null);
+      }
+      return isNotNull(handles) ? handles.get(methodName) : null;
+    }
+    Map<Signature, MethodHandle> handles = handlesByGroup.get(groupName);
+    if (null == handles) {
+      handles = handlesByGroup.get(null);
+    }
+    return isNotNull(handles) ? handles.get(new Signature(methodName, parameterTypes)) : null;
+  }
+
+  private static Map<Signature, MethodHandle> getHandles(Class<?> clazz) {
+    return HANDLES_BY_CLASS.computeIfAbsent(clazz, DispatchTable::createHandles);
+  }
+
+  private static Map<Signature, MethodHandle> createHandles(Class<?> clazz) {
+    Map<Signature, MethodHandle> handles = new HashMap<>();
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    for (Method method : clazz.getMethods()) {
+      if (Object.class.equals(method.getDeclaringClass()) || Modifier.isStatic(method.getModifiers())) {
+        continue;
+      }
+      try {
+        method.setAccessible(true);
+        MethodHandle handle = lookup.unreflect(method)
+          .asSpreader(Object[].class, method.getParameterCount())
+          .asType(INVOKER_TYPE);
+        handles.put(new Signature(method.getName(), method.getParameterTypes()), handle);
+      } catch (IllegalAccessException | RuntimeException e) {
+        LOG.warn("Can not access method \"{}\" of {}", method.getName(), clazz.getName());
+      }
+    }
+    return Collections.unmodifiableMap(handles);
+  }
+
+  private static final class Signature {
+
+    private final String name;
+    private final Class<?>[] parameterTypes;
+
+    private Signature(String name, Class<?>[] parameterTypes) {
+      this.name = name;
+      this.parameterTypes = parameterTypes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Signature signature = (Signature) o;
+      return name.equals(signature.name) && Arrays.equals(parameterTypes, signature.parameterTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * name.hashCode() + Arrays.hashCode(parameterTypes);
+    }
+  }
+}
@@ -29,21 +29,32 @@ package org.graphwalker.core.machine;
 
 import jdk.internal.dynalink.beans.StaticClass;
 import org.graphwalker.core.algorithm.Algorithm;
+import org.graphwalker.core.expression.Expression;
+import org.graphwalker.core.expression.ExpressionEngine;
+import org.graphwalker.core.expression.ExpressionException;
+import org.graphwalker.core.expression.SimpleExpressionEngine;
+import org.graphwalker.core.expression.UnsupportedExpressionException;
 import org.graphwalker.core.generator.PathGenerator;
 import org.graphwalker.core.model.*;
 import org.graphwalker.core.statistics.Profiler;
+import org.graphwalker.core.statistics.Phase;
+import org.graphwalker.core.statistics.PhaseTimer;
+import org.graphwalker.core.statistics.SharedCoverage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.script.*;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 
-import static java.util.stream.Collectors.joining;
 import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.common.Objects.isNull;
 import static org.graphwalker.core.model.Edge.RuntimeEdge;
 import static org.graphwalker.core.model.Model.RuntimeModel;
 
@@ -61,14 +72,21 @@ import static org.graphwalker.core.model.Model.RuntimeModel;
 public abstract class ExecutionContext extends SimpleScriptContext implements Context {
 
   private static final Logger LOG = LoggerFactory.getLogger(ExecutionContext.class);
+  private static final SimpleExpressionEngine ANALYZER = new SimpleExpressionEngine();
+
+  static final int SCRIPT_CACHE_CAPACITY = 1024;
 
-  private final static String DEFAULT_SCRIPT_LANGUAGE = "JavaScript";
   private static final Class[] NO_PARAMETERS = new Class[0];
+  private static final Object[] NO_ARGUMENTS = new Object[0];
   private ScriptEngine scriptEngine;
+  private ScriptEngine trackedScriptEngine;
+  private final DispatchTable dispatchTable;
 
   private RuntimeModel model;
   private PathGenerator pathGenerator;
   private Profiler profiler;
+  private SharedCoverage sharedCoverage;
+  private PhaseTimer phaseTimer;
   private ExecutionStatus executionStatus = ExecutionStatus.NOT_EXECUTED;
   private Element currentElement;
   private Element nextElement;
@@ -78,12 +96,97 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
 
   private final Map<Requirement, RequirementStatus> requirements = new HashMap<>();
 
+  private final Map<String, CompiledScript> compiledScripts = new ScriptCache<>();
+  private long compiledScriptHits = 0;
+  private long compiledScriptMisses = 0;
+
+  private ExpressionEngine expressionEngine = new SimpleExpressionEngine();
+  private final Map<String, Expression> expressions = new ScriptCache<>();
+  private final Map<String, Object> variables = new Variables();
+  private boolean expressionEngineUsed = false;
+  private boolean scriptEngineRequired = false;
+
   private boolean attributeSet = false;
+  private final List<ContextSnapshot> snapshots = new ArrayList<>(1);
+
+  private AtomicLong sharedStateVersion = new AtomicLong();
+  private final Map<String, Set<String>> scriptWrites = new ScriptCache<>();
+
+  private long stateVersion = 0;
+  private long globalVersion = 0;
+  private final Map<String, Long> variableVersions = new HashMap<>();
+  private final Map<Guard, GuardResult> guardResults = new IdentityHashMap<>();
+  private long guardResultHits = 0;
+  private long guardResultMisses = 0;
+  private long scriptEvaluations = 0;
 
   public boolean wasAttributeSet() {
     return attributeSet;
   }
 
+  /**
+   * Returns the version of the context state.
+   * </p>
+   * The version is increased by every executed action, method and attribute change. A guard is evaluated again
+   * only if one of the variables it reads has changed since its last evaluation, or, if it is not known which
+   * variables the guard reads, if anything has changed in this or in any other context of the same machine.
+   * Constant guards are evaluated only once per model.
+   *
+   * @see RuntimeModel#getReadVariables(Guard)
+   * @see RuntimeModel#isConstant(Guard)
+   */
+  public long getStateVersion() {
+    return stateVersion;
+  }
+
+  /**
+   * Invalidates memoized guard results, needs to be called when the state is changed bypassing the context,
+   * e.g. directly through the script engine.
+   */
+  public void markStateChanged() {
+    stateChanged(null);
+  }
+
+  /**
+   * Shares the version of the state changes that may be seen by all contexts, e.g. executed test methods, with
+   * the other contexts of a machine. Such changes invalidate the memoized guards that are not known to read
+   * only variables of their own context.
+   */
+  void setSharedStateVersion(AtomicLong sharedStateVersion) {
+    this.sharedStateVersion = sharedStateVersion;
+    guardResults.clear();
+  }
+
+  /**
+   * @param variables names of the changed variables, or null if any variable may have changed
+   */
+  private void stateChanged(Set<String> variables) {
+    stateVersion++;
+    if (isNull(variables)) {
+      globalVersion = stateVersion;
+      sharedStateVersion.incrementAndGet();
+    } else {
+      for (String variable : variables) {
+        variableVersions.put(variable, stateVersion);
+      }
+    }
+  }
+
+  public long getGuardResultHits() {
+    return guardResultHits;
+  }
+
+  public long getGuardResultMisses() {
+    return guardResultMisses;
+  }
+
+  /**
+   * Returns the number of guards, actions and scripts evaluated, by the expression engine or the script engine.
+   */
+  public long getScriptEvaluations() {
+    return scriptEvaluations;
+  }
+
   public void resetAttributeSet() {
     attributeSet = false;
   }
@@ -95,17 +198,43 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
   }
 
   public ExecutionContext() {
-    ScriptEngine engine = getEngineByName();
-    engine.setContext(this);
-    StringBuilder script = new StringBuilder("var Callable = Java.type(\"java.util.concurrent.Callable\");");
-    Compilable compiler = (Compilable) engine;
     Map<String, Object> groups = new HashMap<>(groups());
     groups.put(null, this);
+    try {
+      CompiledScript compiledScript = ScriptEnginePool.getPool(getClass()).borrow(() -> createScript(groups));
+      ScriptEngine engine = compiledScript.getEngine();
+      engine.setContext(this);
+      Bindings bindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
+      bindings.put("impl", this);
+      for (Map.Entry<String, Object> group : groups.entrySet()) {
+        if (isNotNull(group.getKey())) {
+          bindings.put(group.getKey(), group.getValue());
+        }
+      }
+      compiledScript.eval(bindings);
+      scriptEngine = engine;
+      trackedScriptEngine = new StateTrackingScriptEngine(engine, () -> {
+        fallbackToScriptEngine();
+        beforeWrite(null);
+        stateChanged(null);
+      }, this::putScriptVariable);
+    } catch (ScriptException e) {
+      LOG.error(e.getMessage());
+      throw new RuntimeException(e);
+    }
+    dispatchTable = new DispatchTable(groups);
+  }
+
+  private String createScript(Map<String, Object> groups) {
+    StringBuilder script = new StringBuilder("var Callable = Java.type(\"java.util.concurrent.Callable\");");
     for (Map.Entry<String, Object> group : groups.entrySet()) {
       String groupName = group.getKey();
       Object groupImpl = group.getValue();
       String bindingName = groupName != null ? groupName : "impl";
       for (Method method : groupImpl.getClass().getMethods()) {
+        if (Object.class.equals(method.getDeclaringClass())) {
+          continue;
+        }
         StringBuilder arguments = new StringBuilder();
         for (int i = 0; i < method.getParameterTypes().length; i++) {
           if (i > 0) {
@@ -127,18 +256,7 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
         }
       }
     }
-    try {
-      CompiledScript compiledScript = compiler.compile(script.toString());
-      Bindings bindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
-      bindings.put("impl", this);
-      groups.remove(null);
-      groups.forEach(bindings::put);
-      compiledScript.eval(bindings);
-      scriptEngine = compiledScript.getEngine();
-    } catch (ScriptException e) {
-      LOG.error(e.getMessage());
-      throw new RuntimeException(e);
-    }
+    return script.toString();
   }
 
   protected Map<String, Object> groups() {
@@ -178,14 +296,6 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
     return groupName != null ? groupName + "$" + methodName : methodName;
   }
 
-  private ScriptEngine getEngineByName() {
-    ScriptEngine engine = new ScriptEngineManager(null).getEngineByName(DEFAULT_SCRIPT_LANGUAGE);
-    if (null == engine) {
-      throw new MachineException("Failed to create ScriptEngine");
-    }
-    return engine;
-  }
-
   public ExecutionContext(Model model, PathGenerator pathGenerator) {
     this(model.build(), pathGenerator);
   }
@@ -196,9 +306,14 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
     setPathGenerator(pathGenerator);
   }
 
+  /**
+   * Gets the script engine of the context. Values put through it invalidate the memoized guards reading them.
+   * Scripts evaluated through it may change any variable, so they invalidate all memoized guard results and
+   * make the context evaluate guards and actions by the script engine from then on.
+   */
   @Override
   public ScriptEngine getScriptEngine() {
-    return scriptEngine;
+    return trackedScriptEngine;
   }
 
   @Override
@@ -209,10 +324,236 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
   @Override
   public Context setModel(RuntimeModel model) {
     this.model = model;
+    guardResults.clear();
+    stateChanged(null);
     addRequirements(model);
+    selectExpressionEngine(model);
     return this;
   }
 
+  public ExpressionEngine getExpressionEngine() {
+    return expressionEngine;
+  }
+
+  /**
+   * Sets the engine used for guards and actions instead of the script engine.
+   * </p>
+   * The expression engine is only used if it can parse every script of the model. Setting it to null makes
+   * the context always use the script engine.
+   */
+  public void setExpressionEngine(ExpressionEngine expressionEngine) {
+    this.expressionEngine = expressionEngine;
+    expressions.clear();
+    stateChanged(null);
+    if (isNull(expressionEngine)) {
+      fallbackToScriptEngine();
+    } else if (isNotNull(model)) {
+      selectExpressionEngine(model);
+    }
+  }
+
+  /**
+   * @return true if guards and actions are currently evaluated by the expression engine
+   */
+  public boolean isExpressionEngineUsed() {
+    return expressionEngineUsed;
+  }
+
+  private void selectExpressionEngine(RuntimeModel model) {
+    if (isNull(expressionEngine) || scriptEngineRequired) {
+      return;
+    }
+    Map<String, Expression> parsedExpressions = new HashMap<>();
+    try {
+      for (Action action : model.getActions()) {
+        parsedExpressions.put(action.getScript(), expressionEngine.parse(action.getScript()));
+      }
+      for (Element element : model.getElements()) {
+        for (Action action : element.getActions()) {
+          parsedExpressions.put(action.getScript(), expressionEngine.parse(action.getScript()));
+        }
+        if (element instanceof RuntimeEdge && ((RuntimeEdge) element).hasGuard()) {
+          Guard guard = ((RuntimeEdge) element).getGuard();
+          parsedExpressions.put(guard.getScript(), expressionEngine.parse(guard.getScript()));
+        }
+      }
+    } catch (UnsupportedExpressionException e) {
+      LOG.debug("Model '{}' is evaluated by the script engine: {}", model.getName(), e.getMessage());
+      fallbackToScriptEngine();
+      return;
+    }
+    expressions.putAll(parsedExpressions);
+    expressionEngineUsed = true;
+  }
+
+  /**
+   * Stops using the expression engine, and moves its variables to the script engine.
+   * </p>
+   * Once called, all guards and actions of the context are evaluated by the script engine.
+   */
+  public void fallbackToScriptEngine() {
+    stateChanged(null);
+    if (expressionEngineUsed) {
+      Map<String, Object> global = getScriptGlobal();
+      for (Map.Entry<String, Object> variable : variables.entrySet()) {
+        if (isNotNull(global)) {
+          global.put(variable.getKey(), variable.getValue());
+        } else {
+          super.setAttribute(variable.getKey(), variable.getValue(), ENGINE_SCOPE);
+        }
+      }
+      variables.clear();
+      for (ContextSnapshot snapshot : snapshots) {
+        // the native variables are gone, so everything the snapshot knows becomes a saved value on top of
+        // a copy of the script state as it is now
+        if (snapshot.isCopied()) {
+          for (Map.Entry<String, Object> copied : snapshot.copy.entrySet()) {
+            snapshot.savedValues.putIfAbsent(copied.getKey(), copied.getValue());
+          }
+        }
+        Map<String, Object> store = isNotNull(global) ? global : getBindings(ENGINE_SCOPE);
+        snapshot.copy = new HashMap<>(store);
+      }
+    }
+    expressionEngineUsed = false;
+    scriptEngineRequired = true;
+  }
+
+  /**
+   * Makes sure the given actions can be executed by the engine currently in use, falling back to the
+   * script engine if the expression engine cannot parse them.
+   */
+  public void prepareActions(Action... actions) {
+    if (expressionEngineUsed) {
+      for (Action action : actions) {
+        if (isNull(getExpression(action.getScript()))) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a shadow context holding a copy of the current variables, see {@link ShadowContext}.
+   * </p>
+   * The state of the script engine can not be copied, so a shadow context is only available while
+   * the expression engine is used.
+   *
+   * @return the shadow context, or null if the context uses the script engine
+   */
+  public ShadowContext shadow() {
+    if (!expressionEngineUsed) {
+      return null;
+    }
+    return new ShadowContext(this, expressionEngine, new HashMap<>(expressions), copyVariables());
+  }
+
+  /**
+   * @return a copy of the variables holding numbers, booleans or strings
+   */
+  Map<String, Object> copyVariables() {
+    Map<String, Object> copy = new HashMap<>();
+    Map<String, Object> global = getScriptGlobal();
+    for (Map.Entry<String, Object> attribute : (isNotNull(global) ? global : getBindings(ENGINE_SCOPE)).entrySet()) {
+      if (isPrimitive(attribute.getValue())) {
+        copy.put(attribute.getKey(), attribute.getValue());
+      }
+    }
+    copy.putAll(variables);
+    return copy;
+  }
+
+  @Override
+  public ContextSnapshot snapshot() {
+    ContextSnapshot snapshot = new ContextSnapshot();
+    snapshots.add(snapshot);
+    return snapshot;
+  }
+
+  @Override
+  public void rollback(ContextSnapshot snapshot) {
+    if (!snapshots.contains(snapshot)) {
+      throw new MachineException(this, new IllegalStateException("The snapshot is not active"));
+    }
+    if (snapshot.isCopied()) {
+      if (expressionEngineUsed || isNull(getScriptGlobal())) {
+        Map<String, Object> store = getVariableStore();
+        store.clear();
+        store.putAll(snapshot.copy);
+      } else {
+        Bindings global = scriptEngine.createBindings();
+        global.putAll(snapshot.copy);
+        getBindings(ENGINE_SCOPE).put("nashorn.global", global);
+      }
+    }
+    // values saved before the copy was taken are older than the copy itself
+    Map<String, Object> store = getVariableStore();
+    for (Map.Entry<String, Object> savedValue : snapshot.savedValues.entrySet()) {
+      if (ContextSnapshot.ABSENT == savedValue.getValue()) {
+        store.remove(savedValue.getKey());
+      } else {
+        store.put(savedValue.getKey(), savedValue.getValue());
+      }
+    }
+    if (snapshot.isCopied()) {
+      stateChanged(null);
+    } else if (!snapshot.savedValues.isEmpty()) {
+      stateChanged(snapshot.savedValues.keySet());
+    }
+    snapshot.clear();
+  }
+
+  @Override
+  public void release(ContextSnapshot snapshot) {
+    snapshots.remove(snapshot);
+  }
+
+  /**
+   * Saves the values about to be changed into the active snapshots.
+   *
+   * @param variables names of the variables to be written, or null if any variable may be written
+   */
+  private void beforeWrite(Set<String> variables) {
+    if (snapshots.isEmpty()) {
+      return;
+    }
+    Map<String, Object> store = getVariableStore();
+    for (ContextSnapshot snapshot : snapshots) {
+      if (snapshot.isCopied()) {
+        continue;
+      }
+      if (isNull(variables)) {
+        snapshot.copy = new HashMap<>(store);
+        continue;
+      }
+      for (String variable : variables) {
+        if (!snapshot.savedValues.containsKey(variable)) {
+          if (isOwnVariable(store, variable)) {
+            snapshot.savedValues.put(variable, store.get(variable));
+          } else if (expressionEngineUsed) {
+            snapshot.savedValues.put(variable, ContextSnapshot.ABSENT);
+          } else {
+            // a new script variable can not be reliably deleted again, the whole state is restored instead
+            snapshot.copy = new HashMap<>(store);
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  private Map<String, Object> getVariableStore() {
+    if (expressionEngineUsed) {
+      return variables;
+    }
+    Map<String, Object> global = getScriptGlobal();
+    return isNotNull(global) ? global : getBindings(ENGINE_SCOPE);
+  }
+
+  private boolean isOwnVariable(Map<String, Object> store, String name) {
+    return store instanceof Variables ? ((Variables) store).containsOwnKey(name) : store.containsKey(name);
+  }
+
   private void addRequirements(RuntimeModel model) {
     requirements.clear();
     for (Requirement requirement : model.getRequirements()) {
@@ -237,6 +578,28 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
     return this;
   }
 
+  @Override
+  public SharedCoverage getSharedCoverage() {
+    return sharedCoverage;
+  }
+
+  @Override
+  public Context setSharedCoverage(SharedCoverage sharedCoverage) {
+    this.sharedCoverage = sharedCoverage;
+    return this;
+  }
+
+  @Override
+  public PhaseTimer getPhaseTimer() {
+    return phaseTimer;
+  }
+
+  @Override
+  public Context setPhaseTimer(PhaseTimer phaseTimer) {
+    this.phaseTimer = phaseTimer;
+    return this;
+  }
+
   @Override
   public PathGenerator getPathGenerator() {
     return pathGenerator;
@@ -335,86 +698,272 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
     return (A) algorithms.get(clazz);
   }
 
+  /**
+   * {@inheritDoc}
+   * </p>
+   * If every element is available and a list was given, that list itself is returned, so the result must not
+   * be modified.
+   */
+  @SuppressWarnings("unchecked")
   @Override
   public <E> List<E> filter(Collection<E> elements) {
-    List<E> filteredElements = new ArrayList<>();
-    if (isNotNull(elements)) {
+    if (isNull(elements)) {
+      return new ArrayList<>();
+    }
+    if (!(elements instanceof List && elements instanceof RandomAccess)) {
+      List<E> filteredElements = new ArrayList<>();
       for (E element : elements) {
-        if (element instanceof RuntimeEdge) {
-          RuntimeEdge edge = (RuntimeEdge) element;
-          if (isAvailable(edge)) {
-            filteredElements.add(element);
-          }
-        } else {
+        if (!(element instanceof RuntimeEdge) || isAvailable((RuntimeEdge) element)) {
+          filteredElements.add(element);
+        }
+      }
+      return filteredElements;
+    }
+    List<E> list = (List<E>) elements;
+    List<E> filteredElements = null;
+    for (int i = 0; i < list.size(); i++) {
+      E element = list.get(i);
+      boolean available = !(element instanceof RuntimeEdge) || isAvailable((RuntimeEdge) element);
+      if (isNotNull(filteredElements)) {
+        if (available) {
           filteredElements.add(element);
         }
+      } else if (!available) {
+        filteredElements = new ArrayList<>(list.subList(0, i));
       }
     }
-    return filteredElements;
+    return isNotNull(filteredElements) ? filteredElements : list;
   }
 
   @Override
   public boolean isAvailable(RuntimeEdge edge) {
     if (edge.hasGuard()) {
-      LOG.debug("Execute: '{}' in model: '{}'", edge.getGuard().getScript(), getModel().getName());
+      Guard guard = edge.getGuard();
+      GuardResult result = guardResults.get(guard);
+      if (isNull(result)) {
+        result = new GuardResult(getModel().getReadVariables(guard), getModel().isConstant(guard));
+        guardResults.put(guard, result);
+      } else if (isValid(result)) {
+        guardResultHits++;
+        return result.value;
+      }
+      guardResultMisses++;
+      boolean value;
+      if (isNotNull(phaseTimer)) {
+        phaseTimer.start(Phase.GUARDS);
+        try {
+          value = evaluate(guard);
+        } finally {
+          phaseTimer.stop();
+        }
+      } else {
+        value = evaluate(guard);
+      }
+      result.version = stateVersion;
+      result.sharedVersion = sharedStateVersion.get();
+      result.value = value;
+      return value;
+    }
+    return true;
+  }
+
+  private boolean isValid(GuardResult result) {
+    if (result.version < 0) {
+      return false;
+    }
+    if (result.constant) {
+      return true;
+    }
+    if (isNull(result.reads)) {
+      return result.version == stateVersion && result.sharedVersion == sharedStateVersion.get();
+    }
+    if (result.version < globalVersion) {
+      return false;
+    }
+    for (String variable : result.reads) {
+      Long version = variableVersions.get(variable);
+      if (isNotNull(version) && result.version < version) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean evaluate(Guard guard) {
+    LOG.debug("Execute: '{}' in model: '{}'", guard.getScript(), getModel().getName());
+    scriptEvaluations++;
+    Expression expression = getExpression(guard.getScript());
+    if (isNotNull(expression)) {
       try {
-        return (Boolean) getScriptEngine().eval(edge.getGuard().getScript());
-      } catch (ScriptException e) {
+        return (Boolean) expression.evaluate(variables);
+      } catch (ExpressionException e) {
         LOG.error(e.getMessage());
         throw new MachineException(this, e);
       }
     }
-    return true;
+    try {
+      return (Boolean) getCompiledScript(guard.getScript()).eval();
+    } catch (ScriptException e) {
+      LOG.error(e.getMessage());
+      throw new MachineException(this, e);
+    }
   }
 
   @Override
   public void execute(Action action) {
     LOG.debug("Execute: '{}' in model: '{}'", action.getScript(), getModel().getName());
+    Set<String> writes = getModel().getWrittenVariables(action);
+    beforeWrite(writes);
+    stateChanged(writes);
+    scriptEvaluations++;
+    Expression expression = getExpression(action.getScript());
+    if (isNotNull(expression)) {
+      try {
+        expression.evaluate(variables);
+        return;
+      } catch (ExpressionException e) {
+        LOG.error(e.getMessage());
+        throw new MachineException(this, e);
+      }
+    }
     try {
-      getScriptEngine().eval(action.getScript());
+      getCompiledScript(action.getScript()).eval();
     } catch (ScriptException e) {
       LOG.error(e.getMessage());
       throw new MachineException(this, e);
     }
   }
 
+  /**
+   * Evaluates a script with the engine currently in use.
+   *
+   * @param script script to evaluate
+   * @return value of the script
+   */
+  public Object evaluate(String script) throws ScriptException {
+    Set<String> writes = getWrittenVariables(script);
+    if (isNull(writes) || !writes.isEmpty()) {
+      beforeWrite(writes);
+      stateChanged(writes);
+    }
+    scriptEvaluations++;
+    Expression expression = getExpression(script);
+    if (isNotNull(expression)) {
+      try {
+        return expression.evaluate(variables);
+      } catch (ExpressionException e) {
+        throw new ScriptException(e.getMessage());
+      }
+    }
+    return getCompiledScript(script).eval();
+  }
+
+  /**
+   * @return the variables written by an ad-hoc script, or null if the script could write anything
+   */
+  private Set<String> getWrittenVariables(String script) {
+    if (!scriptWrites.containsKey(script)) {
+      Set<String> writes;
+      try {
+        writes = ANALYZER.analyze(script).getWrites();
+      } catch (UnsupportedExpressionException e) {
+        writes = null;
+      }
+      scriptWrites.put(script, writes);
+    }
+    return scriptWrites.get(script);
+  }
+
+  /**
+   * Returns the parsed form of a guard or action script, or null if the script engine is to be used.
+   * </p>
+   * A script that the expression engine can not parse makes the context fall back to the script engine.
+   */
+  private Expression getExpression(String script) {
+    if (!expressionEngineUsed) {
+      return null;
+    }
+    Expression expression = expressions.get(script);
+    if (isNull(expression)) {
+      try {
+        expression = expressionEngine.parse(script);
+        expressions.put(script, expression);
+      } catch (UnsupportedExpressionException e) {
+        LOG.debug("Falling back to the script engine: {}", e.getMessage());
+        fallbackToScriptEngine();
+      }
+    }
+    return expression;
+  }
+
+  /**
+   * Returns the compiled form of a guard or action script, compiling it on first use.
+   * </p>
+   * Compiled scripts are cached by their text, so the same script is parsed only once per context, no matter
+   * how many times it is evaluated, as long as it is not evicted as one of the least recently used.
+   */
+  private CompiledScript getCompiledScript(String script) throws ScriptException {
+    CompiledScript compiledScript = compiledScripts.get(script);
+    if (isNotNull(compiledScript)) {
+      compiledScriptHits++;
+    } else {
+      compiledScriptMisses++;
+      compiledScript = ((Compilable) scriptEngine).compile(script);
+      compiledScripts.put(script, compiledScript);
+    }
+    return compiledScript;
+  }
+
+  public long getCompiledScriptHits() {
+    return compiledScriptHits;
+  }
+
+  public long getCompiledScriptMisses() {
+    return compiledScriptMisses;
+  }
+
   @Override
   public void execute(String methodName, String groupName, List<Argument> arguments) {
     LOG.debug("Execute: '{}' in model: '{}'", methodName, getModel().getName());
+    Class[] parameterTypes = NO_PARAMETERS;
+    Object[] values = NO_ARGUMENTS;
+    if (isNotNull(arguments) && !arguments.isEmpty()) {
+      parameterTypes = new Class[arguments.size()];
+      values = new Object[arguments.size()];
+      for (int i = 0; i < arguments.size(); i++) {
+        parameterTypes[i] = arguments.get(i).getType().getTypeClass();
+        values[i] = arguments.get(i).getTypedValue();
+      }
+    }
+    MethodHandle method = dispatchTable.find(groupName, methodName, parameterTypes);
+    if (isNull(method)) {
+      // ignore, method is not defined in the execution context
+      return;
+    }
+    stateVersion++;
+    sharedStateVersion.incrementAndGet();
     try {
-      Object impl = this;
-      String functionName = methodName;
-      boolean groupNameInGroups = false;
-      if (groups().containsKey(groupName)) {
-        functionName = getFunctionName(methodName, groupName);
-        impl = groups().get(groupName);
-        groupNameInGroups = true;
-      }
-      // provoke a NoSuchMethodException exception if the method doesn't exist
-      Class[] parameterTypes = arguments != null
-        ? arguments.stream().map(arg -> arg.getType().getTypeClass()).toArray(Class[]::new)
-        : NO_PARAMETERS;
-      impl.getClass().getMethod(methodName, parameterTypes);
-      String commaSeparatedValues = arguments != null
-        ? arguments.stream().map(Argument::getQuotedValue).collect(joining(",", "(", ")"))
-        : "()";
-      if (methodName.startsWith("v_") && parameterTypes.length > 0) {
-        if (groupNameInGroups) {
-          getScriptEngine().eval(groupName + "." + methodName + commaSeparatedValues);
-        } else {
-          getScriptEngine().eval("impl" + "." + functionName + commaSeparatedValues);
-        }
+      if (methodName.startsWith("v_") && 0 == parameterTypes.length) {
+        wait(() -> (Boolean) invoke(method, NO_ARGUMENTS));
       } else {
-        getScriptEngine().eval(functionName + commaSeparatedValues);
+        invoke(method, values);
       }
-    } catch (NoSuchMethodException e) {
-      // ignore, method is not defined in the execution context
     } catch (Throwable t) {
       LOG.error(t.getMessage());
       throw new MachineException(this, t);
     }
   }
 
+  private static Object invoke(MethodHandle method, Object[] arguments) throws Exception {
+    try {
+      return method.invokeExact(arguments);
+    } catch (Exception | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new UndeclaredThrowableException(t);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public Map<String, String> getKeys() {
@@ -425,8 +974,8 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
         methods.add(method.getName());
       }
     }
-    if (getBindings(ENGINE_SCOPE).containsKey("nashorn.global")) {
-      Map<String, Object> global = (Map<String, Object>) getBindings(ENGINE_SCOPE).get("nashorn.global");
+    Map<String, Object> global = getScriptGlobal();
+    if (isNotNull(global)) {
       for (String key : global.keySet()) {
         if (isVariable(key, methods)) {
           if (global.get(key) instanceof Double) {
@@ -448,31 +997,128 @@ public abstract class ExecutionContext extends SimpleScriptContext implements Co
         }
       }
     }
+    if (expressionEngineUsed) {
+      for (Map.Entry<String, Object> variable : variables.entrySet()) {
+        if (variable.getValue() instanceof Double) {
+          keys.put(variable.getKey(), Long.toString(Math.round((double) variable.getValue())));
+        } else {
+          keys.put(variable.getKey(), String.valueOf(variable.getValue()));
+        }
+      }
+    }
     return keys;
   }
 
-  @SuppressWarnings("unchecked")
   @Override
   public Object getAttribute(String name) {
-    if (getBindings(ENGINE_SCOPE).containsKey("nashorn.global")) {
-      Map<String, Object> attributes = (Map<String, Object>) getBindings(ENGINE_SCOPE).get("nashorn.global");
-      return attributes.get(name);
-    } else {
-      return super.getAttribute(name);
+    if (expressionEngineUsed) {
+      return variables.get(name);
     }
+    return getScriptAttribute(name);
   }
 
-  @SuppressWarnings("unchecked")
   public void setAttribute(String name, Object value) {
-    if (getBindings(ENGINE_SCOPE).containsKey("nashorn.global")) {
-      Map<String, Object> attributes = (Map<String, Object>) getBindings(ENGINE_SCOPE).get("nashorn.global");
-      attributes.put(name, value);
+    Set<String> writes = Collections.singleton(name);
+    beforeWrite(writes);
+    stateChanged(writes);
+    if (expressionEngineUsed) {
+      variables.put(name, value);
       attributeSet = true;
     } else {
-      super.setAttribute(name, value, ENGINE_SCOPE);
+      Map<String, Object> global = getScriptGlobal();
+      if (isNotNull(global)) {
+        global.put(name, value);
+        attributeSet = true;
+      } else {
+        super.setAttribute(name, value, ENGINE_SCOPE);
+      }
     }
   }
 
+  private void putScriptVariable(String name, Object value) {
+    Set<String> writes = Collections.singleton(name);
+    beforeWrite(writes);
+    stateChanged(writes);
+    if (expressionEngineUsed && ((Variables) variables).containsOwnKey(name)) {
+      variables.put(name, value);
+    } else {
+      scriptEngine.put(name, value);
+    }
+  }
+
+  private Object getScriptAttribute(String name) {
+    Map<String, Object> global = getScriptGlobal();
+    return isNotNull(global) ? global.get(name) : super.getAttribute(name);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> getScriptGlobal() {
+    Bindings bindings = getBindings(ENGINE_SCOPE);
+    return isNotNull(bindings) ? (Map<String, Object>) bindings.get("nashorn.global") : null;
+  }
+
+  /**
+   * Parsed scripts keyed by their text. The least recently used are evicted, so that ad-hoc scripts, e.g. sent
+   * one by one to a long-running service, do not pile up.
+   */
+  private static final class ScriptCache<V> extends LinkedHashMap<String, V> {
+
+    private ScriptCache() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+      return size() > SCRIPT_CACHE_CAPACITY;
+    }
+  }
+
+  private static final class GuardResult {
+
+    private final Set<String> reads;
+    private final boolean constant;
+    private long version = -1;
+    private long sharedVersion;
+    private boolean value;
+
+    private GuardResult(Set<String> reads, boolean constant) {
+      this.reads = reads;
+      this.constant = constant;
+    }
+  }
+
+  /**
+   * Variable store of the expression engine.
+   * </p>
+   * Variables that are not assigned by any expression are looked up in the script engine, so that
+   * primitive values put into the script engine by the context itself stay visible to guards and actions.
+   */
+  private final class Variables extends HashMap<String, Object> {
+
+    @Override
+    public boolean containsKey(Object key) {
+      return super.containsKey(key) || isPrimitive(getScriptAttribute((String) key));
+    }
+
+    @Override
+    public Object get(Object key) {
+      if (super.containsKey(key)) {
+        return super.get(key);
+      }
+      Object value = getScriptAttribute((String) key);
+      return isPrimitive(value) ? value : null;
+    }
+
+    private boolean containsOwnKey(String key) {
+      return super.containsKey(key);
+    }
+
+  }
+
+  private static boolean isPrimitive(Object value) {
+    return value instanceof Number || value instanceof Boolean || value instanceof String;
+  }
+
   private boolean isVariable(String key, List<String> methods) {
     return !"impl".equals(key) && !methods.contains(key) && !"print".equals(key) && !"println".equals(key);
   }
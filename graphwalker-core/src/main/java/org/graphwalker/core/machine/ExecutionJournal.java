@@ -0,0 +1,263 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.event.EventType;
+import org.graphwalker.core.event.Observer;
+import org.graphwalker.core.model.Element;
+import org.graphwalker.core.statistics.Execution;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import static org.graphwalker.core.common.Objects.isNull;
+
+/**
+ * <h1>ExecutionJournal</h1>
+ * The ExecutionJournal appends every execution of a machine to a binary file, which can be replayed by
+ * {@link ReplayMachine#ReplayMachine(File, List)} without keeping the executions in memory.
+ * </p>
+ * The journal is added to a machine as an observer. The file starts with a header naming the models of the
+ * contexts, followed by one fixed size record per execution: the index of the context, the index of the element
+ * in its model, the start time and the duration in nanoseconds. As all records have the same size, a step can be
+ * read without reading the steps before it.
+ * </p>
+ * The executions are timed by the journal itself, from the {@link EventType#BEFORE_ELEMENT} to the
+ * {@link EventType#AFTER_ELEMENT} event, so it does not depend on the execution path kept by the profiler. The
+ * records are buffered and flushed at least every second, so a crashed run loses at most its last second.
+ *
+ * @author Ivan Bonkin
+ */
+public class ExecutionJournal implements Observer, Closeable {
+
+  static final int MAGIC = 0x47574A4C;
+  static final int VERSION = 1;
+  static final int RECORD_SIZE = 24;
+
+  private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+  private final DataOutputStream output;
+  private Map<Context, Integer> contextIndices;
+  private List<Map<Element, Integer>> elementIndices;
+  private long size = 0;
+  private int context = -1;
+  private int element = -1;
+  private long startTime = 0;
+  private long flushTime = System.nanoTime();
+
+  public ExecutionJournal(File file) throws IOException {
+    this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+  }
+
+  @Override
+  public void update(Machine machine, Element element, EventType type) {
+    try {
+      if (EventType.BEFORE_ELEMENT == type) {
+        start(machine, element);
+      } else if (EventType.AFTER_ELEMENT == type && -1 != context) {
+        write(System.nanoTime());
+      }
+    } catch (IOException e) {
+      throw new MachineException(machine.getCurrentContext(), e);
+    }
+  }
+
+  private void start(Machine machine, Element element) throws IOException {
+    if (isNull(contextIndices)) {
+      writeHeader(machine.getContexts());
+    }
+    Integer index = contextIndices.get(machine.getCurrentContext());
+    if (isNull(index)) {
+      throw new MachineException("The context was added to the machine after the journal was started");
+    }
+    Integer elementIndex = elementIndices.get(index).get(element);
+    if (isNull(elementIndex)) {
+      throw new MachineException("Element " + element + " does not belong to the model of the context");
+    }
+    context = index;
+    this.element = elementIndex;
+    startTime = System.nanoTime();
+  }
+
+  private void write(long stopTime) throws IOException {
+    output.writeInt(context);
+    output.writeInt(element);
+    output.writeLong(startTime);
+    output.writeLong(stopTime - startTime);
+    context = -1;
+    size++;
+    if (stopTime - flushTime >= FLUSH_INTERVAL) {
+      output.flush();
+      flushTime = stopTime;
+    }
+  }
+
+  private void writeHeader(List<Context> contexts) throws IOException {
+    contextIndices = new IdentityHashMap<>();
+    elementIndices = new ArrayList<>();
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeInt(contexts.size());
+    for (Context context : contexts) {
+      output.writeUTF(String.valueOf(context.getModel().getName()));
+      Map<Element, Integer> elements = new IdentityHashMap<>();
+      for (Element element : context.getModel().getElements()) {
+        elements.put(element, elements.size());
+      }
+      contextIndices.put(context, contextIndices.size());
+      elementIndices.add(elements);
+    }
+  }
+
+  /**
+   * @return number of executions written
+   */
+  public long size() {
+    return size;
+  }
+
+  public void flush() throws IOException {
+    output.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    output.close();
+  }
+
+  /**
+   * Reads the executions of a journal lazily, resolving them against the given contexts.
+   * </p>
+   * A partly written last record, e.g. of a crashed run, is ignored.
+   */
+  static final class Reader implements Iterator<Execution>, Closeable {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final List<Context> contexts;
+    private final long headerSize;
+    private final long size;
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+    private long position = 0;
+
+    Reader(File journal, List<Context> contexts) throws IOException {
+      this.file = new RandomAccessFile(journal, "r");
+      this.channel = file.getChannel();
+      this.contexts = contexts;
+      try {
+        if (MAGIC != file.readInt()) {
+          throw new MachineException("The file " + journal + " is not an execution journal");
+        }
+        int version = file.readInt();
+        if (VERSION != version) {
+          throw new MachineException("Unsupported execution journal version: " + version);
+        }
+        int contextCount = file.readInt();
+        if (contextCount != contexts.size()) {
+          throw new MachineException("The journal holds " + contextCount + " contexts, but " + contexts.size() + " are given");
+        }
+        for (Context context : contexts) {
+          String modelName = file.readUTF();
+          if (!modelName.equals(String.valueOf(context.getModel().getName()))) {
+            throw new MachineException("The journal of model '" + modelName + "' does not match model '" + context.getModel().getName() + "'");
+          }
+        }
+        this.headerSize = file.getFilePointer();
+        this.size = (file.length() - headerSize) / RECORD_SIZE;
+      } catch (IOException | RuntimeException e) {
+        file.close();
+        throw e;
+      }
+      seek(0);
+    }
+
+    long size() {
+      return size;
+    }
+
+    long position() {
+      return position;
+    }
+
+    void seek(long step) throws IOException {
+      if (step < 0 || step > size) {
+        throw new MachineException("Step " + step + " is out of the journal of " + size + " steps");
+      }
+      channel.position(headerSize + step * RECORD_SIZE);
+      buffer.clear().limit(0);
+      position = step;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return position < size;
+    }
+
+    @Override
+    public Execution next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      try {
+        if (buffer.remaining() < RECORD_SIZE) {
+          buffer.compact();
+          while (buffer.position() < RECORD_SIZE && -1 != channel.read(buffer)) {
+            // read at least one record
+          }
+          buffer.flip();
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      Context context = contexts.get(buffer.getInt());
+      Element element = context.getModel().getElements().get(buffer.getInt());
+      position++;
+      return new Execution(context, element, buffer.getLong(), buffer.getLong());
+    }
+
+    @Override
+    public void close() throws IOException {
+      file.close();
+    }
+  }
+}
@@ -28,9 +28,15 @@ package org.graphwalker.core.machine;
  */
 
 import org.graphwalker.core.event.Observable;
+import org.graphwalker.core.statistics.PhaseTimer;
 import org.graphwalker.core.statistics.Profiler;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Nils Olsson
@@ -41,6 +47,30 @@ public interface Machine extends Observable {
 
   boolean hasNextStep();
 
+  /**
+   * Takes up to {@code max} steps, stopping early when the machine has no more steps.
+   *
+   * @param max the maximum number of steps to take
+   * @return records of the steps taken, empty if the machine had no more steps
+   */
+  default List<Step> getNextSteps(int max) {
+    List<Step> steps = new ArrayList<>();
+    while (steps.size() < max && hasNextStep()) {
+      steps.add(Step.of(this, getNextStep()));
+    }
+    return steps;
+  }
+
+  /**
+   * Returns a sequential stream taking the steps of the machine lazily, in batches of {@code batchSize}.
+   *
+   * @param batchSize the number of steps taken at a time
+   * @return a stream of the steps, which ends when the machine has no more steps
+   */
+  default Stream<Step> stream(int batchSize) {
+    return StreamSupport.stream(new StepSpliterator(this, batchSize), false);
+  }
+
   List<Context> getContexts();
 
   Context getCurrentContext();
@@ -50,4 +80,22 @@ public interface Machine extends Observable {
   void setExceptionStrategy(ExceptionStrategy exceptionStrategy);
 
   Profiler getProfiler();
+
+  /**
+   * @return the timer breaking the steps down into phases, or null if the machine is not instrumented
+   */
+  default PhaseTimer getPhaseTimer() {
+    return null;
+  }
+
+  /**
+   * Writes the state of the machine and its contexts, so that the execution can be continued later on.
+   *
+   * @param output the stream to write to, it is not closed
+   * @throws UnsupportedOperationException if the machine can not be checkpointed
+   * @see SimpleMachine#resume(java.io.InputStream, java.util.Collection)
+   */
+  default void checkpoint(OutputStream output) throws IOException {
+    throw new UnsupportedOperationException(getClass().getName() + " can not be checkpointed");
+  }
 }
@@ -27,16 +27,22 @@ package org.graphwalker.core.machine;
  * #L%
  */
 
+import org.graphwalker.core.event.AsyncEventBus;
+import org.graphwalker.core.event.BatchObserver;
 import org.graphwalker.core.event.EventType;
 import org.graphwalker.core.event.Observer;
 import org.graphwalker.core.model.Element;
+import org.graphwalker.core.statistics.Phase;
+import org.graphwalker.core.statistics.PhaseTimer;
 import org.graphwalker.core.statistics.Profiler;
 import org.graphwalker.core.statistics.SimpleProfiler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.common.Objects.isNull;
 
 /**
  * <h1>MachineBase</h1>
@@ -47,14 +53,20 @@ import static org.graphwalker.core.common.Objects.isNotNull;
  *
  * @author Nils Olsson
  */
-public abstract class MachineBase implements Machine {
+public abstract class MachineBase implements Machine, AutoCloseable {
+
+  private static final int MAX_INITIAL_BATCH_CAPACITY = 1024;
 
   private final List<Context> contexts = new ArrayList<>();
   private final List<Observer> observers = new ArrayList<>();
-  private final Profiler profiler = new SimpleProfiler();
+  private Profiler profiler = new SimpleProfiler();
+
+  private AsyncEventBus eventBus;
+  private PhaseTimer phaseTimer;
 
   private ExceptionStrategy exceptionStrategy = new FailFastStrategy();
   private Context currentContext;
+  private boolean batching = false;
 
   @Override
   public List<Context> getContexts() {
@@ -73,21 +85,124 @@ public abstract class MachineBase implements Machine {
     }
   }
 
+  @Override
+  public void addAsyncObserver(Observer observer) {
+    if (isNotNull(observer)) {
+      getEventBus().subscribe(observer);
+    }
+  }
+
+  /**
+   * Gets the bus notifying the asynchronous observers, a bus with default settings is created on first use.
+   */
+  public AsyncEventBus getEventBus() {
+    if (isNull(eventBus)) {
+      eventBus = new AsyncEventBus();
+    }
+    return eventBus;
+  }
+
+  public boolean hasEventBus() {
+    return isNotNull(eventBus);
+  }
+
+  /**
+   * Replaces the bus notifying the asynchronous observers, they are moved to the new bus and the old one is
+   * closed after delivering its pending events.
+   */
+  public void setEventBus(AsyncEventBus eventBus) {
+    AsyncEventBus previous = this.eventBus;
+    this.eventBus = eventBus;
+    if (isNotNull(previous) && previous != eventBus) {
+      previous.close();
+      for (Observer observer : previous.getObservers()) {
+        eventBus.subscribe(observer);
+      }
+    }
+  }
+
   @Override
   public void notifyObservers(Element element, EventType type) {
-    for (Observer observer : observers) {
-      observer.update(this, element, type);
+    if (isNotNull(phaseTimer)) {
+      phaseTimer.start(Phase.OBSERVERS);
+    }
+    try {
+      for (Observer observer : observers) {
+        if (!batching || !(observer instanceof BatchObserver)) {
+          observer.update(this, element, type);
+        }
+      }
+      if (isNotNull(eventBus) && eventBus.hasObservers()) {
+        eventBus.publish(this, element, type);
+      }
+    } finally {
+      if (isNotNull(phaseTimer)) {
+        phaseTimer.stop();
+      }
     }
   }
 
   @Override
   public void deleteObserver(Observer observer) {
     observers.remove(observer);
+    if (isNotNull(eventBus)) {
+      eventBus.unsubscribe(observer);
+    }
   }
 
   @Override
   public void deleteObservers() {
     observers.clear();
+    if (isNotNull(eventBus)) {
+      eventBus.getObservers().clear();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * </p>
+   * A {@link BatchObserver} is notified once with all steps of the batch, instead of before and after each of them.
+   */
+  @Override
+  public List<Step> getNextSteps(int max) {
+    List<Step> steps = new ArrayList<>(Math.min(max, MAX_INITIAL_BATCH_CAPACITY));
+    batching = true;
+    try {
+      while (steps.size() < max && hasNextStep()) {
+        steps.add(Step.of(this, getNextStep()));
+      }
+    } finally {
+      batching = false;
+      if (!steps.isEmpty()) {
+        notifyBatchObservers(steps);
+      }
+    }
+    return steps;
+  }
+
+  /**
+   * @return true while the machine is taking the steps of a {@link #getNextSteps(int)} batch
+   */
+  protected boolean isBatching() {
+    return batching;
+  }
+
+  private void notifyBatchObservers(List<Step> steps) {
+    if (isNotNull(phaseTimer)) {
+      phaseTimer.start(Phase.OBSERVERS);
+    }
+    try {
+      List<Step> batch = Collections.unmodifiableList(steps);
+      for (Observer observer : observers) {
+        if (observer instanceof BatchObserver) {
+          ((BatchObserver) observer).updateBatch(this, batch);
+        }
+      }
+    } finally {
+      if (isNotNull(phaseTimer)) {
+        phaseTimer.stop();
+      }
+    }
   }
 
   @Override
@@ -95,6 +210,33 @@ public abstract class MachineBase implements Machine {
     return profiler;
   }
 
+  /**
+   * Replaces the profiler of the machine and of its contexts, e.g. with an {@link org.graphwalker.core.statistics.IndexedProfiler}. The statistics
+   * of the replaced profiler are not carried over, so the profiler should be chosen before the execution starts.
+   */
+  public void setProfiler(Profiler profiler) {
+    this.profiler = profiler;
+    for (Context context : contexts) {
+      context.setProfiler(profiler);
+    }
+  }
+
+  @Override
+  public PhaseTimer getPhaseTimer() {
+    return phaseTimer;
+  }
+
+  /**
+   * Instruments the machine and its contexts with a timer breaking each step down into phases, or removes the
+   * instrumentation when null is given.
+   */
+  public void setPhaseTimer(PhaseTimer phaseTimer) {
+    this.phaseTimer = phaseTimer;
+    for (Context context : contexts) {
+      context.setPhaseTimer(phaseTimer);
+    }
+  }
+
   @Override
   public Context getCurrentContext() {
     return currentContext;
@@ -114,4 +256,16 @@ public abstract class MachineBase implements Machine {
     this.exceptionStrategy = exceptionStrategy;
   }
 
+  /**
+   * Closes the bus notifying the asynchronous observers, if one was created, after delivering its pending events.
+   * A machine that is no longer used should be closed, so that the thread of the bus is stopped.
+   */
+  @Override
+  public void close() {
+    if (isNotNull(eventBus)) {
+      eventBus.close();
+      eventBus = null;
+    }
+  }
+
 }
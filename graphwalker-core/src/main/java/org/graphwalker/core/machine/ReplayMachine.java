@@ -32,12 +32,17 @@ import org.graphwalker.core.statistics.Profiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static org.graphwalker.core.common.Objects.isNotNull;
+
 /**
  * <h1>ReplayMachine</h1>
  * ReplayMachine can re-run an previous executed path..
@@ -48,6 +53,13 @@ import java.util.stream.Collectors;
  * If the last element of the execution is an edge, the ReplayMachine will execute the target
  * vertex as well.
  * </p>
+ * The execution path of the Profiler has to hold every execution, so a path truncated by a
+ * {@link org.graphwalker.core.statistics.RingExecutionPath}, or one missing the executions restored from a
+ * checkpoint, is refused rather than replayed from the middle.
+ * </p>
+ * Instead of a Profiler, the ReplayMachine can also read the execution from an {@link ExecutionJournal}.
+ * The journal is read lazily, so even very long executions are replayed without holding them in memory.
+ * </p>
  * A typical use case could be a test that encountered a failure, and now you
  * want to execute that test and see iff it can reproduce that failure.
  *
@@ -57,19 +69,44 @@ public class ReplayMachine extends SimpleMachine {
 
   private static final Logger LOG = LoggerFactory.getLogger(ReplayMachine.class);
 
-  private final Profiler profiler;
-  private final Iterator<Execution> iterator;
+  private final List<Execution> executionPath;
+  private final ExecutionJournal.Reader journal;
+  private Iterator<Execution> iterator;
   private final Map<Context, Context> contexts = new HashMap<>();
 
   public ReplayMachine(Profiler profiler) {
     super();
-    this.profiler = profiler;
-    this.iterator = profiler.getExecutionPath().iterator();
+    this.executionPath = profiler.getExecutionPath();
+    if (executionPath.size() != profiler.getTotalVisitCount()) {
+      throw new MachineException("The execution path holds " + executionPath.size() + " of the "
+        + profiler.getTotalVisitCount() + " executions, record the execution with an ExecutionJournal to replay it");
+    }
+    this.journal = null;
+    this.iterator = executionPath.iterator();
     createContexts(profiler);
-    Execution execution = profiler.getExecutionPath().get(0);
-    Context context = contexts.get(execution.getContext());
-    context.setNextElement(execution.getElement());
-    setCurrentContext(context);
+    start(executionPath.get(0));
+  }
+
+  /**
+   * Replays the executions of a journal.
+   *
+   * @param journal file written by an {@link ExecutionJournal}
+   * @param contexts contexts with the same models as the contexts of the journaled machine, in the same order
+   */
+  public ReplayMachine(File journal, List<Context> contexts) throws IOException {
+    super();
+    this.executionPath = null;
+    this.journal = new ExecutionJournal.Reader(journal, contexts);
+    this.iterator = this.journal;
+    for (Context context : contexts) {
+      this.contexts.put(context, context);
+    }
+    try {
+      seek(0);
+    } catch (RuntimeException e) {
+      this.journal.close();
+      throw e;
+    }
   }
 
   @Override
@@ -90,6 +127,49 @@ public class ReplayMachine extends SimpleMachine {
     }
   }
 
+  private void start(Execution execution) {
+    Context context = contexts.get(execution.getContext());
+    context.setNextElement(execution.getElement());
+    setCurrentContext(context);
+  }
+
+  /**
+   * @return number of steps of the replayed execution
+   */
+  public long size() {
+    return isNotNull(journal) ? journal.size() : executionPath.size();
+  }
+
+  /**
+   * Continues the replay at the given step, without executing the steps before it.
+   * </p>
+   * The variables of the contexts are not brought to the state they had at that step.
+   *
+   * @param step zero based index of the step to be executed next
+   */
+  public void seek(long step) {
+    if (step < 0 || step >= size()) {
+      throw new MachineException("Step " + step + " is out of the replayed execution of " + size() + " steps");
+    }
+    Execution execution;
+    if (isNotNull(journal)) {
+      try {
+        journal.seek(step);
+        execution = journal.next();
+        journal.seek(step);
+      } catch (IOException e) {
+        throw new MachineException(getCurrentContext(), e);
+      }
+    } else {
+      iterator = executionPath.listIterator((int) step);
+      execution = executionPath.get((int) step);
+    }
+    if (isNotNull(getCurrentContext())) {
+      getCurrentContext().setCurrentElement(null);
+    }
+    start(execution);
+  }
+
   protected Context getNextStep(Context context) {
     Execution execution = iterator.next();
     setCurrentContext(contexts.get(execution.getContext()));
@@ -101,4 +181,20 @@ public class ReplayMachine extends SimpleMachine {
   public boolean hasNextStep() {
     return iterator.hasNext();
   }
+
+  /**
+   * Closes the journal being replayed, if any, and the machine itself.
+   */
+  @Override
+  public void close() {
+    try {
+      if (isNotNull(journal)) {
+        journal.close();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      super.close();
+    }
+  }
 }
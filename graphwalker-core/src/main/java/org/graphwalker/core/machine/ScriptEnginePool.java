@@ -0,0 +1,213 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.common.Objects.isNull;
+
+/**
+ * <h1>ScriptEnginePool</h1>
+ * The ScriptEnginePool bootstraps script engines for one execution context class.
+ * </p>
+ * The glue script, which exposes the methods of a context to the script engine, is generated only once
+ * per context class. Each engine handed out by the pool has the glue script already compiled. When the pool
+ * size is greater than zero, the pool keeps that many engines compiled in advance on a background thread,
+ * so that creating a context does not pay for the engine start up.
+ * </p>
+ * The pool size is read from the {@code graphwalker.scriptEnginePool.size} system property and defaults to 0,
+ * that is, engines are created on demand.
+ *
+ * @author Ivan Bonkin
+ */
+public final class ScriptEnginePool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScriptEnginePool.class);
+
+  private static final String DEFAULT_SCRIPT_LANGUAGE = "JavaScript";
+  private static final ScriptEngineManager MANAGER = new ScriptEngineManager(null);
+  private static final Map<Class<?>, ScriptEnginePool> POOLS = new ConcurrentHashMap<>();
+  private static final ExecutorService WARM_UP_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "graphwalker-script-engine-pool");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static volatile int defaultSize = Integer.getInteger("graphwalker.scriptEnginePool.size", 0);
+
+  private final Class<?> contextClass;
+  private final BlockingQueue<CompiledScript> idle = new LinkedBlockingQueue<>();
+  private final AtomicBoolean warmingUp = new AtomicBoolean(false);
+  private final AtomicLong createdCount = new AtomicLong();
+  private final AtomicLong creationTime = new AtomicLong();
+  private final AtomicLong borrowedCount = new AtomicLong();
+  private final AtomicLong prewarmedCount = new AtomicLong();
+  private volatile String script;
+  private volatile int size = defaultSize;
+
+  private ScriptEnginePool(Class<?> contextClass) {
+    this.contextClass = contextClass;
+  }
+
+  public static ScriptEnginePool getPool(Class<?> contextClass) {
+    return POOLS.computeIfAbsent(contextClass, ScriptEnginePool::new);
+  }
+
+  public static Collection<ScriptEnginePool> getPools() {
+    return Collections.unmodifiableCollection(POOLS.values());
+  }
+
+  public static int getDefaultSize() {
+    return defaultSize;
+  }
+
+  /**
+   * Sets the number of pre-warmed engines kept by pools created after this call.
+   */
+  public static void setDefaultSize(int size) {
+    defaultSize = Math.max(0, size);
+  }
+
+  public Class<?> getContextClass() {
+    return contextClass;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public void setSize(int size) {
+    this.size = Math.max(0, size);
+    idle.clear();
+  }
+
+  /**
+   * Takes an engine with the glue script compiled, creating it if no pre-warmed engine is available.
+   * </p>
+   * The engine is owned by the borrowing context from then on. The glue script is taken from the supplier
+   * only the first time, and shared by all later engines of the pool.
+   *
+   * @param scriptSupplier creates the glue script of the context class
+   * @return the compiled glue script, {@link CompiledScript#getEngine()} gives the engine it belongs to
+   */
+  public CompiledScript borrow(Supplier<String> scriptSupplier) throws ScriptException {
+    if (isNull(script)) {
+      script = scriptSupplier.get();
+    }
+    borrowedCount.incrementAndGet();
+    CompiledScript compiledScript = idle.poll();
+    if (isNotNull(compiledScript)) {
+      prewarmedCount.incrementAndGet();
+    } else {
+      compiledScript = create();
+    }
+    warmUp();
+    return compiledScript;
+  }
+
+  private CompiledScript create() throws ScriptException {
+    long startTime = System.nanoTime();
+    ScriptEngine engine = MANAGER.getEngineByName(DEFAULT_SCRIPT_LANGUAGE);
+    if (null == engine) {
+      throw new MachineException("Failed to create ScriptEngine");
+    }
+    CompiledScript compiledScript = ((Compilable) engine).compile(script);
+    creationTime.addAndGet(System.nanoTime() - startTime);
+    createdCount.incrementAndGet();
+    return compiledScript;
+  }
+
+  private void warmUp() {
+    if (idle.size() < size && warmingUp.compareAndSet(false, true)) {
+      ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      WARM_UP_EXECUTOR.execute(() -> {
+        Thread.currentThread().setContextClassLoader(classLoader);
+        try {
+          while (idle.size() < size) {
+            idle.offer(create());
+          }
+        } catch (Throwable t) {
+          LOG.warn("Failed to pre-warm script engine for {}: {}", contextClass.getName(), t.getMessage());
+        } finally {
+          warmingUp.set(false);
+        }
+      });
+    }
+  }
+
+  /**
+   * @return number of pre-warmed engines ready to be borrowed
+   */
+  public int getIdleCount() {
+    return idle.size();
+  }
+
+  public long getBorrowedCount() {
+    return borrowedCount.get();
+  }
+
+  /**
+   * @return number of borrowed engines that were created ahead of time
+   */
+  public long getPrewarmedCount() {
+    return prewarmedCount.get();
+  }
+
+  public long getCreatedCount() {
+    return createdCount.get();
+  }
+
+  public long getTotalCreationTime(TimeUnit unit) {
+    return unit.convert(creationTime.get(), TimeUnit.NANOSECONDS);
+  }
+
+  public long getAverageCreationTime(TimeUnit unit) {
+    long count = createdCount.get();
+    return 0 == count ? 0 : unit.convert(creationTime.get() / count, TimeUnit.NANOSECONDS);
+  }
+}
@@ -0,0 +1,126 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.expression.Expression;
+import org.graphwalker.core.expression.ExpressionEngine;
+import org.graphwalker.core.expression.ExpressionException;
+import org.graphwalker.core.expression.UnsupportedExpressionException;
+import org.graphwalker.core.model.Action;
+import org.graphwalker.core.model.Guard;
+
+import javax.script.ScriptException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.model.Edge.RuntimeEdge;
+
+/**
+ * <h1>ShadowContext</h1>
+ * A private copy of the variables of an {@link ExecutionContext}, for evaluating guards and actions
+ * without side effects.
+ * </p>
+ * A shadow context is created by {@link ExecutionContext#shadow()}. Nothing done through it is visible to the
+ * context it was created from. The parsed scripts are shared between copies, so each {@link #copy()} can be used
+ * by a different thread, e.g. to validate several candidate paths at once.
+ *
+ * @author Ivan Bonkin
+ */
+public final class ShadowContext {
+
+  private final Context context;
+  private final ExpressionEngine expressionEngine;
+  private final Map<String, Expression> expressions;
+  private final Map<String, Expression> parsedExpressions = new HashMap<>();
+  private final Map<String, Object> variables;
+
+  ShadowContext(Context context, ExpressionEngine expressionEngine, Map<String, Expression> expressions, Map<String, Object> variables) {
+    this.context = context;
+    this.expressionEngine = expressionEngine;
+    this.expressions = expressions;
+    this.variables = variables;
+  }
+
+  /**
+   * @return an independent shadow context with the current variables of this one
+   */
+  public ShadowContext copy() {
+    return new ShadowContext(context, expressionEngine, expressions, new HashMap<>(variables));
+  }
+
+  /**
+   * @throws UnsupportedExpressionException if the guard is not understood by the expression engine
+   */
+  public boolean isAvailable(RuntimeEdge edge) {
+    if (edge.hasGuard()) {
+      Guard guard = edge.getGuard();
+      try {
+        return (Boolean) getExpression(guard.getScript()).evaluate(variables);
+      } catch (ExpressionException e) {
+        throw new MachineException(context, e);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @throws UnsupportedExpressionException if the action is not understood by the expression engine
+   */
+  public void execute(Action action) {
+    try {
+      getExpression(action.getScript()).evaluate(variables);
+    } catch (ExpressionException e) {
+      throw new MachineException(context, e);
+    }
+  }
+
+  /**
+   * @throws UnsupportedExpressionException if the script is not understood by the expression engine
+   */
+  public Object evaluate(String script) throws ScriptException {
+    try {
+      return getExpression(script).evaluate(variables);
+    } catch (ExpressionException e) {
+      throw new ScriptException(e.getMessage());
+    }
+  }
+
+  public Map<String, Object> getVariables() {
+    return Collections.unmodifiableMap(variables);
+  }
+
+  private Expression getExpression(String script) {
+    Expression expression = expressions.get(script);
+    if (isNotNull(expression)) {
+      return expression;
+    }
+    return parsedExpressions.computeIfAbsent(script, expressionEngine::parse);
+  }
+}
@@ -32,15 +32,24 @@ import org.graphwalker.core.generator.NoPathFoundException;
 import org.graphwalker.core.model.Action;
 import org.graphwalker.core.model.Element;
 import org.graphwalker.core.model.Requirement;
+import org.graphwalker.core.statistics.Histogram;
+import org.graphwalker.core.statistics.Phase;
+import org.graphwalker.core.statistics.Profile;
+import org.graphwalker.core.statistics.Profiler;
+import org.graphwalker.core.statistics.VisitListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.graphwalker.core.common.Objects.isNotNull;
 import static org.graphwalker.core.common.Objects.isNull;
 import static org.graphwalker.core.model.Edge.RuntimeEdge;
+import static org.graphwalker.core.model.Model.RuntimeModel;
 import static org.graphwalker.core.model.Vertex.RuntimeVertex;
 
 /**
@@ -50,6 +59,11 @@ import static org.graphwalker.core.model.Vertex.RuntimeVertex;
  * The SimpleMachine is the Finite State Machine which executes one or more contexts. Running the machine
  * is done by calling {@link SimpleMachine#getNextStep()}. Before calling
  * getNextStep check {@link SimpleMachine#hasNextStep()} if the machine has more steps to be executed or not.
+ * </p>
+ * Every step is marked with a random UUID in the logging MDC by default. Creating it is one of the most
+ * expensive parts of a step, so long runs can opt in to the cheaper {@link TraceMode#SEQUENCE} or
+ * {@link TraceMode#NONE}, either by {@link SimpleMachine#setTraceMode(TraceMode)} or by the
+ * "graphwalker.traceMode" system property.
  *
  * @author Nils Olsson
  */
@@ -57,9 +71,31 @@ public class SimpleMachine extends MachineBase {
 
   private static final Logger LOG = LoggerFactory.getLogger(SimpleMachine.class);
 
+  private static final String TRACE = "trace";
+  private static final String TRACE_MODE_PROPERTY = "graphwalker.traceMode";
+  private static final AtomicLong TRACE_SEQUENCE = new AtomicLong();
+  private static final int CHECKPOINT_MAGIC = 0x4757434B;
+  private static final int CHECKPOINT_VERSION = 2;
+
   private Element lastElement;
+  private boolean dryRun = false;
+  private TraceMode traceMode = getDefaultTraceMode();
+  private long seed = System.nanoTime();
+  private final StatefulRandom random = new StatefulRandom(seed);
+  private final List<Context> sharedStateContexts = new ArrayList<>();
+  private final List<RuntimeVertex> sharedStateVertices = new ArrayList<>();
+  private Map<String, SharedStateCandidates> sharedStateIndex = new HashMap<>();
+  private Map<Context, Integer> contextPositions = new IdentityHashMap<>();
+  private List<Context> indexedContexts = new ArrayList<>();
+  private List<RuntimeModel> indexedModels = new ArrayList<>();
+  private final Map<Context, Long> idleContexts = new IdentityHashMap<>();
+  private long visitCount = 0;
+  private boolean visitsTracked;
+  private long batchCount = 0;
+  private final VisitListener visitTracker = (context, element, firstVisit) -> visitCount++;
 
   public SimpleMachine() {
+    visitsTracked = getProfiler().addVisitListener(visitTracker);
   }
 
   public SimpleMachine(Context... contexts) {
@@ -67,9 +103,18 @@ public class SimpleMachine extends MachineBase {
   }
 
   public SimpleMachine(Collection<Context> contexts) {
+    this();
     this.getContexts().addAll(contexts);
+    AtomicLong sharedStateVersion = new AtomicLong();
+    for (Context context : contexts) {
+      if (context instanceof ExecutionContext) {
+        ((ExecutionContext) context).setSharedStateVersion(sharedStateVersion);
+      }
+    }
+    createSharedStateIndex();
     executeInitActions(contexts);
     setCurrentContext(chooseStartContext(contexts));
+    setSeed(seed);
   }
 
   private void executeInitActions(Collection<Context> contexts) {
@@ -92,14 +137,123 @@ public class SimpleMachine extends MachineBase {
     throw new MachineException("No start context found");
   }
 
+  /**
+   * @return the seed the random choices of the machine and its path generators are derived from
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Seeds the machine, and each {@link Seedable} path generator with a seed of its own derived from it, so that an
+   * execution can be repeated by giving the same seed.
+   */
+  public void setSeed(long seed) {
+    this.seed = seed;
+    SplittableRandom seeds = new SplittableRandom(seed);
+    for (Context context : getContexts()) {
+      long contextSeed = seeds.split().nextLong();
+      if (context.getPathGenerator() instanceof Seedable) {
+        ((Seedable) context.getPathGenerator()).seed(contextSeed);
+      }
+    }
+    random.setSeed(seeds.nextLong());
+  }
+
+  @Override
+  public void setProfiler(Profiler profiler) {
+    getProfiler().removeVisitListener(visitTracker);
+    super.setProfiler(profiler);
+    visitsTracked = profiler.addVisitListener(visitTracker);
+  }
+
+  public boolean isDryRun() {
+    return dryRun;
+  }
+
+  /**
+   * Switches the dry run mode, which plans the path without touching the system under test. Guards and actions
+   * are evaluated as usual, but the methods implementing the vertices and edges are not invoked. The planned path
+   * and its statistics are recorded by the profiler.
+   */
+  public void setDryRun(boolean dryRun) {
+    this.dryRun = dryRun;
+  }
+
+  public TraceMode getTraceMode() {
+    return traceMode;
+  }
+
+  /**
+   * Sets how steps are marked in the logging MDC, defaults to the "graphwalker.traceMode" system property
+   * or {@link TraceMode#UUID}.
+   */
+  public void setTraceMode(TraceMode traceMode) {
+    this.traceMode = traceMode;
+    if (TraceMode.NONE == traceMode) {
+      MDC.remove(TRACE);
+    }
+  }
+
+  private static TraceMode getDefaultTraceMode() {
+    String value = System.getProperty(TRACE_MODE_PROPERTY);
+    if (isNull(value)) {
+      return TraceMode.UUID;
+    }
+    try {
+      return TraceMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Unknown value '{}' of the {} property, expected one of {}, using {}",
+        value, TRACE_MODE_PROPERTY, Arrays.toString(TraceMode.values()), TraceMode.UUID);
+      return TraceMode.UUID;
+    }
+  }
+
+  private void trace() {
+    if (isBatching()) {
+      return;
+    }
+    switch (traceMode) {
+      case UUID:
+        MDC.put(TRACE, UUID.randomUUID().toString());
+        break;
+      case SEQUENCE:
+        MDC.put(TRACE, Long.toString(TRACE_SEQUENCE.incrementAndGet()));
+        break;
+      default:
+        // steps are not traced
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * </p>
+   * All steps of a batch share one trace id. The stop conditions of the contexts other than the current one are
+   * checked once per batch, as long as none of the contexts completes.
+   */
+  @Override
+  public List<Step> getNextSteps(int max) {
+    trace();
+    batchCount++;
+    return super.getNextSteps(max);
+  }
+
   @Override
   public Context getNextStep() {
-    MDC.put("trace", UUID.randomUUID().toString());
-    walk(getCurrentContext());
+    trace();
+    startPhase(Phase.PATH_GENERATION);
+    try {
+      walk(getCurrentContext());
+    } finally {
+      stopPhase();
+    }
     notifyObservers(getCurrentContext().getCurrentElement(), EventType.BEFORE_ELEMENT);
     getProfiler().start(getCurrentContext());
     execute(getCurrentContext().getCurrentElement());
     getProfiler().stop(getCurrentContext());
+    if (isNotNull(getCurrentContext().getSharedCoverage())) {
+      getCurrentContext().getSharedCoverage().visit(getCurrentContext().getCurrentElement());
+    }
     if (getCurrentContext().getLastElement() instanceof RuntimeEdge) {
       updateRequirements(getCurrentContext(), getCurrentContext().getLastElement());
     }
@@ -107,6 +261,9 @@ public class SimpleMachine extends MachineBase {
       updateRequirements(getCurrentContext(), getCurrentContext().getCurrentElement());
     }
     notifyObservers(getCurrentContext().getCurrentElement(), EventType.AFTER_ELEMENT);
+    if (isNotNull(getPhaseTimer())) {
+      getPhaseTimer().endStep(getCurrentContext());
+    }
     return getCurrentContext();
   }
 
@@ -119,7 +276,7 @@ public class SimpleMachine extends MachineBase {
   }
 
   protected Context getNextStep(Context context) {
-    LOG.debug("Context: " + context);
+    LOG.debug("Context: {}", context);
     if (isNotNull(context.getNextElement())) {
       context.setCurrentElement(context.getNextElement());
     } else {
@@ -182,20 +339,30 @@ public class SimpleMachine extends MachineBase {
   private Context takeNextStep(Context context) {
     if (isVertex(context.getCurrentElement())) {
       RuntimeVertex vertex = (RuntimeVertex) context.getCurrentElement();
-      if (vertex.hasSharedState() && hasPossibleSharedStates(vertex)) {
-        context = chooseSharedContext(context, vertex);
+      if (vertex.hasSharedState()) {
+        startPhase(Phase.SHARED_STATE);
+        try {
+          if (0 < findPossibleSharedStates(vertex.getSharedState())) {
+            context = chooseSharedContext(context);
+          }
+        } finally {
+          stopPhase();
+        }
       }
     }
     return getNextStep(context);
   }
 
-  private Context chooseSharedContext(Context context, RuntimeVertex vertex) {
-    List<SharedStateTuple> candidates = getPossibleSharedStates(vertex.getSharedState());
-    Random random = new Random(System.nanoTime());
-    SharedStateTuple candidate = candidates.get(random.nextInt(candidates.size()));
-    if (!candidate.getVertex().equals(context.getCurrentElement())) {
-      candidate.context.setNextElement(candidate.getVertex());
-      context = switchContext(candidate.context);
+  /**
+   * Chooses one of the candidates found by the preceding {@link #findPossibleSharedStates(String)} call.
+   */
+  private Context chooseSharedContext(Context context) {
+    int candidate = random.nextInt(sharedStateVertices.size());
+    RuntimeVertex candidateVertex = sharedStateVertices.get(candidate);
+    Context candidateContext = sharedStateContexts.get(candidate);
+    if (!candidateVertex.equals(context.getCurrentElement())) {
+      candidateContext.setNextElement(candidateVertex);
+      context = switchContext(candidateContext);
     } else {
       lastElement = null;
     }
@@ -206,45 +373,123 @@ public class SimpleMachine extends MachineBase {
     return element instanceof RuntimeVertex;
   }
 
-  private boolean hasPossibleSharedStates(RuntimeVertex vertex) {
-    return isNotNull(vertex.getSharedState()) && 0 < getPossibleSharedStates(vertex.getSharedState()).size();
-  }
-
-  private List<SharedStateTuple> getPossibleSharedStates(String sharedState) {
-    List<SharedStateTuple> sharedStates = new ArrayList<>();
+  /**
+   * Indexes, by shared state name, the vertices of all contexts that a shared state can be continued with,
+   * i.e. the named ones and the ones with out edges. The index is built when the machine is created, and
+   * rebuilt if contexts are added, removed or replaced later on, or get another model.
+   */
+  private void createSharedStateIndex() {
+    Map<String, SharedStateCandidates> index = new HashMap<>();
+    Map<Context, Integer> positions = new IdentityHashMap<>();
+    List<Context> contexts = new ArrayList<>();
+    List<RuntimeModel> models = new ArrayList<>();
     for (Context context : getContexts()) {
-      if (getCurrentContext().equals(context) && hasOutEdges(context)) {
-        sharedStates.add(new SharedStateTuple(getCurrentContext(), (RuntimeVertex) getCurrentContext().getCurrentElement()));
-      } else if (!getCurrentContext().equals(context) && context.getModel().hasSharedState(sharedState)) {
-        for (RuntimeVertex vertex : context.getModel().getSharedStates(sharedState)) {
-          if ((!vertex.equals(lastElement) || getCurrentContext().getModel().getOutEdges((RuntimeVertex) getCurrentContext().getCurrentElement()).isEmpty())
-              && (vertex.hasName() || !context.getModel().getOutEdges(vertex).isEmpty())) {
-            sharedStates.add(new SharedStateTuple(context, vertex));
+      int position = positions.size();
+      positions.put(context, position);
+      RuntimeModel model = context.getModel();
+      contexts.add(context);
+      models.add(model);
+      if (isNull(model)) {
+        continue;
+      }
+      for (String sharedState : model.getSharedStates()) {
+        for (RuntimeVertex vertex : model.getSharedStates(sharedState)) {
+          if (vertex.hasName() || !model.getOutEdges(vertex).isEmpty()) {
+            index.computeIfAbsent(sharedState, name -> new SharedStateCandidates()).add(position, context, vertex);
           }
         }
       }
     }
-    return sharedStates;
+    sharedStateIndex = index;
+    contextPositions = positions;
+    indexedContexts = contexts;
+    indexedModels = models;
+  }
+
+  private boolean isSharedStateIndexStale() {
+    List<Context> contexts = getContexts();
+    if (contexts.size() != indexedContexts.size()) {
+      return true;
+    }
+    for (int i = 0; i < contexts.size(); i++) {
+      Context context = contexts.get(i);
+      if (context != indexedContexts.get(i) || context.getModel() != indexedModels.get(i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Collects the contexts and vertices that can be continued with from a shared state into reused buffers.
+   *
+   * @return the number of candidates
+   */
+  private int findPossibleSharedStates(String sharedState) {
+    if (isSharedStateIndexStale()) {
+      createSharedStateIndex();
+    }
+    sharedStateContexts.clear();
+    sharedStateVertices.clear();
+    Context currentContext = getCurrentContext();
+    RuntimeVertex currentVertex = (RuntimeVertex) currentContext.getCurrentElement();
+    boolean hasOutEdges = !currentContext.getModel().getOutEdges(currentVertex).isEmpty();
+    int currentPosition = contextPositions.get(currentContext);
+    boolean currentAdded = !hasOutEdges;
+    SharedStateCandidates candidates = sharedStateIndex.get(sharedState);
+    if (isNotNull(candidates)) {
+      for (int i = 0; i < candidates.vertices.size(); i++) {
+        int position = candidates.positions.get(i);
+        if (!currentAdded && position > currentPosition) {
+          addPossibleSharedState(currentContext, currentVertex);
+          currentAdded = true;
+        }
+        RuntimeVertex vertex = candidates.vertices.get(i);
+        if (position != currentPosition && (!vertex.equals(lastElement) || !hasOutEdges)) {
+          addPossibleSharedState(candidates.contexts.get(i), vertex);
+        }
+      }
+    }
+    if (!currentAdded) {
+      addPossibleSharedState(currentContext, currentVertex);
+    }
+    return sharedStateVertices.size();
   }
 
-  private boolean hasOutEdges(Context context) {
-    return isNotNull(context.getCurrentElement())
-           && context.getCurrentElement() instanceof RuntimeVertex
-           && !context.getModel().getOutEdges((RuntimeVertex) context.getCurrentElement()).isEmpty();
+  private void addPossibleSharedState(Context context, RuntimeVertex vertex) {
+    sharedStateContexts.add(context);
+    sharedStateVertices.add(vertex);
   }
 
   @Override
   public boolean hasNextStep() {
-    MDC.put("trace", UUID.randomUUID().toString());
-    for (Context context : getContexts()) {
-      if (hasNextStep(context)) {
-        if (!context.equals(getCurrentContext()) && isStartContext(context)) {
-          switchContext(context);
+    trace();
+    startPhase(Phase.PATH_GENERATION);
+    try {
+      for (Context context : getContexts()) {
+        if (hasNextStep(context)) {
+          if (!context.equals(getCurrentContext()) && isStartContext(context)) {
+            switchContext(context);
+          }
+          return true;
         }
-        return true;
       }
+      return false;
+    } finally {
+      stopPhase();
+    }
+  }
+
+  private void startPhase(Phase phase) {
+    if (isNotNull(getPhaseTimer())) {
+      getPhaseTimer().start(phase);
+    }
+  }
+
+  private void stopPhase() {
+    if (isNotNull(getPhaseTimer())) {
+      getPhaseTimer().stop();
     }
-    return false;
   }
 
   private boolean hasNextStep(Context context) {
@@ -255,14 +500,36 @@ public class SimpleMachine extends MachineBase {
     if (isNull(context.getPathGenerator())) {
       throw new MachineException("No path generator is defined");
     }
+    if (isIdle(context)) {
+      return true;
+    }
     boolean hasMoreSteps = context.getPathGenerator().hasNextStep();
     if (!hasMoreSteps) {
       context.setExecutionStatus(ExecutionStatus.COMPLETED);
       updateRequirements(context, context.getModel());
+      idleContexts.clear();
+    } else if (context != getCurrentContext()) {
+      idleContexts.put(context, getIdleMark());
     }
     return hasMoreSteps;
   }
 
+  /**
+   * Checks whether the context is not the current one, and was found to have more steps while no element has been
+   * visited since, so its state has not changed and its path generator does not have to be polled again. Within a
+   * batch, the context stays idle until the batch ends or a context completes.
+   */
+  private boolean isIdle(Context context) {
+    return context != getCurrentContext() && Long.valueOf(getIdleMark()).equals(idleContexts.get(context));
+  }
+
+  private long getIdleMark() {
+    if (isBatching()) {
+      return -batchCount;
+    }
+    return visitsTracked ? visitCount : getProfiler().getTotalVisitCount();
+  }
+
   private void execute(Element element) {
     try {
       if (element instanceof RuntimeVertex) {
@@ -279,44 +546,297 @@ public class SimpleMachine extends MachineBase {
   private void execute(RuntimeEdge edge) {
     execute(edge.getActions());
     if (edge.hasName()) {
-      getCurrentContext().execute(
-        edge.getName(),
-        edge.getTargetVertex().getGroupName(),
-        edge.getArguments());
+      if (!dryRun) {
+        startPhase(Phase.SUT);
+        try {
+          getCurrentContext().execute(
+            edge.getName(),
+            edge.getTargetVertex().getGroupName(),
+            edge.getArguments());
+        } finally {
+          stopPhase();
+        }
+      }
       // select used arguments set for the next vertex
       edge.getTargetVertex().selectArguments(edge.getArguments());
     }
   }
 
   private void execute(List<Action> actions) {
-    for (Action action : actions) {
-      getCurrentContext().execute(action);
+    startPhase(Phase.ACTIONS);
+    try {
+      for (Action action : actions) {
+        getCurrentContext().execute(action);
+      }
+    } finally {
+      stopPhase();
     }
   }
 
   private void execute(RuntimeVertex vertex) {
-    if (vertex.hasName()) {
-      getCurrentContext().execute(vertex.getName(), vertex.getGroupName(), vertex.getSelectedArguments());
+    if (vertex.hasName() && !dryRun) {
+      startPhase(Phase.SUT);
+      try {
+        getCurrentContext().execute(vertex.getName(), vertex.getGroupName(), vertex.getSelectedArguments());
+      } finally {
+        stopPhase();
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * </p>
+   * The checkpoint holds, for every context, the last, current and next elements, the execution and requirement
+   * statuses, the variables holding numbers, booleans or strings, and the state of {@link Checkpointable} path
+   * generators and stop conditions. It also holds the visit counts and execution time histograms of the profiler,
+   * but not its execution path, so the size of the checkpoint depends on the models rather than on the length of
+   * the run. The state of the random generators is written as it is, so taking a checkpoint does not change the
+   * choices of the machine, and the resumed machine makes the same choices from then on.
+   */
+  @Override
+  public void checkpoint(OutputStream output) throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output));
+    data.writeInt(CHECKPOINT_MAGIC);
+    data.writeInt(CHECKPOINT_VERSION);
+    List<Context> contexts = getContexts();
+    data.writeInt(contexts.size());
+    data.writeInt(contexts.indexOf(getCurrentContext()));
+    int lastElementOwner = findOwner(lastElement);
+    data.writeInt(lastElementOwner);
+    if (-1 != lastElementOwner) {
+      Checkpoints.writeElement(contexts.get(lastElementOwner), data, lastElement);
+    }
+    data.writeLong(seed);
+    data.writeLong(random.getState());
+    for (Context context : contexts) {
+      writeContext(context, data);
+    }
+    writeProfiles(data);
+    data.flush();
+  }
+
+  /**
+   * Creates a machine continuing the execution saved by {@link #checkpoint(OutputStream)}.
+   * </p>
+   * The contexts need to be set up the same way as the ones of the checkpointed machine, i.e. in the same order,
+   * with the same models, path generators and stop conditions. The model actions are executed as usual when the
+   * machine is created, then the checkpointed state replaces the state of the contexts.
+   *
+   * @param input the stream to read the checkpoint from, it is not closed
+   * @param contexts the contexts to continue the execution with
+   * @return the resumed machine
+   */
+  public static SimpleMachine resume(InputStream input, Collection<Context> contexts) throws IOException {
+    SimpleMachine machine = new SimpleMachine(contexts);
+    machine.restore(new DataInputStream(new BufferedInputStream(input)));
+    return machine;
+  }
+
+  private void restore(DataInputStream data) throws IOException {
+    if (CHECKPOINT_MAGIC != data.readInt()) {
+      throw new MachineException("The stream does not hold a machine checkpoint");
+    }
+    int version = data.readInt();
+    if (CHECKPOINT_VERSION != version) {
+      throw new MachineException("Unsupported checkpoint version: " + version);
+    }
+    List<Context> contexts = getContexts();
+    int contextCount = data.readInt();
+    if (contextCount != contexts.size()) {
+      throw new MachineException("The checkpoint holds " + contextCount + " contexts, but " + contexts.size() + " are given");
+    }
+    int currentContext = data.readInt();
+    int lastElementOwner = data.readInt();
+    lastElement = -1 == lastElementOwner ? null : Checkpoints.readElement(contexts.get(lastElementOwner), data);
+    seed = data.readLong();
+    random.setSeed(data.readLong());
+    for (Context context : contexts) {
+      readContext(context, data);
+    }
+    readProfiles(data);
+    setCurrentContext(contexts.get(currentContext));
+  }
+
+  private int findOwner(Element element) {
+    if (isNotNull(element)) {
+      List<Context> contexts = getContexts();
+      for (int i = 0; i < contexts.size(); i++) {
+        for (Element candidate : contexts.get(i).getModel().getElements()) {
+          if (candidate == element) {
+            return i;
+          }
+        }
+      }
+    }
+    return -1;
+  }
+
+  private void writeContext(Context context, DataOutputStream data) throws IOException {
+    RuntimeModel model = context.getModel();
+    data.writeUTF(String.valueOf(model.getName()));
+    data.writeInt(model.getElements().size());
+    data.writeByte(context.getExecutionStatus().ordinal());
+    Checkpoints.writeElement(context, data, context.getLastElement());
+    Checkpoints.writeElement(context, data, context.getCurrentElement());
+    Checkpoints.writeElement(context, data, context.getNextElement());
+    data.writeInt(context.getRequirements().size());
+    for (RequirementStatus status : RequirementStatus.values()) {
+      for (Requirement requirement : context.getRequirements(status)) {
+        data.writeUTF(requirement.getKey());
+        data.writeByte(status.ordinal());
+      }
+    }
+    data.writeBoolean(context instanceof ExecutionContext);
+    if (context instanceof ExecutionContext) {
+      ExecutionContext executionContext = (ExecutionContext) context;
+      data.writeBoolean(executionContext.wasAttributeSet());
+      Map<String, Object> variables = executionContext.copyVariables();
+      data.writeInt(variables.size());
+      for (Map.Entry<String, Object> variable : variables.entrySet()) {
+        data.writeUTF(variable.getKey());
+        writeValue(data, variable.getValue());
+      }
     }
+    Checkpoints.writeState(context, data, context.getPathGenerator());
   }
 
-  private static class SharedStateTuple {
+  private void readContext(Context context, DataInputStream data) throws IOException {
+    RuntimeModel model = context.getModel();
+    String modelName = data.readUTF();
+    int elementCount = data.readInt();
+    if (!modelName.equals(String.valueOf(model.getName())) || elementCount != model.getElements().size()) {
+      throw new MachineException("The checkpoint of model '" + modelName + "' does not match model '" + model.getName() + "'");
+    }
+    ExecutionStatus status = ExecutionStatus.values()[data.readByte()];
+    Element last = Checkpoints.readElement(context, data);
+    Element current = Checkpoints.readElement(context, data);
+    Element next = Checkpoints.readElement(context, data);
+    context.setCurrentElement(last);
+    context.setCurrentElement(current);
+    if (isNotNull(next)) {
+      context.setNextElement(next);
+    }
+    context.setExecutionStatus(status);
+    Map<String, Requirement> requirements = new HashMap<>();
+    for (Requirement requirement : context.getRequirements()) {
+      requirements.put(requirement.getKey(), requirement);
+    }
+    for (int count = data.readInt(); count > 0; count--) {
+      Requirement requirement = requirements.get(data.readUTF());
+      RequirementStatus requirementStatus = RequirementStatus.values()[data.readByte()];
+      if (isNotNull(requirement)) {
+        context.setRequirementStatus(requirement, requirementStatus);
+      }
+    }
+    if (data.readBoolean()) {
+      if (!(context instanceof ExecutionContext)) {
+        throw new MachineException("The checkpoint holds variables, but the context of model '" + model.getName() + "' can not take them");
+      }
+      ExecutionContext executionContext = (ExecutionContext) context;
+      boolean attributeSet = data.readBoolean();
+      for (int count = data.readInt(); count > 0; count--) {
+        executionContext.setAttribute(data.readUTF(), readValue(data));
+      }
+      if (!attributeSet) {
+        executionContext.resetAttributeSet();
+      }
+    }
+    Checkpoints.readState(context, data, context.getPathGenerator());
+  }
 
-    private final Context context;
-    private final RuntimeVertex vertex;
+  private void writeValue(DataOutputStream data, Object value) throws IOException {
+    if (value instanceof Integer) {
+      data.writeByte('I');
+      data.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      data.writeByte('J');
+      data.writeLong((Long) value);
+    } else if (value instanceof Number) {
+      data.writeByte('D');
+      data.writeDouble(((Number) value).doubleValue());
+    } else if (value instanceof Boolean) {
+      data.writeByte('Z');
+      data.writeBoolean((Boolean) value);
+    } else {
+      byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+      data.writeByte('S');
+      data.writeInt(bytes.length);
+      data.write(bytes);
+    }
+  }
 
-    private SharedStateTuple(Context context, RuntimeVertex vertex) {
-      this.context = context;
-      this.vertex = vertex;
+  private Object readValue(DataInputStream data) throws IOException {
+    byte type = data.readByte();
+    switch (type) {
+      case 'I':
+        return data.readInt();
+      case 'J':
+        return data.readLong();
+      case 'D':
+        return data.readDouble();
+      case 'Z':
+        return data.readBoolean();
+      case 'S':
+        byte[] bytes = new byte[data.readInt()];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+      default:
+        throw new MachineException("Unknown variable type in checkpoint: " + type);
     }
+  }
 
-    public Context getContext() {
-      return context;
+  private void writeProfiles(DataOutputStream data) throws IOException {
+    Map<Context, Integer> positions = new IdentityHashMap<>();
+    List<Map<Element, Integer>> elementPositions = new ArrayList<>();
+    for (Context context : getContexts()) {
+      Map<Element, Integer> elements = new IdentityHashMap<>();
+      for (Element element : context.getModel().getElements()) {
+        elements.put(element, elements.size());
+      }
+      positions.put(context, positions.size());
+      elementPositions.add(elements);
     }
+    List<Profile> profiles = new ArrayList<>();
+    for (Profile profile : getProfiler().getProfiles()) {
+      Integer position = positions.get(profile.getContext());
+      if (isNotNull(position) && elementPositions.get(position).containsKey(profile.getElement())) {
+        profiles.add(profile);
+      }
+    }
+    data.writeInt(profiles.size());
+    for (Profile profile : profiles) {
+      int position = positions.get(profile.getContext());
+      data.writeInt(position);
+      data.writeInt(elementPositions.get(position).get(profile.getElement()));
+      profile.getHistogram().write(data);
+    }
+  }
 
-    public RuntimeVertex getVertex() {
-      return vertex;
+  private void readProfiles(DataInputStream data) throws IOException {
+    int count = data.readInt();
+    if (0 == count) {
+      return;
+    }
+    Profiler profiler = getProfiler();
+    List<Context> contexts = getContexts();
+    for (; count > 0; count--) {
+      Context context = contexts.get(data.readInt());
+      Element element = Checkpoints.readElement(context, data);
+      profiler.add(new Profile(context, element, Histogram.read(data)));
     }
   }
 
+  private static class SharedStateCandidates {
+
+    private final List<Integer> positions = new ArrayList<>();
+    private final List<Context> contexts = new ArrayList<>();
+    private final List<RuntimeVertex> vertices = new ArrayList<>();
+
+    private void add(int position, Context context, RuntimeVertex vertex) {
+      positions.add(position);
+      contexts.add(context);
+      vertices.add(vertex);
+    }
+  }
 }
@@ -0,0 +1,193 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import java.io.Reader;
+import java.util.function.BiConsumer;
+
+/**
+ * <h1>StateTrackingScriptEngine</h1>
+ * The script engine handed out by {@link ExecutionContext#getScriptEngine()}.
+ * </p>
+ * Every evaluation and invocation may change any variable of the context, so the context is told before it
+ * is delegated to the engine, which keeps the memoized guard results and the snapshots of the context correct.
+ * A put only changes the given variable and is handed over to the context. Changes made through bindings obtained from the engine are not seen, they need
+ * {@link ExecutionContext#markStateChanged()}.
+ *
+ * @author Ivan Bonkin
+ */
+final class StateTrackingScriptEngine implements ScriptEngine, Compilable, Invocable {
+
+  private final ScriptEngine engine;
+  private final Runnable beforeChange;
+  private final BiConsumer<String, Object> put;
+
+  StateTrackingScriptEngine(ScriptEngine engine, Runnable beforeChange, BiConsumer<String, Object> put) {
+    this.engine = engine;
+    this.beforeChange = beforeChange;
+    this.put = put;
+  }
+
+  @Override
+  public Object eval(String script, ScriptContext context) throws ScriptException {
+    beforeChange.run();
+    return engine.eval(script, context);
+  }
+
+  @Override
+  public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+    beforeChange.run();
+    return engine.eval(reader, context);
+  }
+
+  @Override
+  public Object eval(String script) throws ScriptException {
+    beforeChange.run();
+    return engine.eval(script);
+  }
+
+  @Override
+  public Object eval(Reader reader) throws ScriptException {
+    beforeChange.run();
+    return engine.eval(reader);
+  }
+
+  @Override
+  public Object eval(String script, Bindings bindings) throws ScriptException {
+    beforeChange.run();
+    return engine.eval(script, bindings);
+  }
+
+  @Override
+  public Object eval(Reader reader, Bindings bindings) throws ScriptException {
+    beforeChange.run();
+    return engine.eval(reader, bindings);
+  }
+
+  @Override
+  public void put(String key, Object value) {
+    put.accept(key, value);
+  }
+
+  @Override
+  public Object get(String key) {
+    return engine.get(key);
+  }
+
+  @Override
+  public Bindings getBindings(int scope) {
+    return engine.getBindings(scope);
+  }
+
+  @Override
+  public void setBindings(Bindings bindings, int scope) {
+    beforeChange.run();
+    engine.setBindings(bindings, scope);
+  }
+
+  @Override
+  public Bindings createBindings() {
+    return engine.createBindings();
+  }
+
+  @Override
+  public ScriptContext getContext() {
+    return engine.getContext();
+  }
+
+  @Override
+  public void setContext(ScriptContext context) {
+    beforeChange.run();
+    engine.setContext(context);
+  }
+
+  @Override
+  public ScriptEngineFactory getFactory() {
+    return engine.getFactory();
+  }
+
+  @Override
+  public CompiledScript compile(String script) throws ScriptException {
+    return new TrackedScript(((Compilable) engine).compile(script));
+  }
+
+  @Override
+  public CompiledScript compile(Reader script) throws ScriptException {
+    return new TrackedScript(((Compilable) engine).compile(script));
+  }
+
+  @Override
+  public Object invokeMethod(Object object, String name, Object... args) throws ScriptException, NoSuchMethodException {
+    beforeChange.run();
+    return ((Invocable) engine).invokeMethod(object, name, args);
+  }
+
+  @Override
+  public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+    beforeChange.run();
+    return ((Invocable) engine).invokeFunction(name, args);
+  }
+
+  @Override
+  public <T> T getInterface(Class<T> type) {
+    return ((Invocable) engine).getInterface(type);
+  }
+
+  @Override
+  public <T> T getInterface(Object object, Class<T> type) {
+    return ((Invocable) engine).getInterface(object, type);
+  }
+
+  private final class TrackedScript extends CompiledScript {
+
+    private final CompiledScript script;
+
+    private TrackedScript(CompiledScript script) {
+      this.script = script;
+    }
+
+    @Override
+    public Object eval(ScriptContext context) throws ScriptException {
+      beforeChange.run();
+      return script.eval(context);
+    }
+
+    @Override
+    public ScriptEngine getEngine() {
+      return StateTrackingScriptEngine.this;
+    }
+  }
+}
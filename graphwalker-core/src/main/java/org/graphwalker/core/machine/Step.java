@@ -0,0 +1,124 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.model.Element;
+
+import java.util.List;
+import java.util.Objects;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+
+/**
+ * <h1>Step</h1>
+ * An immutable record of one step taken by a {@link Machine}.
+ * </p>
+ * A step only holds the ids and the name of what was executed, not the context or the element themselves,
+ * so that large numbers of steps can be buffered without keeping the models reachable through them. The context
+ * is identified by its index in the contexts of the machine, as several contexts may run the same model.
+ *
+ * @author Ivan Bonkin
+ * @see Machine#getNextSteps(int)
+ */
+public final class Step {
+
+  private final int contextIndex;
+  private final String elementId;
+  private final String elementName;
+  private final long timestamp;
+
+  public Step(int contextIndex, String elementId, String elementName, long timestamp) {
+    this.contextIndex = contextIndex;
+    this.elementId = elementId;
+    this.elementName = elementName;
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Records the current element of a context of the machine.
+   */
+  public static Step of(Machine machine, Context context) {
+    int contextIndex = indexOf(machine.getContexts(), context);
+    Element element = context.getCurrentElement();
+    return isNotNull(element)
+      ? new Step(contextIndex, element.getId(), element.getName(), System.currentTimeMillis())
+      : new Step(contextIndex, null, null, System.currentTimeMillis());
+  }
+
+  private static int indexOf(List<Context> contexts, Context context) {
+    for (int index = 0; index < contexts.size(); index++) {
+      if (contexts.get(index) == context) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the index of the context in {@link Machine#getContexts()}, or -1 if the context is not one of them
+   */
+  public int getContextIndex() {
+    return contextIndex;
+  }
+
+  public String getElementId() {
+    return elementId;
+  }
+
+  public String getElementName() {
+    return elementName;
+  }
+
+  /**
+   * @return the time the step was completed, in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    Step step = (Step) o;
+    return timestamp == step.timestamp &&
+      contextIndex == step.contextIndex &&
+      Objects.equals(elementId, step.elementId) &&
+      Objects.equals(elementName, step.elementName);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(contextIndex, elementId, elementName, timestamp);
+  }
+
+  @Override
+  public String toString() {
+    return contextIndex + ":" + elementName + "(" + elementId + ")@" + timestamp;
+  }
+}
@@ -0,0 +1,70 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter incremented by the code being measured, safe to increment from several threads.
+ *
+ * @author Ivan Bonkin
+ * @see MetricRegistry#counter(String, String)
+ */
+public final class Counter implements Collector {
+
+  private final String name;
+  private final String help;
+  private final LongAdder value = new LongAdder();
+
+  public Counter(String name, String help) {
+    this.name = name;
+    this.help = help;
+  }
+
+  public void increment() {
+    value.increment();
+  }
+
+  public void add(long amount) {
+    if (amount < 0) {
+      throw new IllegalArgumentException("A counter can not be decreased, but was added " + amount);
+    }
+    value.add(amount);
+  }
+
+  public long getValue() {
+    return value.sum();
+  }
+
+  @Override
+  public List<MetricFamily> collect() {
+    return Collections.singletonList(new MetricFamily(name, help, MetricType.COUNTER).addSample(getValue()));
+  }
+}
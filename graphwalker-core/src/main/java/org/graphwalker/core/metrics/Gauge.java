@@ -0,0 +1,60 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+/**
+ * A gauge reading its value when collected.
+ *
+ * @author Ivan Bonkin
+ * @see MetricRegistry#gauge(String, String, DoubleSupplier)
+ */
+public final class Gauge implements Collector {
+
+  private final String name;
+  private final String help;
+  private final DoubleSupplier value;
+
+  public Gauge(String name, String help, DoubleSupplier value) {
+    this.name = name;
+    this.help = help;
+    this.value = value;
+  }
+
+  public double getValue() {
+    return value.getAsDouble();
+  }
+
+  @Override
+  public List<MetricFamily> collect() {
+    return Collections.singletonList(new MetricFamily(name, help, MetricType.GAUGE).addSample(getValue()));
+  }
+}
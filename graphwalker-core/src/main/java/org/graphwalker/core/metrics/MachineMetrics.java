@@ -0,0 +1,248 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.event.EventType;
+import org.graphwalker.core.event.Observer;
+import org.graphwalker.core.generator.PathGenerator;
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.ExecutionContext;
+import org.graphwalker.core.machine.Machine;
+import org.graphwalker.core.machine.MachineBase;
+import org.graphwalker.core.model.Element;
+import org.graphwalker.core.statistics.Histogram;
+import org.graphwalker.core.statistics.Phase;
+import org.graphwalker.core.statistics.PhaseTimer;
+import org.graphwalker.core.statistics.Profiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.model.Edge.RuntimeEdge;
+import static org.graphwalker.core.model.Vertex.RuntimeVertex;
+
+/**
+ * <h1>MachineMetrics</h1>
+ * The MachineMetrics collects the metrics of a running machine: the steps taken and the steps per second, the
+ * guard and script evaluations, the latency of the path generation per generator, the edge and vertex coverage
+ * per context, and the depth of the queue of the asynchronous observers.
+ * </p>
+ * The collector observes the machine and keeps what it needs in fields of its own, so that it can be read from
+ * another thread while the machine is running. The latency of the path generation is taken from the
+ * {@link PhaseTimer} of the machine, so it is only reported for machines that have a timer set. The samples of
+ * a context are labelled with the name of its model and its index in the machine, as several contexts may share
+ * a model.
+ *
+ * @author Ivan Bonkin
+ */
+public final class MachineMetrics implements Collector, Observer, AutoCloseable {
+
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final Machine machine;
+  private final String[] labels;
+  private final Map<Context, Coverage> coverages = new LinkedHashMap<>();
+  private final Map<PathGenerator, Histogram> generationTimes = new LinkedHashMap<>();
+  private volatile long steps;
+  private long collectedSteps;
+  private long collectedTime;
+
+  /**
+   * Starts observing the machine.
+   *
+   * @param labels label names followed by their values, added to every sample, e.g. to tell machines apart
+   */
+  public MachineMetrics(Machine machine, String... labels) {
+    if (0 != labels.length % 2) {
+      throw new IllegalArgumentException("Labels should be given as name and value pairs");
+    }
+    this.machine = machine;
+    this.labels = labels.clone();
+    List<Context> contexts = machine.getContexts();
+    for (int index = 0; index < contexts.size(); index++) {
+      coverages.put(contexts.get(index), new Coverage(contexts.get(index), index, machine.getProfiler()));
+    }
+    steps = machine.getProfiler().getTotalVisitCount();
+    collectedSteps = steps;
+    collectedTime = System.nanoTime();
+    machine.addObserver(this);
+  }
+
+  @Override
+  public void update(Machine machine, Element element, EventType type) {
+    if (EventType.AFTER_ELEMENT == type) {
+      steps++;
+      Context context = machine.getCurrentContext();
+      Coverage coverage = coverages.get(context);
+      if (isNotNull(coverage)) {
+        coverage.visit(element);
+      }
+      PhaseTimer phaseTimer = machine.getPhaseTimer();
+      if (isNotNull(phaseTimer) && isNotNull(context.getPathGenerator())) {
+        synchronized (generationTimes) {
+          generationTimes.computeIfAbsent(context.getPathGenerator(), generator -> new Histogram())
+            .record(phaseTimer.getStepTime(Phase.PATH_GENERATION));
+        }
+      }
+    }
+  }
+
+  /**
+   * The steps per second are measured since the previous collection, or since the collector was created.
+   */
+  @Override
+  public synchronized List<MetricFamily> collect() {
+    long currentSteps = steps;
+    long currentTime = System.nanoTime();
+    double stepsPerSecond = currentTime > collectedTime
+      ? (currentSteps - collectedSteps) * NANOS_PER_SECOND / (currentTime - collectedTime) : 0;
+    collectedSteps = currentSteps;
+    collectedTime = currentTime;
+
+    List<MetricFamily> families = new ArrayList<>();
+    families.add(new MetricFamily("graphwalker_steps_total", "Steps taken by the machine", MetricType.COUNTER)
+      .addSample(currentSteps, labels()));
+    families.add(new MetricFamily("graphwalker_steps_per_second", "Steps per second since the previous scrape", MetricType.GAUGE)
+      .addSample(stepsPerSecond, labels()));
+
+    MetricFamily guardEvaluations = new MetricFamily("graphwalker_guard_evaluations_total",
+      "Guards evaluated, memoized results excluded", MetricType.COUNTER);
+    MetricFamily guardHits = new MetricFamily("graphwalker_guard_cache_hits_total",
+      "Guards answered by a memoized result", MetricType.COUNTER);
+    MetricFamily scriptEvaluations = new MetricFamily("graphwalker_script_evaluations_total",
+      "Guards, actions and scripts evaluated", MetricType.COUNTER);
+    MetricFamily edgeCoverage = new MetricFamily("graphwalker_edge_coverage_percent",
+      "Percentage of the edges of the model visited", MetricType.GAUGE);
+    MetricFamily vertexCoverage = new MetricFamily("graphwalker_vertex_coverage_percent",
+      "Percentage of the vertices of the model visited", MetricType.GAUGE);
+    for (Map.Entry<Context, Coverage> entry : coverages.entrySet()) {
+      Coverage coverage = entry.getValue();
+      String[] modelLabels = labels("model", coverage.model, "context", coverage.index);
+      if (entry.getKey() instanceof ExecutionContext) {
+        ExecutionContext context = (ExecutionContext) entry.getKey();
+        guardEvaluations.addSample(context.getGuardResultMisses(), modelLabels);
+        guardHits.addSample(context.getGuardResultHits(), modelLabels);
+        scriptEvaluations.addSample(context.getScriptEvaluations(), modelLabels);
+      }
+      if (0 < coverage.edges) {
+        edgeCoverage.addSample(100.0 * coverage.visitedEdges / coverage.edges, modelLabels);
+      }
+      if (0 < coverage.vertices) {
+        vertexCoverage.addSample(100.0 * coverage.visitedVertices / coverage.vertices, modelLabels);
+      }
+    }
+    families.addAll(Arrays.asList(guardEvaluations, guardHits, scriptEvaluations, edgeCoverage, vertexCoverage));
+
+    MetricFamily generation = new MetricFamily("graphwalker_path_generation_seconds",
+      "Time spent choosing the next element of a step", MetricType.SUMMARY);
+    synchronized (generationTimes) {
+      for (Map.Entry<PathGenerator, Histogram> entry : generationTimes.entrySet()) {
+        String generator = String.valueOf(entry.getKey());
+        Histogram histogram = entry.getValue();
+        for (double quantile : QUANTILES) {
+          generation.addSample(histogram.getPercentile(100 * quantile) / NANOS_PER_SECOND,
+            labels("generator", generator, "quantile", Double.toString(quantile)));
+        }
+        generation.addSample("graphwalker_path_generation_seconds_count", histogram.getCount(),
+          labels("generator", generator));
+        generation.addSample("graphwalker_path_generation_seconds_sum", histogram.getSum() / NANOS_PER_SECOND,
+          labels("generator", generator));
+      }
+    }
+    families.add(generation);
+
+    if (machine instanceof MachineBase && ((MachineBase) machine).hasEventBus()) {
+      MachineBase machineBase = (MachineBase) machine;
+      families.add(new MetricFamily("graphwalker_observer_queue_depth",
+        "Events waiting for the asynchronous observers", MetricType.GAUGE)
+        .addSample(machineBase.getEventBus().getQueueSize(), labels()));
+      families.add(new MetricFamily("graphwalker_observer_events_dropped_total",
+        "Events dropped because the queue of the asynchronous observers was full", MetricType.COUNTER)
+        .addSample(machineBase.getEventBus().getDroppedCount(), labels()));
+    }
+    return Collections.unmodifiableList(families);
+  }
+
+  /**
+   * Stops observing the machine.
+   */
+  @Override
+  public void close() {
+    machine.deleteObserver(this);
+  }
+
+  private String[] labels(String... labels) {
+    String[] all = Arrays.copyOf(labels, labels.length + this.labels.length);
+    System.arraycopy(this.labels, 0, all, labels.length, this.labels.length);
+    return all;
+  }
+
+  private static final class Coverage {
+
+    private final String model;
+    private final String index;
+    private final int edges;
+    private final int vertices;
+    private final Set<Element> visited = new HashSet<>();
+    private volatile int visitedEdges;
+    private volatile int visitedVertices;
+
+    private Coverage(Context context, int index, Profiler profiler) {
+      this.model = isNotNull(context.getModel().getName()) ? context.getModel().getName() : "";
+      this.index = Integer.toString(index);
+      this.edges = context.getModel().getEdges().size();
+      this.vertices = context.getModel().getVertices().size();
+      if (isNotNull(profiler)) {
+        for (Element element : profiler.getVisitedEdges(context)) {
+          visit(element);
+        }
+        for (Element element : profiler.getVisitedVertices(context)) {
+          visit(element);
+        }
+      }
+    }
+
+    private void visit(Element element) {
+      if (visited.add(element)) {
+        if (element instanceof RuntimeEdge) {
+          visitedEdges++;
+        } else if (element instanceof RuntimeVertex) {
+          visitedVertices++;
+        }
+      }
+    }
+  }
+}
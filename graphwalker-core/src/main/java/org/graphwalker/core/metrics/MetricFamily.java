@@ -0,0 +1,100 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The samples of a metric, sharing its name, description and type.
+ *
+ * @author Ivan Bonkin
+ */
+public final class MetricFamily {
+
+  private final String name;
+  private final String help;
+  private final MetricType type;
+  private final List<Sample> samples = new ArrayList<>();
+
+  public MetricFamily(String name, String help, MetricType type) {
+    this.name = name;
+    this.help = help;
+    this.type = type;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getHelp() {
+    return help;
+  }
+
+  public MetricType getType() {
+    return type;
+  }
+
+  public List<Sample> getSamples() {
+    return Collections.unmodifiableList(samples);
+  }
+
+  /**
+   * Adds a sample named after the family.
+   *
+   * @param labels label names followed by their values, e.g. {@code "model", "Login"}
+   */
+  public MetricFamily addSample(double value, String... labels) {
+    return addSample(name, value, labels);
+  }
+
+  /**
+   * Adds a sample with a name of its own, e.g. the {@code _count} and {@code _sum} of a summary.
+   *
+   * @param labels label names followed by their values, e.g. {@code "model", "Login"}
+   */
+  public MetricFamily addSample(String sampleName, double value, String... labels) {
+    if (0 != labels.length % 2) {
+      throw new IllegalArgumentException("Labels should be given as name and value pairs");
+    }
+    Map<String, String> map = new LinkedHashMap<>();
+    for (int i = 0; i < labels.length; i += 2) {
+      map.put(labels[i], labels[i + 1]);
+    }
+    samples.add(new Sample(sampleName, map, value));
+    return this;
+  }
+
+  MetricFamily addSamples(List<Sample> samples) {
+    this.samples.addAll(samples);
+    return this;
+  }
+}
@@ -0,0 +1,104 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+
+/**
+ * <h1>MetricRegistry</h1>
+ * The MetricRegistry holds the collectors of metrics, e.g. the {@link MachineMetrics} of running machines.
+ * </p>
+ * The metrics are read through {@link #collect()}, which the {@link PrometheusTextFormat}, the
+ * {@link MetricRegistryMBean} and the {@link MetricsHttpServer} are built upon. Collectors can be registered
+ * and unregistered while the registry is being read.
+ *
+ * @author Ivan Bonkin
+ */
+public class MetricRegistry {
+
+  private final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+  public <C extends Collector> C register(C collector) {
+    if (!collectors.contains(collector)) {
+      collectors.add(collector);
+    }
+    return collector;
+  }
+
+  public void unregister(Collector collector) {
+    collectors.remove(collector);
+  }
+
+  public List<Collector> getCollectors() {
+    return collectors;
+  }
+
+  public Counter counter(String name, String help) {
+    return register(new Counter(name, help));
+  }
+
+  public Gauge gauge(String name, String help, DoubleSupplier value) {
+    return register(new Gauge(name, help, value));
+  }
+
+  /**
+   * Reads the current values of all the collectors, the families of the same name are merged, e.g. when
+   * several machines are registered. The samples of a name should differ in their labels, e.g. by a label
+   * naming the machine, otherwise the metrics can't be told apart.
+   */
+  public List<MetricFamily> collect() {
+    Map<String, MetricFamily> families = new LinkedHashMap<>();
+    Set<List<Object>> samples = new HashSet<>();
+    for (Collector collector : collectors) {
+      for (MetricFamily family : collector.collect()) {
+        MetricFamily merged = families.computeIfAbsent(family.getName(),
+          name -> new MetricFamily(name, family.getHelp(), family.getType()));
+        if (merged.getType() != family.getType()) {
+          throw new IllegalStateException("Metric " + family.getName() + " is collected both as "
+                                          + merged.getType() + " and " + family.getType());
+        }
+        for (Sample sample : family.getSamples()) {
+          if (!samples.add(Arrays.asList(sample.getName(), sample.getLabels()))) {
+            throw new IllegalStateException("Metric " + sample.getName() + " is collected twice with the labels "
+                                            + sample.getLabels());
+          }
+        }
+        merged.addSamples(family.getSamples());
+      }
+    }
+    return new ArrayList<>(families.values());
+  }
+}
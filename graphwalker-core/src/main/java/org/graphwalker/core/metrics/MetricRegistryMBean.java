@@ -0,0 +1,153 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>MetricRegistryMBean</h1>
+ * The MetricRegistryMBean exposes the metrics of a registry as read-only attributes of a JMX MBean.
+ * </p>
+ * Every sample is an attribute of type {@link Double}, named as in the Prometheus format, e.g.
+ * {@code graphwalker_edge_coverage_percent{model="Login",context="0"}}. The attributes follow the collectors, so a machine
+ * registered later shows up the next time the MBean is inspected.
+ *
+ * @author Ivan Bonkin
+ */
+public final class MetricRegistryMBean implements DynamicMBean {
+
+  public static final String DOMAIN = "org.graphwalker";
+
+  private final MetricRegistry registry;
+
+  public MetricRegistryMBean(MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Registers the metrics of the registry at the platform MBean server, as {@code org.graphwalker:type=Metrics,name=...}.
+   */
+  public static ObjectName register(MetricRegistry registry, String name) throws JMException {
+    ObjectName objectName = new ObjectName(DOMAIN + ":type=Metrics,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricRegistryMBean(registry), objectName);
+    return objectName;
+  }
+
+  public static void unregister(ObjectName objectName) throws JMException {
+    ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Double value = getValues().get(attribute);
+    if (null == value) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return value;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metric " + attribute.getName() + " is read-only");
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    Map<String, Double> values = getValues();
+    AttributeList list = new AttributeList();
+    for (String attribute : attributes) {
+      if (values.containsKey(attribute)) {
+        list.add(new Attribute(attribute, values.get(attribute)));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+    throw new ReflectionException(new NoSuchMethodException(actionName));
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MetricFamily> families = registry.collect();
+    Map<String, MBeanAttributeInfo> attributes = new LinkedHashMap<>();
+    for (MetricFamily family : families) {
+      for (Sample sample : family.getSamples()) {
+        String name = getName(sample);
+        attributes.put(name, new MBeanAttributeInfo(name, Double.class.getName(), family.getHelp(), true, false, false));
+      }
+    }
+    return new MBeanInfo(getClass().getName(), "GraphWalker metrics",
+                         attributes.values().toArray(new MBeanAttributeInfo[0]), null, null, null);
+  }
+
+  private Map<String, Double> getValues() {
+    Map<String, Double> values = new LinkedHashMap<>();
+    for (MetricFamily family : registry.collect()) {
+      for (Sample sample : family.getSamples()) {
+        String name = getName(sample);
+        if (values.containsKey(name)) {
+          throw new IllegalStateException("Metric " + name + " is collected twice");
+        }
+        values.put(name, sample.getValue());
+      }
+    }
+    return values;
+  }
+
+  private static String getName(Sample sample) {
+    if (sample.getLabels().isEmpty()) {
+      return sample.getName();
+    }
+    StringBuilder builder = new StringBuilder(sample.getName()).append('{');
+    String separator = "";
+    for (Map.Entry<String, String> label : sample.getLabels().entrySet()) {
+      builder.append(separator).append(label.getKey()).append("=\"").append(label.getValue()).append('"');
+      separator = ",";
+    }
+    return builder.append('}').toString();
+  }
+}
@@ -0,0 +1,94 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h1>MetricsHttpServer</h1>
+ * The MetricsHttpServer serves the metrics of a registry in the Prometheus text format at {@code /metrics}, so
+ * that a run without a service of its own, e.g. an offline run, can be scraped while it is going on.
+ * </p>
+ * The server is built on the HTTP server of the JDK and answers on a thread of its own until it is closed.
+ *
+ * @author Ivan Bonkin
+ */
+public final class MetricsHttpServer implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsHttpServer.class);
+
+  public static final String PATH = "/metrics";
+
+  private final HttpServer server;
+
+  /**
+   * Starts serving the registry.
+   *
+   * @param port port to listen on, or 0 to pick a free one
+   */
+  public MetricsHttpServer(int port, MetricRegistry registry) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext(PATH, exchange -> handle(exchange, registry));
+    server.setExecutor(null);
+    server.start();
+    LOG.info("Serving metrics at http://localhost:{}{}", getPort(), PATH);
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private static void handle(HttpExchange exchange, MetricRegistry registry) throws IOException {
+    try {
+      byte[] body = PrometheusTextFormat.format(registry).getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", PrometheusTextFormat.CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    } catch (RuntimeException e) {
+      LOG.error("Could not collect the metrics: {}", e.getMessage());
+      exchange.sendResponseHeaders(500, -1);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,104 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders metrics in the text exposition format of Prometheus, version 0.0.4.
+ *
+ * @author Ivan Bonkin
+ */
+public abstract class PrometheusTextFormat {
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  public static String format(MetricRegistry registry) {
+    StringWriter writer = new StringWriter();
+    try {
+      write(writer, registry.collect());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return writer.toString();
+  }
+
+  public static void write(Writer writer, List<MetricFamily> families) throws IOException {
+    for (MetricFamily family : families) {
+      writer.write("# HELP " + family.getName() + " " + escape(family.getHelp(), false) + "\n");
+      writer.write("# TYPE " + family.getName() + " " + family.getType().name().toLowerCase() + "\n");
+      for (Sample sample : family.getSamples()) {
+        writer.write(sample.getName());
+        if (!sample.getLabels().isEmpty()) {
+          writer.write('{');
+          String separator = "";
+          for (Map.Entry<String, String> label : sample.getLabels().entrySet()) {
+            writer.write(separator + label.getKey() + "=\"" + escape(label.getValue(), true) + "\"");
+            separator = ",";
+          }
+          writer.write('}');
+        }
+        writer.write(" " + format(sample.getValue()) + "\n");
+      }
+    }
+  }
+
+  static String format(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    }
+    if (Double.isInfinite(value)) {
+      return 0 < value ? "+Inf" : "-Inf";
+    }
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  private static String escape(String text, boolean quoted) {
+    StringBuilder builder = new StringBuilder(text.length());
+    for (char c : text.toCharArray()) {
+      if ('\\' == c) {
+        builder.append("\\\\");
+      } else if ('\n' == c) {
+        builder.append("\\n");
+      } else if ('"' == c && quoted) {
+        builder.append("\\\"");
+      } else {
+        builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+}
@@ -60,6 +60,10 @@ public final class Argument {
     return type == TypePrefix.STRING ? "\"" + value + "\"" : value;
   }
 
+  public Object getTypedValue() {
+    return type.parse(value);
+  }
+
   public TypePrefix getType() {
     return type;
   }
@@ -27,6 +27,9 @@ package org.graphwalker.core.model;
  * #L%
  */
 
+import org.graphwalker.core.expression.SimpleExpressionEngine;
+import org.graphwalker.core.expression.UnsupportedExpressionException;
+
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -242,6 +245,8 @@ public class Model extends BuilderBase<Model, Model.RuntimeModel> {
    */
   public static class RuntimeModel extends RuntimeBase {
 
+    private static final SimpleExpressionEngine ANALYZER = new SimpleExpressionEngine();
+
     private final List<RuntimeVertex> vertices;
     private final List<RuntimeEdge> edges;
     private final List<Element> elementsCache;
@@ -252,6 +257,9 @@ public class Model extends BuilderBase<Model, Model.RuntimeModel> {
     private final Map<RuntimeVertex, List<RuntimeEdge>> inEdgesByVertexCache;
     private final Map<RuntimeVertex, List<RuntimeEdge>> outEdgesByVertexCache;
     private final Map<String, List<RuntimeVertex>> sharedStateCache;
+    private final Map<Guard, Set<String>> guardReadsCache;
+    private final Map<Action, Set<String>> actionWritesCache;
+    private final Set<String> writtenVariables;
 
     private RuntimeModel(Model model) {
       super(model.getId(), model.getName(), model.getDescription(), model.getActions(), model.getRequirements(), model.getProperties());
@@ -265,6 +273,9 @@ public class Model extends BuilderBase<Model, Model.RuntimeModel> {
       this.elementsByNameCache = createElementsByNameCache();
       this.elementsByElementCache = createElementsByElementCache(elementsCache, outEdgesByVertexCache);
       this.sharedStateCache = createSharedStateCache();
+      this.guardReadsCache = createGuardReadsCache();
+      this.actionWritesCache = createActionWritesCache();
+      this.writtenVariables = createWrittenVariables();
     }
 
     private RuntimeModel(RuntimeModel model, List<RuntimeEdge> edges) {
@@ -279,6 +290,9 @@ public class Model extends BuilderBase<Model, Model.RuntimeModel> {
       this.elementsByNameCache = createElementsByNameCache();
       this.elementsByElementCache = createElementsByElementCache(elementsCache, outEdgesByVertexCache);
       this.sharedStateCache = createSharedStateCache();
+      this.guardReadsCache = createGuardReadsCache();
+      this.actionWritesCache = createActionWritesCache();
+      this.writtenVariables = createWrittenVariables();
     }
 
     /**
@@ -461,6 +475,48 @@ public class Model extends BuilderBase<Model, Model.RuntimeModel> {
       return elementsByElementCache.get(element);
     }
 
+    /**
+     * Gets the variables read by a guard of the model.
+     *
+     * @param guard The guard of one of the edges of the model.
+     * @return The names of the variables, or null if the guard could not be analyzed.
+     * @see SimpleExpressionEngine#analyze
+     */
+    public Set<String> getReadVariables(Guard guard) {
+      return guardReadsCache.get(guard);
+    }
+
+    /**
+     * Gets the variables written by an action of the model or of one of its elements.
+     *
+     * @param action The action.
+     * @return The names of the variables, or null if the action could not be analyzed.
+     * @see SimpleExpressionEngine#analyze
+     */
+    public Set<String> getWrittenVariables(Action action) {
+      return actionWritesCache.get(action);
+    }
+
+    /**
+     * Gets the variables written by all actions of the model and of its elements.
+     *
+     * @return The names of the variables, or null if any of the actions could not be analyzed.
+     */
+    public Set<String> getWrittenVariables() {
+      return writtenVariables;
+    }
+
+    /**
+     * A guard is constant when it reads no variables, e.g. "true" or "1 < 2".
+     *
+     * @param guard The guard of one of the edges of the model.
+     * @return True if the value of the guard can not change as long as the model is not rebuilt.
+     */
+    public boolean isConstant(Guard guard) {
+      Set<String> reads = getReadVariables(guard);
+      return isNotNull(reads) && reads.isEmpty();
+    }
+
     private List<Element> createElementCache() {
       List<Element> elements = new ArrayList<>();
       elements.addAll(vertices);
@@ -567,6 +623,55 @@ public class Model extends BuilderBase<Model, Model.RuntimeModel> {
       return makeImmutable(sharedStateCache);
     }
 
+    private Map<Guard, Set<String>> createGuardReadsCache() {
+      Map<Guard, Set<String>> guardReadsCache = new HashMap<>();
+      for (RuntimeEdge edge : edges) {
+        if (edge.hasGuard()) {
+          try {
+            guardReadsCache.put(edge.getGuard(), ANALYZER.analyze(edge.getGuard().getScript()).getReads());
+          } catch (UnsupportedExpressionException e) {
+            // the guard could read anything
+          }
+        }
+      }
+      return unmodifiableMap(guardReadsCache);
+    }
+
+    private Map<Action, Set<String>> createActionWritesCache() {
+      Map<Action, Set<String>> actionWritesCache = new HashMap<>();
+      List<Action> actions = new ArrayList<>(getActions());
+      for (Element element : elementsCache) {
+        actions.addAll(element.getActions());
+      }
+      for (Action action : actions) {
+        try {
+          actionWritesCache.put(action, ANALYZER.analyze(action.getScript()).getWrites());
+        } catch (UnsupportedExpressionException e) {
+          // the action could write anything
+        }
+      }
+      return unmodifiableMap(actionWritesCache);
+    }
+
+    private Set<String> createWrittenVariables() {
+      Set<String> writtenVariables = new HashSet<>();
+      for (Action action : getActions()) {
+        if (!actionWritesCache.containsKey(action)) {
+          return null;
+        }
+        writtenVariables.addAll(actionWritesCache.get(action));
+      }
+      for (Element element : elementsCache) {
+        for (Action action : element.getActions()) {
+          if (!actionWritesCache.containsKey(action)) {
+            return null;
+          }
+          writtenVariables.addAll(actionWritesCache.get(action));
+        }
+      }
+      return unmodifiableSet(writtenVariables);
+    }
+
     private <K, E> Map<K, List<E>> makeImmutable(Map<K, List<E>> source) {
       Map<K, List<E>> map = new HashMap<>();
       for (K key : source.keySet()) {
@@ -48,6 +48,23 @@ public enum TypePrefix {
     return typeClass;
   }
 
+  /**
+   * Converts the textual value of an argument into an instance of the {@link #getTypeClass() type class}.
+   *
+   * @param value unquoted argument value
+   * @return converted value, or the value itself for {@link #VOID}
+   */
+  public Object parse(String value) {
+    switch (this) {
+      case NUMBER:
+        return Double.valueOf(value);
+      case BOOLEAN:
+        return Boolean.valueOf(value);
+      default:
+        return value;
+    }
+  }
+
   @Override
   public String toString() {
     return value;
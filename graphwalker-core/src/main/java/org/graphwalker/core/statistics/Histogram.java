@@ -0,0 +1,243 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * <h1>Histogram</h1>
+ * The Histogram keeps streaming statistics of execution times in a fixed amount of memory: the count, sum, minimum,
+ * maximum, first and last values, and log bucketed counts from which percentiles are estimated.
+ * </p>
+ * Each power of two is split into {@value #SUB_BUCKET_COUNT} linear sub buckets, so a percentile is within 1/16
+ * of the recorded value, while the buckets needed to cover every positive {@code long} never exceed 960. The
+ * buckets are allocated as far as the largest recorded value needs. Histograms of several elements, contexts or
+ * machines can be merged into one.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+public final class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final long[] EMPTY = new long[0];
+
+  private long[] buckets = EMPTY;
+  private long count = 0;
+  private long sum = 0;
+  private long min = Long.MAX_VALUE;
+  private long max = Long.MIN_VALUE;
+  private long first = 0;
+  private long last = 0;
+
+  /**
+   * Records a value, negative values are recorded as zero.
+   */
+  public void record(long value) {
+    value = Math.max(value, 0);
+    int index = indexOf(value);
+    if (index >= buckets.length) {
+      buckets = Arrays.copyOf(buckets, Math.max(index + 1, buckets.length + SUB_BUCKET_COUNT));
+    }
+    buckets[index]++;
+    if (0 == count) {
+      first = value;
+    }
+    last = value;
+    count++;
+    sum += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Adds the values recorded by another histogram. The first value is kept unless this histogram is empty, and the
+   * last value is taken from the other histogram unless it is empty.
+   */
+  public Histogram merge(Histogram other) {
+    if (0 == other.count) {
+      return this;
+    }
+    if (other.buckets.length > buckets.length) {
+      buckets = Arrays.copyOf(buckets, other.buckets.length);
+    }
+    for (int i = 0; i < other.buckets.length; i++) {
+      buckets[i] += other.buckets[i];
+    }
+    if (0 == count) {
+      first = other.first;
+    }
+    last = other.last;
+    count += other.count;
+    sum += other.sum;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    return this;
+  }
+
+  public Histogram copy() {
+    return new Histogram().merge(this);
+  }
+
+  /**
+   * Writes the recorded values, only the buckets holding values are written.
+   */
+  public void write(DataOutput output) throws IOException {
+    output.writeLong(count);
+    output.writeLong(sum);
+    output.writeLong(min);
+    output.writeLong(max);
+    output.writeLong(first);
+    output.writeLong(last);
+    int used = 0;
+    for (long bucket : buckets) {
+      if (0 != bucket) {
+        used++;
+      }
+    }
+    output.writeInt(buckets.length);
+    output.writeInt(used);
+    for (int i = 0; i < buckets.length; i++) {
+      if (0 != buckets[i]) {
+        output.writeInt(i);
+        output.writeLong(buckets[i]);
+      }
+    }
+  }
+
+  /**
+   * Reads back a histogram written by {@link #write(DataOutput)}.
+   */
+  public static Histogram read(DataInput input) throws IOException {
+    Histogram histogram = new Histogram();
+    histogram.count = input.readLong();
+    histogram.sum = input.readLong();
+    histogram.min = input.readLong();
+    histogram.max = input.readLong();
+    histogram.first = input.readLong();
+    histogram.last = input.readLong();
+    int length = input.readInt();
+    histogram.buckets = 0 == length ? EMPTY : new long[length];
+    for (int used = input.readInt(); used > 0; used--) {
+      int index = input.readInt();
+      if (index < 0 || index >= length) {
+        throw new IOException("Histogram bucket " + index + " is out of range");
+      }
+      histogram.buckets[index] = input.readLong();
+    }
+    return histogram;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getSum() {
+    return sum;
+  }
+
+  public long getMin() {
+    return checkRecorded(min);
+  }
+
+  public long getMax() {
+    return checkRecorded(max);
+  }
+
+  public long getFirst() {
+    return checkRecorded(first);
+  }
+
+  public long getLast() {
+    return checkRecorded(last);
+  }
+
+  public long getMean() {
+    return Math.round((double) checkRecorded(sum) / count);
+  }
+
+  /**
+   * Estimates the value below which the given percentage of the recorded values fall.
+   *
+   * @param percentile the percentage, from 0 to 100, e.g. 99.9
+   * @return the upper bound of the bucket holding the percentile, clamped to the recorded minimum and maximum, or
+   * the minimum for the 0th percentile
+   */
+  public long getPercentile(double percentile) {
+    checkRecorded(count);
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("A percentile must be between 0 and 100");
+    }
+    if (0 == percentile) {
+      return min;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      seen += buckets[i];
+      if (seen >= rank) {
+        return Math.max(min, Math.min(max, upperBoundOf(i)));
+      }
+    }
+    return max;
+  }
+
+  private long checkRecorded(long value) {
+    if (0 == count) {
+      throw new MissingExecutionException();
+    }
+    return value;
+  }
+
+  private static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + mantissa;
+  }
+
+  private static long lowerBoundOf(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+    long mantissa = index % SUB_BUCKET_COUNT;
+    return (SUB_BUCKET_COUNT + mantissa) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  private static long upperBoundOf(int index) {
+    long next = lowerBoundOf(index + 1);
+    return next < 0 ? Long.MAX_VALUE : next - 1;
+  }
+}
@@ -0,0 +1,510 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.model.Edge.RuntimeEdge;
+import org.graphwalker.core.model.Element;
+import org.graphwalker.core.model.Vertex.RuntimeVertex;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.common.Objects.isNull;
+import static org.graphwalker.core.model.Model.RuntimeModel;
+
+/**
+ * <h1>IndexedProfiler</h1>
+ * The IndexedProfiler is a {@link Profiler} keeping its statistics in primitive arrays indexed by the position of
+ * the elements in the model of each context, instead of hashing the elements into maps of executions.
+ * </p>
+ * The elements are looked up by identity, falling back to their ids, so no runtime element is deep hashed. Visit
+ * counts and execution time histograms are accumulated in place, the visited elements are kept in a
+ * {@link BitSet}, and the execution path is stored column wise, so once an element has been
+ * profiled its visits allocate no objects. The visited queries cost O(popcount), the
+ * unvisited ones O(number of unvisited elements), and the executions of {@link #getExecutionPath()} are created on
+ * access.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+public class IndexedProfiler implements Profiler {
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private final Map<Context, ContextProfile> profiles = new LinkedHashMap<>();
+  private final List<ContextProfile> contextProfiles = new ArrayList<>();
+  private final List<VisitListener> visitListeners = new ArrayList<>();
+  private final List<Execution> executionPath;
+
+  private long startTime = 0;
+  private long totalVisitCount = 0;
+  private long totalExecutionTime = 0;
+
+  /**
+   * Creates a profiler retaining its whole execution path in primitive arrays.
+   */
+  public IndexedProfiler() {
+    this.executionPath = new ExecutionPath();
+  }
+
+  /**
+   * Creates a profiler retaining its execution path in the given list, e.g. a {@link RingExecutionPath} keeping
+   * the last executions or a {@link SpillingExecutionPath} spilling them to a file.
+   */
+  public IndexedProfiler(List<Execution> executionPath) {
+    this.executionPath = executionPath;
+  }
+
+  @Override
+  public void addContext(Context context) {
+    getContextProfile(context);
+  }
+
+  @Override
+  public Set<Context> getContexts() {
+    return profiles.keySet();
+  }
+
+  @Override
+  public void start(Context context) {
+    ContextProfile profile = getContextProfile(context);
+    int index = profile.indexOf(context.getCurrentElement(), true);
+    boolean firstVisit = !profile.visited.get(index);
+    profile.visited.set(index);
+    notifyVisitListeners(context, context.getCurrentElement(), firstVisit);
+    startTime = System.nanoTime();
+  }
+
+  @Override
+  public void stop(Context context) {
+    long stopTime = System.nanoTime();
+    ContextProfile profile = getContextProfile(context);
+    record(profile, profile.indexOf(context.getCurrentElement(), true), startTime, stopTime - startTime);
+  }
+
+  @Override
+  public void add(Execution execution) {
+    ContextProfile profile = getContextProfile(execution.getContext());
+    int index = profile.indexOf(execution.getElement(), true);
+    boolean firstVisit = !profile.visited.get(index);
+    profile.visited.set(index);
+    record(profile, index, execution.getTime(), execution.getDuration());
+    notifyVisitListeners(execution.getContext(), execution.getElement(), firstVisit);
+  }
+
+  @Override
+  public void add(Profile other) {
+    ContextProfile profile = getContextProfile(other.getContext());
+    int index = profile.indexOf(other.getElement(), true);
+    boolean firstVisit = !profile.visited.get(index);
+    profile.visited.set(index);
+    profile.merge(index, other.getHistogram());
+    totalVisitCount += other.getExecutionCount();
+    totalExecutionTime += other.getHistogram().getSum();
+    notifyVisitListeners(other.getContext(), other.getElement(), firstVisit);
+  }
+
+  private void record(ContextProfile profile, int index, long time, long duration) {
+    profile.record(index, duration);
+    if (executionPath instanceof ExecutionPath) {
+      ((ExecutionPath) executionPath).add(profile.position, index, time, duration);
+    } else {
+      executionPath.add(new Execution(profile.context, profile.elements.get(index), time, duration));
+    }
+    totalVisitCount++;
+    totalExecutionTime += duration;
+  }
+
+  @Override
+  public boolean isVisited(Context context, Element element) {
+    ContextProfile profile = profiles.get(context);
+    if (isNull(profile)) {
+      return false;
+    }
+    int index = profile.indexOf(element, false);
+    return -1 != index && profile.visited.get(index);
+  }
+
+  @Override
+  public long getTotalVisitCount() {
+    return totalVisitCount;
+  }
+
+  @Override
+  public long getVisitCount(Context context, Element element) {
+    ContextProfile profile = profiles.get(context);
+    if (isNull(profile)) {
+      return 0L;
+    }
+    int index = profile.indexOf(element, false);
+    return -1 == index ? 0L : profile.counts[index];
+  }
+
+  @Override
+  public List<Element> getUnvisitedElements() {
+    return collect(this::getUnvisitedElements);
+  }
+
+  @Override
+  public List<Element> getUnvisitedElements(Context context) {
+    return getUnvisited(context, element -> true);
+  }
+
+  @Override
+  public List<Element> getVisitedEdges() {
+    return collect(this::getVisitedEdges);
+  }
+
+  @Override
+  public List<Element> getVisitedEdges(Context context) {
+    return getVisited(context, element -> element instanceof RuntimeEdge);
+  }
+
+  @Override
+  public List<Element> getUnvisitedEdges() {
+    return collect(this::getUnvisitedEdges);
+  }
+
+  @Override
+  public List<Element> getUnvisitedEdges(Context context) {
+    return getUnvisited(context, element -> element instanceof RuntimeEdge);
+  }
+
+  @Override
+  public List<Element> getUnvisitedVertices() {
+    return collect(this::getUnvisitedVertices);
+  }
+
+  @Override
+  public List<Element> getUnvisitedVertices(Context context) {
+    return getUnvisited(context, element -> element instanceof RuntimeVertex);
+  }
+
+  @Override
+  public List<Element> getVisitedVertices() {
+    return collect(this::getVisitedVertices);
+  }
+
+  @Override
+  public List<Element> getVisitedVertices(Context context) {
+    return getVisited(context, element -> element instanceof RuntimeVertex);
+  }
+
+  private List<Element> getVisited(Context context, Predicate<Element> filter) {
+    return profiles.containsKey(context) ? getContextProfile(context).getVisited(filter) : new ArrayList<>();
+  }
+
+  private List<Element> getUnvisited(Context context, Predicate<Element> filter) {
+    if (profiles.containsKey(context)) {
+      return getContextProfile(context).getUnvisited(filter);
+    }
+    return context.getModel().getElements().stream().filter(filter).collect(Collectors.toList());
+  }
+
+  private List<Element> collect(Function<Context, List<Element>> query) {
+    return new ArrayList<>(profiles.keySet()).stream()
+      .map(query)
+      .flatMap(Collection::stream)
+      .collect(Collectors.toList());
+  }
+
+  @Override
+  public List<Execution> getExecutionPath() {
+    return executionPath;
+  }
+
+  @Override
+  public long getTotalExecutionTime() {
+    return getTotalExecutionTime(TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public long getTotalExecutionTime(TimeUnit unit) {
+    return unit.convert(totalExecutionTime, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public List<Profile> getProfiles() {
+    List<Profile> result = new ArrayList<>();
+    for (ContextProfile profile : contextProfiles) {
+      for (int index = profile.visited.nextSetBit(0); index >= 0; index = profile.visited.nextSetBit(index + 1)) {
+        result.add(profile.getProfile(index));
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Profile getProfile(Context context, Element element) {
+    if (!profiles.containsKey(context)) {
+      return new Profile(context, element, new Histogram());
+    }
+    ContextProfile profile = getContextProfile(context);
+    int index = profile.indexOf(element, false);
+    return -1 == index ? new Profile(context, element, new Histogram()) : profile.getProfile(index);
+  }
+
+  @Override
+  public boolean addVisitListener(VisitListener listener) {
+    if (!visitListeners.contains(listener)) {
+      visitListeners.add(listener);
+    }
+    return true;
+  }
+
+  @Override
+  public void removeVisitListener(VisitListener listener) {
+    visitListeners.remove(listener);
+  }
+
+  private void notifyVisitListeners(Context context, Element element, boolean firstVisit) {
+    for (VisitListener listener : visitListeners) {
+      listener.visited(context, element, firstVisit);
+    }
+  }
+
+  private ContextProfile getContextProfile(Context context) {
+    ContextProfile profile = profiles.get(context);
+    if (isNull(profile)) {
+      profile = new ContextProfile(context, contextProfiles.size());
+      profiles.put(context, profile);
+      contextProfiles.add(profile);
+    } else if (profile.model != context.getModel()) {
+      int[] indexes = profile.reindex(context.getModel());
+      if (executionPath instanceof ExecutionPath) {
+        ((ExecutionPath) executionPath).reindex(profile.position, indexes);
+      }
+    }
+    return profile;
+  }
+
+  /**
+   * The statistics of a context, indexed by the positions of the elements in its model. Elements visited but not
+   * found in the model are appended after the model elements.
+   */
+  private static final class ContextProfile {
+
+    private final Context context;
+    private final int position;
+    private RuntimeModel model;
+    private int modelSize;
+    private List<Element> elements;
+    private Map<Element, Integer> indexesByElement;
+    private Map<String, Integer> indexesById;
+    private BitSet visited;
+    private long[] counts;
+    private Histogram[] histograms;
+
+    private ContextProfile(Context context, int position) {
+      this.context = context;
+      this.position = position;
+      this.model = context.getModel();
+      this.elements = new ArrayList<>(isNull(model) ? Collections.<Element>emptyList() : model.getElements());
+      this.modelSize = elements.size();
+      this.visited = new BitSet(modelSize);
+      allocate(Math.max(modelSize, 1));
+      index();
+    }
+
+    private void allocate(int capacity) {
+      counts = new long[capacity];
+      histograms = new Histogram[capacity];
+    }
+
+    private void index() {
+      indexesByElement = new IdentityHashMap<>(elements.size());
+      indexesById = new HashMap<>(elements.size());
+      for (int index = 0; index < elements.size(); index++) {
+        Element element = elements.get(index);
+        indexesByElement.put(element, index);
+        if (isNotNull(element.getId())) {
+          indexesById.putIfAbsent(element.getId(), index);
+        }
+      }
+    }
+
+    /**
+     * Moves the statistics to the elements of a new model, matching the elements by their ids.
+     *
+     * @return the new indexes of the visited elements, by their previous indexes
+     */
+    private int[] reindex(RuntimeModel model) {
+      List<Element> previousElements = elements;
+      BitSet previousVisited = visited;
+      long[] previousCounts = counts;
+      Histogram[] previousHistograms = histograms;
+      this.model = model;
+      this.elements = new ArrayList<>(isNull(model) ? Collections.<Element>emptyList() : model.getElements());
+      this.modelSize = elements.size();
+      this.visited = new BitSet(modelSize);
+      allocate(Math.max(modelSize, 1));
+      index();
+      int[] indexes = new int[previousElements.size()];
+      for (int previous = previousVisited.nextSetBit(0); previous >= 0; previous = previousVisited.nextSetBit(previous + 1)) {
+        int index = indexOf(previousElements.get(previous), true);
+        indexes[previous] = index;
+        visited.set(index);
+        counts[index] = previousCounts[previous];
+        histograms[index] = previousHistograms[previous];
+      }
+      return indexes;
+    }
+
+    private int indexOf(Element element, boolean append) {
+      Integer index = indexesByElement.get(element);
+      if (isNull(index) && isNotNull(element) && isNotNull(element.getId())) {
+        index = indexesById.get(element.getId());
+      }
+      if (isNotNull(index)) {
+        return index;
+      }
+      if (!append) {
+        return -1;
+      }
+      int appended = elements.size();
+      elements.add(element);
+      indexesByElement.put(element, appended);
+      if (isNotNull(element) && isNotNull(element.getId())) {
+        indexesById.putIfAbsent(element.getId(), appended);
+      }
+      if (appended == counts.length) {
+        int capacity = counts.length << 1;
+        counts = Arrays.copyOf(counts, capacity);
+        histograms = Arrays.copyOf(histograms, capacity);
+      }
+      return appended;
+    }
+
+    private void record(int index, long duration) {
+      if (isNull(histograms[index])) {
+        histograms[index] = new Histogram();
+      }
+      histograms[index].record(duration);
+      counts[index]++;
+    }
+
+    private void merge(int index, Histogram histogram) {
+      if (isNull(histograms[index])) {
+        histograms[index] = new Histogram();
+      }
+      histograms[index].merge(histogram);
+      counts[index] += histogram.getCount();
+    }
+
+    private List<Element> getVisited(Predicate<Element> filter) {
+      List<Element> result = new ArrayList<>();
+      for (int index = visited.nextSetBit(0); index >= 0 && index < modelSize; index = visited.nextSetBit(index + 1)) {
+        if (filter.test(elements.get(index))) {
+          result.add(elements.get(index));
+        }
+      }
+      return result;
+    }
+
+    private List<Element> getUnvisited(Predicate<Element> filter) {
+      List<Element> result = new ArrayList<>();
+      for (int index = visited.nextClearBit(0); index < modelSize; index = visited.nextClearBit(index + 1)) {
+        if (filter.test(elements.get(index))) {
+          result.add(elements.get(index));
+        }
+      }
+      return result;
+    }
+
+    private Profile getProfile(int index) {
+      return new Profile(context, elements.get(index), isNull(histograms[index]) ? new Histogram() : histograms[index]);
+    }
+  }
+
+  /**
+   * The execution path stored column wise, its executions are created when they are accessed.
+   */
+  private final class ExecutionPath extends AbstractList<Execution> implements RandomAccess {
+
+    private int[] contexts = new int[INITIAL_CAPACITY];
+    private int[] elements = new int[INITIAL_CAPACITY];
+    private long[] times = new long[INITIAL_CAPACITY];
+    private long[] durations = new long[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private void add(int context, int element, long time, long duration) {
+      if (size == contexts.length) {
+        int capacity = size << 1;
+        contexts = Arrays.copyOf(contexts, capacity);
+        elements = Arrays.copyOf(elements, capacity);
+        times = Arrays.copyOf(times, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+      }
+      contexts[size] = context;
+      elements[size] = element;
+      times[size] = time;
+      durations[size] = duration;
+      size++;
+      modCount++;
+    }
+
+    private void reindex(int context, int[] indexes) {
+      for (int i = 0; i < size; i++) {
+        if (context == contexts[i]) {
+          elements[i] = indexes[elements[i]];
+        }
+      }
+    }
+
+    @Override
+    public Execution get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      ContextProfile profile = contextProfiles.get(contexts[index]);
+      return new Execution(profile.context, profile.elements.get(elements[index]), times[index], durations[index]);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+/**
+ * The phases of a step timed by a {@link PhaseTimer}.
+ *
+ * @author Ivan Bonkin
+ */
+public enum Phase {
+
+  /**
+   * Choosing the next element and checking the stop conditions, guards and shared states excluded.
+   */
+  PATH_GENERATION,
+
+  /**
+   * Evaluating the guards of the edges.
+   */
+  GUARDS,
+
+  /**
+   * Executing the actions of the edges.
+   */
+  ACTIONS,
+
+  /**
+   * Looking for shared states and switching to another context.
+   */
+  SHARED_STATE,
+
+  /**
+   * Notifying the observers.
+   */
+  OBSERVERS,
+
+  /**
+   * Calling the methods of the system under test.
+   */
+  SUT
+}
@@ -0,0 +1,159 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.generator.PathGenerator;
+import org.graphwalker.core.machine.Context;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.common.Objects.isNull;
+
+/**
+ * <h1>PhaseTimer</h1>
+ * The PhaseTimer breaks the wall time of each step down into the {@link Phase}s of the machine, to tell whether
+ * GraphWalker or the system under test is the bottleneck. It is opt in, a machine is only instrumented when a timer
+ * is set with {@link org.graphwalker.core.machine.MachineBase#setPhaseTimer(PhaseTimer)}.
+ * </p>
+ * Phases can be nested, e.g. guards are evaluated while generating the path, and the time of a nested phase is
+ * only charged to that phase. The time charged to each phase during a step, including the preceding
+ * {@link org.graphwalker.core.machine.Machine#hasNextStep()} calls, is recorded in nanoseconds into histograms per
+ * context and per path generator when the step ends.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+public final class PhaseTimer {
+
+  private static final Phase[] PHASES = Phase.values();
+
+  private final long[] stepTimes = new long[PHASES.length];
+  private final Map<Context, Histogram[]> contextTimes = new LinkedHashMap<>();
+  private final Map<PathGenerator, Histogram[]> generatorTimes = new LinkedHashMap<>();
+  private Phase[] phases = new Phase[8];
+  private int depth = 0;
+  private long segmentStart;
+
+  /**
+   * Starts timing a phase, the phase being timed, if any, is paused until the new phase is stopped.
+   */
+  public void start(Phase phase) {
+    long now = System.nanoTime();
+    if (0 < depth) {
+      stepTimes[phases[depth - 1].ordinal()] += now - segmentStart;
+    }
+    if (depth == phases.length) {
+      phases = Arrays.copyOf(phases, depth << 1);
+    }
+    phases[depth++] = phase;
+    segmentStart = now;
+  }
+
+  /**
+   * Stops timing the last started phase, and resumes the phase it paused.
+   */
+  public void stop() {
+    long now = System.nanoTime();
+    if (0 < depth) {
+      stepTimes[phases[--depth].ordinal()] += now - segmentStart;
+      segmentStart = now;
+    }
+  }
+
+  /**
+   * Records the times of the step into the histograms of the context and of its path generator.
+   */
+  public void endStep(Context context) {
+    record(contextTimes.computeIfAbsent(context, key -> createHistograms()));
+    if (isNotNull(context.getPathGenerator())) {
+      record(generatorTimes.computeIfAbsent(context.getPathGenerator(), key -> createHistograms()));
+    }
+    Arrays.fill(stepTimes, 0);
+  }
+
+  private void record(Histogram[] histograms) {
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i].record(stepTimes[i]);
+    }
+  }
+
+  private static Histogram[] createHistograms() {
+    Histogram[] histograms = new Histogram[PHASES.length];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new Histogram();
+    }
+    return histograms;
+  }
+
+  /**
+   * @return the nanoseconds charged to the phase since the last step ended
+   */
+  public long getStepTime(Phase phase) {
+    return stepTimes[phase.ordinal()];
+  }
+
+  public Set<Context> getContexts() {
+    return contextTimes.keySet();
+  }
+
+  public Set<PathGenerator> getPathGenerators() {
+    return generatorTimes.keySet();
+  }
+
+  public Histogram getHistogram(Context context, Phase phase) {
+    return getHistogram(contextTimes.get(context), phase);
+  }
+
+  public Histogram getHistogram(PathGenerator pathGenerator, Phase phase) {
+    return getHistogram(generatorTimes.get(pathGenerator), phase);
+  }
+
+  /**
+   * @return the times of the phase merged over all the contexts
+   */
+  public Histogram getHistogram(Phase phase) {
+    return merge(contextTimes.values(), phase);
+  }
+
+  private static Histogram getHistogram(Histogram[] histograms, Phase phase) {
+    return isNull(histograms) ? new Histogram() : histograms[phase.ordinal()];
+  }
+
+  private static Histogram merge(Collection<Histogram[]> histograms, Phase phase) {
+    Histogram merged = new Histogram();
+    for (Histogram[] phaseHistograms : histograms) {
+      merged.merge(phaseHistograms[phase.ordinal()]);
+    }
+    return merged;
+  }
+}
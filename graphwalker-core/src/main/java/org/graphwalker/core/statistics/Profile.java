@@ -33,6 +33,8 @@ import org.graphwalker.core.model.Element;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import static org.graphwalker.core.common.Objects.isNotNull;
+
 /**
  * @author Nils Olsson
  */
@@ -40,12 +42,24 @@ public class Profile {
 
   private final Context context;
   private final Element element;
-  private final List<Execution> executions;
+  private final Histogram histogram;
 
   public Profile(Context context, Element element, List<Execution> executions) {
+    this(context, element, new Histogram());
+    if (isNotNull(executions)) {
+      for (Execution execution : executions) {
+        histogram.record(execution.getDuration());
+      }
+    }
+  }
+
+  /**
+   * Creates a profile from the execution times in nanoseconds recorded by the profiler.
+   */
+  public Profile(Context context, Element element, Histogram histogram) {
     this.context = context;
     this.element = element;
-    this.executions = executions;
+    this.histogram = histogram;
   }
 
   public Context getContext() {
@@ -56,8 +70,15 @@ public class Profile {
     return element;
   }
 
+  /**
+   * @return the execution times in nanoseconds, which can be merged with the ones of other profiles
+   */
+  public Histogram getHistogram() {
+    return histogram;
+  }
+
   public long getExecutionCount() {
-    return executions.size();
+    return histogram.getCount();
   }
 
   public long getMinExecutionTime() {
@@ -65,9 +86,7 @@ public class Profile {
   }
 
   public long getMinExecutionTime(TimeUnit unit) {
-    return unit.convert(executions.stream()
-      .mapToLong(Execution::getDuration).min()
-      .orElseThrow(MissingExecutionException::new), TimeUnit.NANOSECONDS);
+    return unit.convert(histogram.getMin(), TimeUnit.NANOSECONDS);
   }
 
   public long getMaxExecutionTime() {
@@ -75,9 +94,7 @@ public class Profile {
   }
 
   public long getMaxExecutionTime(TimeUnit unit) {
-    return unit.convert(executions.stream()
-      .mapToLong(Execution::getDuration).max()
-      .orElseThrow(MissingExecutionException::new), TimeUnit.NANOSECONDS);
+    return unit.convert(histogram.getMax(), TimeUnit.NANOSECONDS);
   }
 
   public long getTotalExecutionTime() {
@@ -85,8 +102,7 @@ public class Profile {
   }
 
   public long getTotalExecutionTime(TimeUnit unit) {
-    return unit.convert(executions.stream()
-      .mapToLong(Execution::getDuration).sum(), TimeUnit.NANOSECONDS);
+    return unit.convert(histogram.getSum(), TimeUnit.NANOSECONDS);
   }
 
   public long getAverageExecutionTime() {
@@ -94,9 +110,15 @@ public class Profile {
   }
 
   public long getAverageExecutionTime(TimeUnit unit) {
-    return unit.convert(Math.round(executions.stream()
-      .mapToLong(Execution::getDuration).average()
-      .orElseThrow(MissingExecutionException::new)), TimeUnit.NANOSECONDS);
+    return unit.convert(histogram.getMean(), TimeUnit.NANOSECONDS);
+  }
+
+  public long getPercentileExecutionTime(double percentile) {
+    return getPercentileExecutionTime(percentile, TimeUnit.NANOSECONDS);
+  }
+
+  public long getPercentileExecutionTime(double percentile, TimeUnit unit) {
+    return unit.convert(histogram.getPercentile(percentile), TimeUnit.NANOSECONDS);
   }
 
   public long getFirstExecutionTime() {
@@ -104,8 +126,7 @@ public class Profile {
   }
 
   public long getFirstExecutionTime(TimeUnit unit) {
-    return executions.stream().findFirst()
-      .orElseThrow(MissingExecutionException::new).getDuration(unit);
+    return unit.convert(histogram.getFirst(), TimeUnit.NANOSECONDS);
   }
 
   public long getLastExecutionTime() {
@@ -113,7 +134,6 @@ public class Profile {
   }
 
   public long getLastExecutionTime(TimeUnit unit) {
-    return executions.stream().reduce((first, second) -> second)
-      .orElseThrow(MissingExecutionException::new).getDuration(unit);
+    return unit.convert(histogram.getLast(), TimeUnit.NANOSECONDS);
   }
 }
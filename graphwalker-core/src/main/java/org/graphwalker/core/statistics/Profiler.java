@@ -42,6 +42,26 @@ public interface Profiler {
   Set<Context> getContexts();
   void start(Context context);
   void stop(Context context);
+
+  /**
+   * Adds an execution recorded earlier, as if the context had visited the element.
+   *
+   * @throws UnsupportedOperationException if the profiler only records the visits it times itself
+   */
+  default void add(Execution execution) {
+    throw new UnsupportedOperationException(getClass().getName() + " does not take recorded executions");
+  }
+
+  /**
+   * Adds the visits and execution times of a profile recorded earlier, e.g. when a machine is resumed from a
+   * checkpoint. Unlike {@link #add(Execution)} nothing is added to the execution path.
+   *
+   * @throws UnsupportedOperationException if the profiler only records the visits it times itself
+   */
+  default void add(Profile profile) {
+    throw new UnsupportedOperationException(getClass().getName() + " does not take recorded profiles");
+  }
+
   long getTotalVisitCount();
   long getVisitCount(Context context, Element element);
   List<Element> getUnvisitedElements();
@@ -60,4 +80,16 @@ public interface Profiler {
   long getTotalExecutionTime(TimeUnit unit);
   List<Profile> getProfiles();
   Profile getProfile(Context context, Element element);
+
+  /**
+   * Registers a listener notified when a context starts visiting an element.
+   *
+   * @return false if the profiler does not notify listeners, so its visits have to be polled
+   */
+  default boolean addVisitListener(VisitListener listener) {
+    return false;
+  }
+
+  default void removeVisitListener(VisitListener listener) {
+  }
 }
@@ -0,0 +1,97 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * <h1>RingExecutionPath</h1>
+ * The RingExecutionPath is an execution path retaining only the last executions, up to a fixed capacity, so a
+ * profiler using it keeps a bounded amount of memory however long the machine runs. The oldest execution is
+ * overwritten when a new one is added to a full path.
+ * </p>
+ * The visit counts and statistics of the profiler, and the checkpoints of a machine, still cover every execution.
+ * A truncated path can not be replayed by a {@link org.graphwalker.core.machine.ReplayMachine}, an
+ * {@link org.graphwalker.core.machine.ExecutionJournal} records the whole execution for that instead.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+public final class RingExecutionPath extends AbstractList<Execution> implements RandomAccess {
+
+  private final Execution[] executions;
+  private int start = 0;
+  private int size = 0;
+
+  public RingExecutionPath(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity of an execution path must be positive");
+    }
+    this.executions = new Execution[capacity];
+  }
+
+  public int getCapacity() {
+    return executions.length;
+  }
+
+  @Override
+  public boolean add(Execution execution) {
+    if (size < executions.length) {
+      executions[(start + size) % executions.length] = execution;
+      size++;
+    } else {
+      executions[start] = execution;
+      start = (start + 1) % executions.length;
+    }
+    modCount++;
+    return true;
+  }
+
+  @Override
+  public Execution get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return executions[(start + index) % executions.length];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(executions, null);
+    start = 0;
+    size = 0;
+    modCount++;
+  }
+}
@@ -0,0 +1,136 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.model.Element;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.common.Objects.isNull;
+import static org.graphwalker.core.model.Edge.RuntimeEdge;
+import static org.graphwalker.core.model.Model.RuntimeModel;
+
+/**
+ * <h1>SharedCoverage</h1>
+ * The SharedCoverage is a lock free bitmap of the elements visited by cooperating machines walking the same model.
+ * </p>
+ * Contexts sharing an instance publish each visit to it, and the coverage stop conditions and the
+ * {@link org.graphwalker.core.generator.QuickRandomPath} generator take the visits of the other machines into
+ * account, so the walkers steer towards elements nobody has visited yet. Elements are looked up by their ids,
+ * so the contexts have to use the same runtime model, or models built from the same model with the same ids.
+ * Listeners are told about the elements visited for the first time, on the thread of the visiting machine.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+public final class SharedCoverage {
+
+  private final Map<String, Integer> indexes = new HashMap<>();
+  private final AtomicLongArray words;
+  private final AtomicInteger visitedEdgeCount = new AtomicInteger();
+  private final AtomicInteger visitedVertexCount = new AtomicInteger();
+  private final CopyOnWriteArrayList<Consumer<Element>> listeners = new CopyOnWriteArrayList<>();
+  private final int edgeCount;
+  private final int vertexCount;
+
+  public SharedCoverage(RuntimeModel model) {
+    List<Element> elements = model.getElements();
+    for (int i = 0; i < elements.size(); i++) {
+      indexes.put(elements.get(i).getId(), i);
+    }
+    this.words = new AtomicLongArray((elements.size() + 63) >>> 6);
+    this.edgeCount = model.getEdges().size();
+    this.vertexCount = model.getVertices().size();
+  }
+
+  /**
+   * Marks the element as visited.
+   *
+   * @return true if no machine has visited the element before
+   */
+  public boolean visit(Element element) {
+    Integer index = indexes.get(element.getId());
+    if (isNull(index)) {
+      return false;
+    }
+    long bit = 1L << index;
+    int word = index >>> 6;
+    long current;
+    do {
+      current = words.get(word);
+      if (0 != (current & bit)) {
+        return false;
+      }
+    } while (!words.compareAndSet(word, current, current | bit));
+    if (element instanceof RuntimeEdge) {
+      visitedEdgeCount.incrementAndGet();
+    } else {
+      visitedVertexCount.incrementAndGet();
+    }
+    for (Consumer<Element> listener : listeners) {
+      listener.accept(element);
+    }
+    return true;
+  }
+
+  public void addListener(Consumer<Element> listener) {
+    listeners.addIfAbsent(listener);
+  }
+
+  public void removeListener(Consumer<Element> listener) {
+    listeners.remove(listener);
+  }
+
+  public boolean isVisited(Element element) {
+    Integer index = indexes.get(element.getId());
+    return isNotNull(index) && 0 != (words.get(index >>> 6) & (1L << index));
+  }
+
+  public int getVisitedEdgeCount() {
+    return visitedEdgeCount.get();
+  }
+
+  public int getVisitedVertexCount() {
+    return visitedVertexCount.get();
+  }
+
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+}
@@ -36,6 +36,7 @@ import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import static org.graphwalker.core.common.Objects.isNull;
 
 /**
  * @author Nils Olsson
@@ -43,9 +44,24 @@ import java.util.stream.Collectors;
 public class SimpleProfiler implements Profiler {
 
   private long startTime = 0;
+  private long totalVisitCount = 0;
+  private long totalExecutionTime = 0;
 
-  private final Map<Context, Map<Element, List<Execution>>> executions = new HashMap<>();
-  private final List<Execution> executionPath = new ArrayList<>();
+  private final Map<Context, Map<Element, Histogram>> executions = new HashMap<>();
+  private final List<Execution> executionPath;
+  private final List<VisitListener> visitListeners = new ArrayList<>();
+
+  public SimpleProfiler() {
+    this(new ArrayList<>());
+  }
+
+  /**
+   * Creates a profiler retaining its execution path in the given list, e.g. a {@link RingExecutionPath} keeping
+   * the last executions or a {@link SpillingExecutionPath} spilling them to a file.
+   */
+  public SimpleProfiler(List<Execution> executionPath) {
+    this.executionPath = executionPath;
+  }
 
   @Override
   public void addContext(Context context) {
@@ -64,9 +80,11 @@ public class SimpleProfiler implements Profiler {
     if (!executions.containsKey(context)) {
       executions.put(context, new HashMap<>());
     }
-    if (!executions.get(context).containsKey(context.getCurrentElement())) {
-      executions.get(context).put(context.getCurrentElement(), new ArrayList<>());
+    boolean firstVisit = !executions.get(context).containsKey(context.getCurrentElement());
+    if (firstVisit) {
+      executions.get(context).put(context.getCurrentElement(), new Histogram());
     }
+    notifyVisitListeners(context, context.getCurrentElement(), firstVisit);
     startTime = System.nanoTime();
   }
 
@@ -75,7 +93,52 @@ public class SimpleProfiler implements Profiler {
     long stopTime = System.nanoTime();
     Execution execution = new Execution(context, context.getCurrentElement(), startTime, stopTime - startTime);
     executionPath.add(execution);
-    executions.get(context).get(context.getCurrentElement()).add(execution);
+    executions.get(context).get(context.getCurrentElement()).record(execution.getDuration());
+    totalVisitCount++;
+    totalExecutionTime += execution.getDuration();
+  }
+
+  /**
+   * Adds an execution recorded earlier, e.g. when an execution path is replayed.
+   */
+  @Override
+  public void add(Execution execution) {
+    Map<Element, Histogram> elements = executions.computeIfAbsent(execution.getContext(), context -> new HashMap<>());
+    boolean firstVisit = !elements.containsKey(execution.getElement());
+    elements.computeIfAbsent(execution.getElement(), element -> new Histogram()).record(execution.getDuration());
+    executionPath.add(execution);
+    totalVisitCount++;
+    totalExecutionTime += execution.getDuration();
+    notifyVisitListeners(execution.getContext(), execution.getElement(), firstVisit);
+  }
+
+  @Override
+  public void add(Profile profile) {
+    Map<Element, Histogram> elements = executions.computeIfAbsent(profile.getContext(), context -> new HashMap<>());
+    boolean firstVisit = !elements.containsKey(profile.getElement());
+    elements.computeIfAbsent(profile.getElement(), element -> new Histogram()).merge(profile.getHistogram());
+    totalVisitCount += profile.getExecutionCount();
+    totalExecutionTime += profile.getHistogram().getSum();
+    notifyVisitListeners(profile.getContext(), profile.getElement(), firstVisit);
+  }
+
+  @Override
+  public boolean addVisitListener(VisitListener listener) {
+    if (!visitListeners.contains(listener)) {
+      visitListeners.add(listener);
+    }
+    return true;
+  }
+
+  @Override
+  public void removeVisitListener(VisitListener listener) {
+    visitListeners.remove(listener);
+  }
+
+  private void notifyVisitListeners(Context context, Element element, boolean firstVisit) {
+    for (VisitListener listener : visitListeners) {
+      listener.visited(context, element, firstVisit);
+    }
   }
 
   @Override
@@ -85,13 +148,13 @@ public class SimpleProfiler implements Profiler {
 
   @Override
   public long getTotalVisitCount() {
-    return executionPath.size();
+    return totalVisitCount;
   }
 
   @Override
   public long getVisitCount(Context context, Element element) {
     if (executions.containsKey(context) && executions.get(context).containsKey(element)) {
-      return executions.get(context).get(element).size();
+      return executions.get(context).get(element).getCount();
     }
     return 0L;
   }
@@ -187,7 +250,7 @@ public class SimpleProfiler implements Profiler {
 
   @Override
   public long getTotalExecutionTime(TimeUnit unit) {
-    return executionPath.stream().mapToLong(e -> e.getDuration(unit)).sum();
+    return unit.convert(totalExecutionTime, TimeUnit.NANOSECONDS);
   }
 
   @Override
@@ -199,6 +262,7 @@ public class SimpleProfiler implements Profiler {
 
   @Override
   public Profile getProfile(Context context, Element element) {
-    return new Profile(context, element, executions.get(context).get(element));
+    Histogram histogram = executions.containsKey(context) ? executions.get(context).get(element) : null;
+    return new Profile(context, element, isNull(histogram) ? new Histogram() : histogram);
   }
 }
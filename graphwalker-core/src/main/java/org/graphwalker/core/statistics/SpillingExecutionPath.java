@@ -0,0 +1,184 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.model.Element;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import static org.graphwalker.core.common.Objects.isNotNull;
+import static org.graphwalker.core.common.Objects.isNull;
+
+/**
+ * <h1>SpillingExecutionPath</h1>
+ * The SpillingExecutionPath is an execution path spilled to an append only, memory mapped file, so the executions
+ * live in the page cache instead of the heap. Each execution is stored as a fixed size record of the context
+ * index, the element index, the time and the duration, in pages of {@value #PAGE_RECORDS} records mapped as the
+ * path grows.
+ * </p>
+ * The path is a lazily paged view: an {@link Execution} is only created when it is read. Only the contexts and
+ * the elements seen so far are kept in memory, to turn the indexes of the records back into executions.
+ * </p>
+ *
+ * @author Ivan Bonkin
+ */
+public final class SpillingExecutionPath extends AbstractList<Execution> implements RandomAccess, Closeable {
+
+  static final int RECORD_SIZE = 24;
+  static final int PAGE_RECORDS = 1 << 16;
+
+  private static final long PAGE_SIZE = (long) RECORD_SIZE * PAGE_RECORDS;
+
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  private final List<MappedByteBuffer> pages = new ArrayList<>();
+  private final List<ContextElements> contexts = new ArrayList<>();
+  private final Map<Context, ContextElements> contextElements = new IdentityHashMap<>();
+  private int size = 0;
+
+  /**
+   * Spills the executions to a temporary file, which is deleted when the virtual machine exits.
+   */
+  public SpillingExecutionPath() throws IOException {
+    this(createTempFile());
+  }
+
+  /**
+   * Spills the executions to the given file, its previous content is discarded.
+   */
+  public SpillingExecutionPath(File file) throws IOException {
+    this.file = new RandomAccessFile(file, "rw");
+    this.channel = this.file.getChannel();
+    try {
+      channel.truncate(0);
+    } catch (IOException e) {
+      this.file.close();
+      throw e;
+    }
+  }
+
+  private static File createTempFile() throws IOException {
+    File file = File.createTempFile("graphwalker-executions", ".bin");
+    file.deleteOnExit();
+    return file;
+  }
+
+  @Override
+  public boolean add(Execution execution) {
+    ContextElements elements = contextElements.get(execution.getContext());
+    if (isNull(elements)) {
+      elements = new ContextElements(execution.getContext(), contexts.size());
+      contextElements.put(execution.getContext(), elements);
+      contexts.add(elements);
+    }
+    MappedByteBuffer page = getPage(size / PAGE_RECORDS);
+    int offset = (size % PAGE_RECORDS) * RECORD_SIZE;
+    page.putInt(offset, elements.position);
+    page.putInt(offset + 4, elements.indexOf(execution.getElement()));
+    page.putLong(offset + 8, execution.getTime());
+    page.putLong(offset + 16, execution.getDuration());
+    size++;
+    modCount++;
+    return true;
+  }
+
+  private MappedByteBuffer getPage(int index) {
+    if (index == pages.size()) {
+      try {
+        pages.add(channel.map(FileChannel.MapMode.READ_WRITE, index * PAGE_SIZE, PAGE_SIZE));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return pages.get(index);
+  }
+
+  @Override
+  public Execution get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    MappedByteBuffer page = pages.get(index / PAGE_RECORDS);
+    int offset = (index % PAGE_RECORDS) * RECORD_SIZE;
+    ContextElements elements = contexts.get(page.getInt(offset));
+    return new Execution(elements.context, elements.elements.get(page.getInt(offset + 4)),
+      page.getLong(offset + 8), page.getLong(offset + 16));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public void close() throws IOException {
+    pages.clear();
+    file.close();
+  }
+
+  private static final class ContextElements {
+
+    private final Context context;
+    private final int position;
+    private final List<Element> elements = new ArrayList<>();
+    private final Map<Element, Integer> indexes = new IdentityHashMap<>();
+
+    private ContextElements(Context context, int position) {
+      this.context = context;
+      this.position = position;
+      if (isNotNull(context.getModel())) {
+        for (Element element : context.getModel().getElements()) {
+          indexOf(element);
+        }
+      }
+    }
+
+    private int indexOf(Element element) {
+      Integer index = indexes.get(element);
+      if (isNull(index)) {
+        index = elements.size();
+        elements.add(element);
+        indexes.put(element, index);
+      }
+      return index;
+    }
+  }
+}
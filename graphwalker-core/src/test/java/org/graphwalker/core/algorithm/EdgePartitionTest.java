@@ -0,0 +1,90 @@
+package org.graphwalker.core.algorithm;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.TestExecutionContext;
+import org.graphwalker.core.model.Edge;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.Vertex;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.graphwalker.core.model.Edge.RuntimeEdge;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class EdgePartitionTest {
+
+  private static Model createModel() {
+    Vertex hub = new Vertex().setName("hub");
+    Model model = new Model();
+    for (int i = 0; i < 4; i++) {
+      Vertex spoke = new Vertex().setName("spoke" + i);
+      model.addEdge(new Edge().setName("out" + i).setSourceVertex(hub).setTargetVertex(spoke));
+      model.addEdge(new Edge().setName("back" + i).setSourceVertex(spoke).setTargetVertex(hub));
+    }
+    return model;
+  }
+
+  @Test
+  public void disjointShards() throws Exception {
+    Context context = new TestExecutionContext().setModel(createModel().build());
+    List<Set<RuntimeEdge>> shards = context.getAlgorithm(EdgePartition.class)
+      .partition(context.getModel().findVertices("hub").get(0), 2);
+    assertThat(shards.size(), is(2));
+    assertThat(shards.get(0).size(), is(4));
+    assertThat(shards.get(1).size(), is(4));
+    Set<RuntimeEdge> edges = new HashSet<>(shards.get(0));
+    edges.addAll(shards.get(1));
+    assertThat(edges, is(new HashSet<>(context.getModel().getEdges())));
+  }
+
+  @Test
+  public void moreShardsThanEdges() throws Exception {
+    Context context = new TestExecutionContext().setModel(createModel().build());
+    List<Set<RuntimeEdge>> shards = context.getAlgorithm(EdgePartition.class).partition(null, 10);
+    int total = 0;
+    for (Set<RuntimeEdge> shard : shards) {
+      total += shard.size();
+    }
+    assertThat(shards.size(), is(10));
+    assertThat(total, is(8));
+  }
+
+  @Test(expected = AlgorithmException.class)
+  public void noShards() throws Exception {
+    new EdgePartition(new TestExecutionContext().setModel(createModel().build())).partition(null, 0);
+  }
+}
@@ -33,6 +33,7 @@ import org.graphwalker.core.machine.TestExecutionContext;
 import org.graphwalker.core.model.Edge;
 import org.graphwalker.core.model.Model;
 import org.graphwalker.core.model.Vertex;
+import org.graphwalker.core.statistics.SharedCoverage;
 import org.graphwalker.core.statistics.SimpleProfiler;
 import org.junit.Test;
 
@@ -76,6 +77,30 @@ public class DependencyEdgeCoverageTest {
     assertThat(condition.getFulfilment(), is(1.0));
   }
 
+  @Test
+  public void testFulfilmentOfSharedCoverage() throws Exception {
+    Vertex v1 = new Vertex();
+    Vertex v2 = new Vertex();
+    Edge e1 = new Edge().setId("e1").setSourceVertex(v1).setTargetVertex(v2).setDependency(90);
+    Edge e2 = new Edge().setId("e2").setSourceVertex(v2).setTargetVertex(v1).setDependency(80);
+    Model model = new Model().addEdge(e1).addEdge(e2);
+    StopCondition condition = new DependencyEdgeCoverage(75);
+    Context context = new TestExecutionContext(model, new RandomPath(condition));
+    SharedCoverage coverage = new SharedCoverage(context.getModel());
+    context.setSharedCoverage(coverage).setProfiler(new SimpleProfiler());
+    assertThat(condition.getFulfilment(), is(0.0));
+    coverage.visit(e2.build());
+    assertThat(condition.getFulfilment(), is(0.5));
+    context.setCurrentElement(context.getModel().getEdges().get(1));
+    context.getProfiler().start(context);
+    context.getProfiler().stop(context);
+    assertThat(condition.getFulfilment(), is(0.5));
+    context.setCurrentElement(context.getModel().getEdges().get(0));
+    context.getProfiler().start(context);
+    context.getProfiler().stop(context);
+    assertThat(condition.getFulfilment(), is(1.0));
+  }
+
   @Test
   public void testFulfilment() throws Exception {
     Vertex v1 = new Vertex();
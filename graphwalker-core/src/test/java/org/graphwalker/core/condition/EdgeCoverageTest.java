@@ -34,6 +34,7 @@ import org.graphwalker.core.model.Edge;
 import org.graphwalker.core.model.Model;
 import org.graphwalker.core.model.Vertex;
 import org.graphwalker.core.statistics.SimpleProfiler;
+import org.graphwalker.core.statistics.VisitListener;
 import org.junit.Test;
 
 import static org.hamcrest.core.Is.is;
@@ -100,4 +101,49 @@ public class EdgeCoverageTest {
     context.getProfiler().stop(context);
     assertTrue(condition.isFulfilled());
   }
+
+  @Test
+  public void fulfilmentFollowsProfilerAndModel() throws Exception {
+    Vertex v1 = new Vertex();
+    Vertex v2 = new Vertex();
+    Edge e1 = new Edge().setSourceVertex(v1).setTargetVertex(v2);
+    Edge e2 = new Edge().setSourceVertex(v2).setTargetVertex(v1);
+    Model model = new Model().addEdge(e1).addEdge(e2);
+    StopCondition condition = new EdgeCoverage(100);
+    Context context = new TestExecutionContext(model, new RandomPath(condition));
+    context.setProfiler(new SimpleProfiler());
+    context.setCurrentElement(e1.build());
+    context.getProfiler().start(context);
+    context.getProfiler().stop(context);
+    assertThat(condition.getFulfilment(), is(0.5));
+    context.getProfiler().start(context);
+    context.getProfiler().stop(context);
+    assertThat(condition.getFulfilment(), is(0.5));
+    context.setModel(new Model().addEdge(e1).build());
+    assertThat(condition.getFulfilment(), is(1.0));
+    context.setProfiler(new SimpleProfiler());
+    assertThat(condition.getFulfilment(), is(0.0));
+  }
+
+  @Test
+  public void fulfilmentOfProfilerWithoutListeners() throws Exception {
+    Vertex v1 = new Vertex();
+    Vertex v2 = new Vertex();
+    Edge e1 = new Edge().setSourceVertex(v1).setTargetVertex(v2);
+    Edge e2 = new Edge().setSourceVertex(v2).setTargetVertex(v1);
+    Model model = new Model().addEdge(e1).addEdge(e2);
+    StopCondition condition = new EdgeCoverage(100);
+    Context context = new TestExecutionContext(model, new RandomPath(condition));
+    context.setProfiler(new SimpleProfiler() {
+      @Override
+      public boolean addVisitListener(VisitListener listener) {
+        return false;
+      }
+    });
+    assertThat(condition.getFulfilment(), is(0.0));
+    context.setCurrentElement(e1.build());
+    context.getProfiler().start(context);
+    context.getProfiler().stop(context);
+    assertThat(condition.getFulfilment(), is(0.5));
+  }
 }
@@ -0,0 +1,151 @@
+package org.graphwalker.core.condition;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.generator.AStarPath;
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.Machine;
+import org.graphwalker.core.machine.SimpleMachine;
+import org.graphwalker.core.machine.TestExecutionContext;
+import org.graphwalker.core.model.Edge;
+import org.graphwalker.core.model.Element;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.Vertex;
+import org.graphwalker.core.statistics.SharedCoverage;
+import org.graphwalker.core.statistics.SimpleProfiler;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class ShardCoverageTest {
+
+  private static final Vertex hub = new Vertex().setName("hub").setId("hub");
+  private static final Model model = new Model();
+
+  static {
+    for (int i = 0; i < 3; i++) {
+      Vertex spoke = new Vertex().setName("spoke" + i).setId("spoke" + i);
+      model.addEdge(new Edge().setName("out" + i).setId("out" + i).setSourceVertex(hub).setTargetVertex(spoke));
+      model.addEdge(new Edge().setName("back" + i).setId("back" + i).setSourceVertex(spoke).setTargetVertex(hub));
+    }
+  }
+
+  @Test
+  public void parse() throws Exception {
+    ShardCoverage shard = ShardCoverage.parse("2/3");
+    assertThat(shard.getIndex(), is(2));
+    assertThat(shard.getCount(), is(3));
+    assertThat(shard.toString(), is("ShardCoverage(2/3)"));
+  }
+
+  @Test(expected = StopConditionException.class)
+  public void invalidShard() throws Exception {
+    ShardCoverage.parse("4/3");
+  }
+
+  @Test(expected = StopConditionException.class)
+  public void malformedShard() throws Exception {
+    ShardCoverage.parse("1-3");
+  }
+
+  @Test
+  public void shardsCoverModel() throws Exception {
+    Set<String> visited = new HashSet<>();
+    for (int i = 1; i <= 3; i++) {
+      Context context = new TestExecutionContext(model, new AStarPath(new ShardCoverage(i, 3)))
+        .setNextElement(hub);
+      Machine machine = new SimpleMachine(context);
+      while (machine.hasNextStep()) {
+        machine.getNextStep();
+      }
+      assertThat(context.getPathGenerator().getStopCondition().getFulfilment(), is(1.0));
+      for (Element element : context.getProfiler().getVisitedEdges(context)) {
+        visited.add(element.getId());
+      }
+      assertTrue(machine.getProfiler().getTotalVisitCount() < 13);
+    }
+    assertThat(visited.size(), is(6));
+  }
+
+  @Test
+  public void shardsDoNotDependOnThePositionOfTheWalk() throws Exception {
+    Context started = new TestExecutionContext(model, new AStarPath(new ShardCoverage(1, 1))).setNextElement(hub);
+    ShardCoverage shard = new ShardCoverage(2, 3);
+    started.getPathGenerator().setStopCondition(shard);
+    Machine machine = new SimpleMachine(started);
+    machine.getNextSteps(3);
+    Context fresh = new TestExecutionContext(model, new AStarPath(new ShardCoverage(2, 3))).setNextElement(hub);
+    assertThat(getIds(shard.getEdges()), is(getIds(((ShardCoverage) fresh.getPathGenerator().getStopCondition()).getEdges())));
+  }
+
+  @Test
+  public void shardsFollowTheModel() throws Exception {
+    ShardCoverage shard = new ShardCoverage(1, 1);
+    Context context = new TestExecutionContext(model, new AStarPath(shard)).setNextElement(hub);
+    assertThat(shard.getEdges().size(), is(6));
+    Vertex vertex = new Vertex();
+    context.setModel(new Model().addEdge(new Edge().setSourceVertex(vertex).setTargetVertex(vertex)).build());
+    assertThat(shard.getEdges(), is(Collections.singleton(context.getModel().getEdges().get(0))));
+  }
+
+  @Test
+  public void fulfilmentCountsSharedVisits() throws Exception {
+    ShardCoverage shard = new ShardCoverage(1, 1);
+    Context context = new TestExecutionContext(model, new AStarPath(shard)).setNextElement(hub);
+    SharedCoverage coverage = new SharedCoverage(context.getModel());
+    context.setSharedCoverage(coverage).setProfiler(new SimpleProfiler());
+    assertThat(shard.getFulfilment(), is(0.0));
+    coverage.visit(model.build().getEdges().get(0));
+    assertThat(shard.getFulfilment(), is(1.0 / 6));
+    context.setCurrentElement(context.getModel().getEdges().get(0));
+    context.getProfiler().start(context);
+    context.getProfiler().stop(context);
+    assertThat(shard.getFulfilment(), is(1.0 / 6));
+    context.setCurrentElement(context.getModel().getEdges().get(1));
+    context.getProfiler().start(context);
+    context.getProfiler().stop(context);
+    assertThat(shard.getFulfilment(), is(2.0 / 6));
+  }
+
+  private static Set<String> getIds(Set<? extends Element> elements) {
+    Set<String> ids = new HashSet<>();
+    for (Element element : elements) {
+      ids.add(element.getId());
+    }
+    return ids;
+  }
+}
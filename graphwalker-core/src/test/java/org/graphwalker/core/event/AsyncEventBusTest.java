@@ -0,0 +1,146 @@
+package org.graphwalker.core.event;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.condition.VertexCoverage;
+import org.graphwalker.core.generator.RandomPath;
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.SimpleMachine;
+import org.graphwalker.core.machine.TestExecutionContext;
+import org.graphwalker.core.model.Edge;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.Vertex;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.graphwalker.core.event.EventType.AFTER_ELEMENT;
+import static org.graphwalker.core.event.EventType.BEFORE_ELEMENT;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class AsyncEventBusTest {
+
+  @Test
+  public void asyncObserversSeeAllEventsInOrder() throws Exception {
+    Vertex vertex = new Vertex();
+    Model model = new Model().addEdge(new Edge().setSourceVertex(vertex).setTargetVertex(new Vertex()));
+    Context context = new TestExecutionContext(model, new RandomPath(new VertexCoverage(100)));
+    context.setNextElement(vertex);
+    SimpleMachine machine = new SimpleMachine(context);
+    List<EventType> types = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    machine.addAsyncObserver((m, element, type) -> {
+      types.add(type);
+      threads.add(Thread.currentThread());
+    });
+    while (machine.hasNextStep()) {
+      machine.getNextStep();
+    }
+    machine.getEventBus().flush();
+    assertThat(types, is(Arrays.asList(BEFORE_ELEMENT, AFTER_ELEMENT, BEFORE_ELEMENT, AFTER_ELEMENT, BEFORE_ELEMENT, AFTER_ELEMENT)));
+    assertFalse(threads.contains(Thread.currentThread()));
+    machine.getEventBus().close();
+  }
+
+  @Test
+  public void closingTheMachineClosesTheBus() throws Exception {
+    Vertex vertex = new Vertex();
+    Model model = new Model().addEdge(new Edge().setSourceVertex(vertex).setTargetVertex(new Vertex()));
+    Context context = new TestExecutionContext(model, new RandomPath(new VertexCoverage(100)));
+    context.setNextElement(vertex);
+    AsyncEventBus bus;
+    List<EventType> types = Collections.synchronizedList(new ArrayList<>());
+    try (SimpleMachine machine = new SimpleMachine(context)) {
+      machine.addAsyncObserver((m, element, type) -> types.add(type));
+      bus = machine.getEventBus();
+      while (machine.hasNextStep()) {
+        machine.getNextStep();
+      }
+    }
+    assertThat(types.size(), is(6));
+    try {
+      bus.publish(null, null, BEFORE_ELEMENT);
+      fail();
+    } catch (IllegalStateException e) {
+      // the bus is closed
+    }
+  }
+
+  @Test
+  public void dropWhenFull() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    List<EventType> types = Collections.synchronizedList(new ArrayList<>());
+    try (AsyncEventBus bus = new AsyncEventBus(2, WaitStrategy.SLEEPING, OverflowPolicy.DROP)) {
+      bus.subscribe((m, element, type) -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        types.add(type);
+      });
+      for (int i = 0; i < 10; i++) {
+        bus.publish(null, null, BEFORE_ELEMENT);
+      }
+      assertTrue(bus.getDroppedCount() >= 7);
+      release.countDown();
+      bus.flush();
+      assertThat(bus.getDeliveredCount(), is(10 - bus.getDroppedCount()));
+      assertThat((long) types.size(), is(bus.getDeliveredCount()));
+    }
+  }
+
+  @Test
+  public void blockWhenFull() throws Exception {
+    List<EventType> types = Collections.synchronizedList(new ArrayList<>());
+    try (AsyncEventBus bus = new AsyncEventBus(2, WaitStrategy.BLOCKING, OverflowPolicy.BLOCK)) {
+      bus.subscribe((m, element, type) -> {
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        types.add(type);
+      });
+      for (int i = 0; i < 20; i++) {
+        bus.publish(null, null, AFTER_ELEMENT);
+      }
+      bus.flush();
+      assertThat(types.size(), is(20));
+      assertThat(bus.getDroppedCount(), is(0L));
+    }
+  }
+}
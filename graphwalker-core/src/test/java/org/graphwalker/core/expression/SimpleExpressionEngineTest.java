@@ -0,0 +1,95 @@
+package org.graphwalker.core.expression;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class SimpleExpressionEngineTest {
+
+  private final ExpressionEngine engine = new SimpleExpressionEngine();
+
+  @Test
+  public void assignments() throws Exception {
+    Map<String, Object> variables = new HashMap<>();
+    engine.parse("var i = 0; var name = 'a'; i++; i += 2; name = name + i;").evaluate(variables);
+    assertThat(variables.get("i"), is(3.0));
+    assertThat(variables.get("name"), is("a3"));
+  }
+
+  @Test
+  public void guards() throws Exception {
+    Map<String, Object> variables = new HashMap<>();
+    variables.put("i", 1.0);
+    variables.put("loggedIn", true);
+    assertThat(engine.parse("i < 2 && loggedIn").evaluate(variables), is(true));
+    assertThat(engine.parse("i == '1' && !(i === '1')").evaluate(variables), is(true));
+    assertThat(engine.parse("(i + 1) * 2 >= 5 || !loggedIn").evaluate(variables), is(false));
+  }
+
+  @Test
+  public void stringsToNumbers() throws Exception {
+    Map<String, Object> variables = new HashMap<>();
+    assertThat(engine.parse("' 12 ' * 1").evaluate(variables), is(12.0));
+    assertThat(engine.parse("'0x10' * 1").evaluate(variables), is(16.0));
+    assertThat(engine.parse("'-Infinity' * 1").evaluate(variables), is(Double.NEGATIVE_INFINITY));
+    assertTrue(Double.isNaN((Double) engine.parse("'1f' * 1").evaluate(variables)));
+    assertTrue(Double.isNaN((Double) engine.parse("'1d' * 1").evaluate(variables)));
+    assertTrue(Double.isNaN((Double) engine.parse("'0x1p3' * 1").evaluate(variables)));
+  }
+
+  @Test
+  public void numbersToStrings() throws Exception {
+    Map<String, Object> variables = new HashMap<>();
+    assertThat(engine.parse("'' + 2.5").evaluate(variables), is("2.5"));
+    assertThat(engine.parse("'' + 1e10").evaluate(variables), is("10000000000"));
+    assertThat(engine.parse("'' + 1e20").evaluate(variables), is("100000000000000000000"));
+    assertThat(engine.parse("'' + 1e21").evaluate(variables), is("1e+21"));
+    assertThat(engine.parse("'' + 0.000001").evaluate(variables), is("0.000001"));
+    assertThat(engine.parse("'' + 1.5e-7").evaluate(variables), is("1.5e-7"));
+    assertThat(engine.parse("'' + -0.5").evaluate(variables), is("-0.5"));
+  }
+
+  @Test(expected = ExpressionException.class)
+  public void undefinedVariable() throws Exception {
+    engine.parse("j > 0").evaluate(new HashMap<>());
+  }
+
+  @Test(expected = UnsupportedExpressionException.class)
+  public void unsupportedScript() throws Exception {
+    engine.parse("for (var k = 0; k < 2; k++) {}");
+  }
+}
@@ -45,7 +45,9 @@ import java.util.stream.Collectors;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Nils Olsson
@@ -140,6 +142,20 @@ public class CombinedPathTest {
     assertThat(expectedPath, is(path));
   }
 
+  @Test
+  public void seedOfItsOwn() throws Exception {
+    RandomPath first = new RandomPath(new ReachedVertex("v2"));
+    RandomPath second = new RandomPath(new ReachedVertex("v1"));
+    CombinedPath generator = new CombinedPath();
+    generator.addPathGenerator(first);
+    generator.addPathGenerator(second);
+    generator.seed(1);
+    assertFalse(first.isSeeded());
+    generator.setSeed(1);
+    assertTrue(first.isSeeded());
+    assertTrue(second.isSeeded());
+  }
+
   @Test(expected = MachineException.class)
   public void negativeTest() throws Exception {
     CombinedPath generator = new CombinedPath();
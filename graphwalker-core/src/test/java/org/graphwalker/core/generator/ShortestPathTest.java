@@ -30,6 +30,7 @@ package org.graphwalker.core.generator;
 import org.graphwalker.core.ModelBuilder;
 import org.graphwalker.core.condition.ReachedVertex;
 import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.ExecutionContext;
 import org.graphwalker.core.machine.TestExecutionContext;
 import org.graphwalker.core.model.Action;
 import org.graphwalker.core.model.Guard;
@@ -85,6 +86,26 @@ public class ShortestPathTest {
     assertThat(context.getPathGenerator().getNextStep().getCurrentElement().getId(), equalTo("v0$v01"));
   }
 
+  @Test
+  public void testParallelValidation() {
+    Model model = new ModelBuilder()
+      .connect("start", new Action("var g1 = false, g2 = false;"), "v0")
+      .connect("v0", new Guard("g1 == true"), "v10")
+      .connect("v10", "v30")
+      .connect("v0", new Action("g2 = true;"), "v11")
+      .connect("v11", new Guard("g2 == true"), "v20")
+      .connect("v20", "v30")
+      .getModel();
+
+    ShortestPath generator = new ShortestPath(new ReachedVertex("v30"));
+    generator.setParallelism(4);
+    ExecutionContext context = new TestExecutionContext(model, generator);
+    context.execute(new Action("var g1 = false, g2 = false;"));
+    context.setCurrentElement(context.getModel().getElementById("v0"));
+    assertThat(context.getPathGenerator().getNextStep().getCurrentElement().getId(), equalTo("v0$v11"));
+    assertThat(context.getKeys().get("g2"), equalTo("false"));
+  }
+
   @Test(expected = PathGenerationException.class)
   public void testErrorInGuard() {
     Model model = new ModelBuilder()
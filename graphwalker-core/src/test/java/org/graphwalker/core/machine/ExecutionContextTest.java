@@ -0,0 +1,327 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.condition.EdgeCoverage;
+import org.graphwalker.core.generator.RandomPath;
+import org.graphwalker.core.model.Action;
+import org.graphwalker.core.model.Argument;
+import org.graphwalker.core.model.Edge;
+import org.graphwalker.core.model.Guard;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.TypePrefix;
+import org.graphwalker.core.model.Vertex;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class ExecutionContextTest {
+
+  @Test
+  public void compiledScriptsAreCached() throws Exception {
+    Edge edge = new Edge()
+      .setSourceVertex(new Vertex())
+      .setTargetVertex(new Vertex())
+      .setGuard(new Guard("i < 2"))
+      .addAction(new Action("i++;"));
+    Model model = new Model().addEdge(edge).addAction(new Action("var i = 0;"));
+    ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    context.setExpressionEngine(null);
+    Edge.RuntimeEdge runtimeEdge = context.getModel().getEdges().get(0);
+    context.execute(context.getModel().getActions().get(0));
+    assertThat(context.getCompiledScriptMisses(), is(1L));
+    assertTrue(context.isAvailable(runtimeEdge));
+    context.execute(runtimeEdge.getActions().get(0));
+    assertTrue(context.isAvailable(runtimeEdge));
+    context.execute(runtimeEdge.getActions().get(0));
+    assertFalse(context.isAvailable(runtimeEdge));
+    assertThat(context.getCompiledScriptMisses(), is(3L));
+    assertThat(context.getCompiledScriptHits(), is(3L));
+  }
+
+  @Test
+  public void adHocScriptsAreEvicted() throws Exception {
+    Model model = new Model().addVertex(new Vertex());
+    ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    context.setExpressionEngine(null);
+    context.execute(new Action("var i = 0;"));
+    context.execute(new Action("i++;"));
+    context.execute(new Action("i++;"));
+    assertThat(context.getCompiledScriptMisses(), is(2L));
+    assertThat(context.getCompiledScriptHits(), is(1L));
+    for (int i = 0; i < ExecutionContext.SCRIPT_CACHE_CAPACITY; i++) {
+      context.execute(new Action("i = " + i + ";"));
+    }
+    context.execute(new Action("i++;"));
+    assertThat(context.getCompiledScriptMisses(), is(3L + ExecutionContext.SCRIPT_CACHE_CAPACITY));
+  }
+
+  @Test
+  public void guardResultsAreMemoized() throws Exception {
+    Edge edge = new Edge()
+      .setSourceVertex(new Vertex())
+      .setTargetVertex(new Vertex())
+      .setGuard(new Guard("i < 1"))
+      .addAction(new Action("i++;"));
+    Model model = new Model().addEdge(edge).addAction(new Action("var i = 0;"));
+    ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    Edge.RuntimeEdge runtimeEdge = context.getModel().getEdges().get(0);
+    context.execute(context.getModel().getActions().get(0));
+    assertTrue(context.isAvailable(runtimeEdge));
+    assertThat(context.filter(context.getModel().getEdges()).size(), is(1));
+    assertThat(context.getGuardResultMisses(), is(1L));
+    assertThat(context.getGuardResultHits(), is(1L));
+    context.execute(runtimeEdge.getActions().get(0));
+    assertFalse(context.isAvailable(runtimeEdge));
+    context.setAttribute("i", 0.0);
+    assertTrue(context.isAvailable(runtimeEdge));
+    assertThat(context.getGuardResultMisses(), is(3L));
+    assertThat(context.getGuardResultHits(), is(1L));
+  }
+
+  @Test
+  public void constantGuardsAreEvaluatedOnce() throws Exception {
+    Edge edge = new Edge()
+      .setSourceVertex(new Vertex())
+      .setTargetVertex(new Vertex())
+      .setGuard(new Guard("1 < 2"));
+    ExecutionContext context = new TestExecutionContext(new Model().addEdge(edge), new RandomPath(new EdgeCoverage(100)));
+    Edge.RuntimeEdge runtimeEdge = context.getModel().getEdges().get(0);
+    assertTrue(context.isAvailable(runtimeEdge));
+    context.markStateChanged();
+    assertTrue(context.isAvailable(runtimeEdge));
+    assertThat(context.getGuardResultMisses(), is(1L));
+    assertThat(context.getGuardResultHits(), is(1L));
+  }
+
+  @Test
+  public void scriptEngineWritesInvalidateGuards() throws Exception {
+    Edge edge = new Edge()
+      .setSourceVertex(new Vertex())
+      .setTargetVertex(new Vertex())
+      .setGuard(new Guard("open == true"));
+    Model model = new Model().addEdge(edge).addAction(new Action("var open = true;"));
+    ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    Edge.RuntimeEdge runtimeEdge = context.getModel().getEdges().get(0);
+    context.execute(context.getModel().getActions().get(0));
+    assertTrue(context.isAvailable(runtimeEdge));
+    context.getScriptEngine().eval("open = false");
+    assertFalse(context.isAvailable(runtimeEdge));
+  }
+
+  @Test
+  public void readOnlyScriptsKeepGuardResults() throws Exception {
+    Edge edge = new Edge()
+      .setSourceVertex(new Vertex())
+      .setTargetVertex(new Vertex())
+      .setGuard(new Guard("i < 1"));
+    Model model = new Model().addEdge(edge).addAction(new Action("var i = 0;"));
+    ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    Edge.RuntimeEdge runtimeEdge = context.getModel().getEdges().get(0);
+    context.execute(context.getModel().getActions().get(0));
+    assertTrue(context.isAvailable(runtimeEdge));
+    long version = context.getStateVersion();
+    assertThat(context.evaluate("i < 2"), is(true));
+    assertThat(context.getStateVersion(), is(version));
+    assertTrue(context.isAvailable(runtimeEdge));
+    assertThat(context.getGuardResultHits(), is(1L));
+  }
+
+  @Test
+  public void sharedStateVersionIsScopedToTheMachine() throws Exception {
+    ExecutionContext first = createOpaqueGuardContext();
+    ExecutionContext second = createOpaqueGuardContext();
+    ExecutionContext other = createOpaqueGuardContext();
+    new SimpleMachine(first, second);
+    new SimpleMachine(other);
+    Edge.RuntimeEdge runtimeEdge = first.getModel().getEdges().get(0);
+    assertTrue(first.isAvailable(runtimeEdge));
+    other.markStateChanged();
+    assertTrue(first.isAvailable(runtimeEdge));
+    assertThat(first.getGuardResultHits(), is(1L));
+    second.markStateChanged();
+    assertTrue(first.isAvailable(runtimeEdge));
+    assertThat(first.getGuardResultMisses(), is(2L));
+  }
+
+  private ExecutionContext createOpaqueGuardContext() {
+    Vertex start = new Vertex();
+    Edge edge = new Edge()
+      .setSourceVertex(start)
+      .setTargetVertex(new Vertex())
+      .setGuard(new Guard("Math.abs(i) < 1"));
+    Model model = new Model().addEdge(edge).addAction(new Action("var i = 0;"));
+    ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    context.setNextElement(start);
+    return context;
+  }
+
+  @Test
+  public void onlyGuardsWithChangedVariablesAreEvaluated() throws Exception {
+    Vertex vertex = new Vertex();
+    Edge counter = new Edge().setSourceVertex(vertex).setTargetVertex(vertex)
+      .setGuard(new Guard("i < 2")).addAction(new Action("i++;"));
+    Edge constant = new Edge().setSourceVertex(vertex).setTargetVertex(vertex)
+      .setGuard(new Guard("mode == 'fast'"));
+    Model model = new Model().addEdge(counter).addEdge(constant).addAction(new Action("var i = 0; var mode = 'fast';"));
+    ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    Edge.RuntimeEdge runtimeCounter = context.getModel().getEdges().get(0);
+    Edge.RuntimeEdge runtimeConstant = context.getModel().getEdges().get(1);
+    context.execute(context.getModel().getActions().get(0));
+    assertThat(context.filter(context.getModel().getEdges()).size(), is(2));
+    context.execute(runtimeCounter.getActions().get(0));
+    context.execute(runtimeCounter.getActions().get(0));
+    assertThat(context.filter(context.getModel().getEdges()).size(), is(1));
+    assertThat(context.getGuardResultMisses(), is(3L));
+    assertThat(context.getGuardResultHits(), is(1L));
+    context.setAttribute("mode", "slow");
+    assertFalse(context.isAvailable(runtimeConstant));
+    assertFalse(context.isAvailable(runtimeCounter));
+    assertThat(context.getGuardResultMisses(), is(4L));
+    assertThat(context.getGuardResultHits(), is(2L));
+  }
+
+  @Test
+  public void snapshotRollback() throws Exception {
+    for (boolean expressionEngine : new boolean[]{true, false}) {
+      Edge edge = new Edge()
+        .setSourceVertex(new Vertex())
+        .setTargetVertex(new Vertex())
+        .setGuard(new Guard("i < 1"))
+        .addAction(new Action("i++; name = 'b';"));
+      Model model = new Model().addEdge(edge).addAction(new Action("var i = 0; var name = 'a';"));
+      ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+      if (!expressionEngine) {
+        context.setExpressionEngine(null);
+      }
+      Edge.RuntimeEdge runtimeEdge = context.getModel().getEdges().get(0);
+      context.execute(context.getModel().getActions().get(0));
+      ContextSnapshot snapshot = context.snapshot();
+      context.execute(runtimeEdge.getActions().get(0));
+      assertFalse(context.isAvailable(runtimeEdge));
+      context.rollback(snapshot);
+      assertTrue(context.isAvailable(runtimeEdge));
+      assertThat(context.getKeys().get("name"), is("a"));
+      context.execute(new Action("var list = [i]; i = 5;"));
+      assertThat(context.getKeys().get("i"), is("5"));
+      context.rollback(snapshot);
+      assertThat(context.getKeys().get("i"), is("0"));
+      assertNull(context.getKeys().get("list"));
+      context.release(snapshot);
+      context.execute(runtimeEdge.getActions().get(0));
+      assertThat(context.getKeys().get("i"), is("1"));
+    }
+  }
+
+  @Test
+  public void snapshotOfTheScriptEngine() throws Exception {
+    Model model = new Model().addVertex(new Vertex()).addAction(new Action("var i = 0;"));
+    ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    context.setExpressionEngine(null);
+    context.execute(context.getModel().getActions().get(0));
+    ContextSnapshot snapshot = ContextSnapshot.copyOf(context.getScriptEngine());
+    context.execute(new Action("i = 5; var j = 1;"));
+    snapshot.restore(context.getScriptEngine());
+    assertThat(context.getKeys().get("i"), is("0"));
+    assertNull(context.getKeys().get("j"));
+  }
+
+  @Test
+  public void expressionEngineFallsBackToScriptEngine() throws Exception {
+    Edge edge = new Edge()
+      .setSourceVertex(new Vertex())
+      .setTargetVertex(new Vertex())
+      .setGuard(new Guard("i < 2"))
+      .addAction(new Action("i++;"));
+    Model model = new Model().addEdge(edge).addAction(new Action("var i = 0;"));
+    ExecutionContext context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    assertTrue(context.isExpressionEngineUsed());
+    Edge.RuntimeEdge runtimeEdge = context.getModel().getEdges().get(0);
+    context.execute(context.getModel().getActions().get(0));
+    context.execute(runtimeEdge.getActions().get(0));
+    assertThat(context.getKeys().get("i"), is("1"));
+    context.execute(new Action("var list = [i, 2];"));
+    assertFalse(context.isExpressionEngineUsed());
+    assertThat(context.getCompiledScriptMisses(), is(1L));
+    assertTrue(context.isAvailable(runtimeEdge));
+    context.execute(runtimeEdge.getActions().get(0));
+    assertFalse(context.isAvailable(runtimeEdge));
+  }
+
+  public static class DispatchContext extends ExecutionContext {
+
+    private String edgeArguments;
+
+    public boolean v_Ready() {
+      return true;
+    }
+
+    public boolean v_NotReady() {
+      return false;
+    }
+
+    public void e_Typed(String text, double number, boolean flag) {
+      edgeArguments = text + ":" + number + ":" + flag;
+    }
+  }
+
+  @Test
+  public void dispatchTypedArguments() throws Exception {
+    DispatchContext context = new DispatchContext();
+    context.setModel(new Model().build());
+    context.execute("e_Typed", null, Arrays.asList(
+      new Argument(TypePrefix.STRING, "text", "abc"),
+      new Argument(TypePrefix.NUMBER, "number", "2"),
+      new Argument(TypePrefix.BOOLEAN, "flag", "true")));
+    assertThat(context.edgeArguments, is("abc:2.0:true"));
+  }
+
+  @Test
+  public void dispatchVertexCondition() throws Exception {
+    DispatchContext context = new DispatchContext();
+    context.setModel(new Model().build());
+    context.execute("v_Ready", null, null);
+    context.execute("v_Unknown", null, null);
+    try {
+      context.execute("v_NotReady", null, null);
+      fail();
+    } catch (MachineException e) {
+      assertThat(e.getCause() instanceof VertexConditionException, is(true));
+    }
+  }
+}
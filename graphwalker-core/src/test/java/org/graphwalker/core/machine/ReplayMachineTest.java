@@ -31,8 +31,17 @@ import org.graphwalker.core.condition.EdgeCoverage;
 import org.graphwalker.core.generator.RandomPath;
 import org.graphwalker.core.model.*;
 import org.graphwalker.core.statistics.Execution;
+import org.graphwalker.core.statistics.Profiler;
+import org.graphwalker.core.statistics.RingExecutionPath;
+import org.graphwalker.core.statistics.SimpleProfiler;
+import org.graphwalker.core.statistics.SpillingExecutionPath;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -44,6 +53,9 @@ import static org.junit.Assert.assertThat;
  */
 public class ReplayMachineTest {
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void replayMachine() throws Exception {
     Machine machine = createMachineExecution();
@@ -58,14 +70,107 @@ public class ReplayMachineTest {
     assertThat(replayedPath, is(expectedPath));
   }
 
-  private Machine createMachineExecution() {
-    Vertex vertex = new Vertex();
-    Edge edge1 = new Edge().setSourceVertex(vertex).setTargetVertex(vertex).addAction(new Action("flag = true;")).setName("edge1");
-    Edge edge2 = new Edge().setSourceVertex(vertex).setTargetVertex(vertex).setGuard(new Guard("flag === true")).setName("edge2");
-    Model model = new Model().addEdge(edge1).addEdge(edge2).addAction(new Action("var flag = false;"));
+  @Test
+  public void replayJournal() throws Exception {
+    File file = temporaryFolder.newFile();
+    Model model = createModel();
     Context context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
-    context.setNextElement(vertex);
+    context.setNextElement(context.getModel().getVertices().get(0));
     Machine machine = new SimpleMachine(context);
+    try (ExecutionJournal journal = new ExecutionJournal(file)) {
+      machine.addObserver(journal);
+      while (machine.hasNextStep()) {
+        machine.getNextStep();
+      }
+      assertThat(journal.size(), is(machine.getProfiler().getTotalVisitCount()));
+    }
+    List<String> expectedPath = machine.getProfiler().getExecutionPath().stream()
+      .map(execution -> execution.getElement().getId()).collect(Collectors.toList());
+
+    Context replayContext = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    try (ReplayMachine replayMachine = new ReplayMachine(file, Collections.singletonList(replayContext))) {
+      assertThat(replayMachine.size(), is((long) expectedPath.size()));
+      List<String> replayedPath = new ArrayList<>();
+      while (replayMachine.hasNextStep()) {
+        replayedPath.add(replayMachine.getNextStep().getCurrentElement().getId());
+      }
+      assertThat(replayedPath, is(expectedPath));
+
+      replayMachine.seek(expectedPath.size() - 2);
+      replayedPath.clear();
+      while (replayMachine.hasNextStep()) {
+        replayedPath.add(replayMachine.getNextStep().getCurrentElement().getId());
+      }
+      assertThat(replayedPath, is(expectedPath.subList(expectedPath.size() - 2, expectedPath.size())));
+    }
+  }
+
+  @Test
+  public void journalOfTruncatedPath() throws Exception {
+    File file = temporaryFolder.newFile();
+    Model model = createModel();
+    Context context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    context.setNextElement(context.getModel().getVertices().get(0));
+    SimpleMachine machine = new SimpleMachine(context);
+    machine.setProfiler(new SimpleProfiler(new RingExecutionPath(2)));
+    List<String> expectedPath = new ArrayList<>();
+    try (ExecutionJournal journal = new ExecutionJournal(file)) {
+      machine.addObserver(journal);
+      while (machine.hasNextStep()) {
+        expectedPath.add(machine.getNextStep().getCurrentElement().getId());
+      }
+      assertThat(journal.size(), is(machine.getProfiler().getTotalVisitCount()));
+    }
+
+    Context replayContext = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    try (ReplayMachine replayMachine = new ReplayMachine(file, Collections.singletonList(replayContext))) {
+      List<String> replayedPath = new ArrayList<>();
+      while (replayMachine.hasNextStep()) {
+        replayedPath.add(replayMachine.getNextStep().getCurrentElement().getId());
+      }
+      assertThat(replayedPath, is(expectedPath));
+    }
+  }
+
+  @Test(expected = MachineException.class)
+  public void refuseTruncatedPath() throws Exception {
+    Machine machine = createMachineExecution(new SimpleProfiler(new RingExecutionPath(2)));
+    new ReplayMachine(machine.getProfiler());
+  }
+
+  @Test
+  public void replaySpilledPath() throws Exception {
+    try (SpillingExecutionPath executionPath = new SpillingExecutionPath(temporaryFolder.newFile())) {
+      Machine machine = createMachineExecution(new SimpleProfiler(executionPath));
+      Machine replayMachine = new ReplayMachine(machine.getProfiler());
+      while (replayMachine.hasNextStep()) {
+        replayMachine.getNextStep();
+      }
+      List<Element> expectedPath = executionPath.stream()
+        .map(Execution::getElement).collect(Collectors.toList());
+      List<Element> replayedPath = replayMachine.getProfiler().getExecutionPath().stream()
+        .map(Execution::getElement).collect(Collectors.toList());
+      assertThat(replayedPath, is(expectedPath));
+      assertThat((long) expectedPath.size(), is(machine.getProfiler().getTotalVisitCount()));
+    }
+  }
+
+  private Model createModel() {
+    Vertex vertex = new Vertex().setId("v");
+    Edge edge1 = new Edge().setId("e1").setSourceVertex(vertex).setTargetVertex(vertex).addAction(new Action("flag = true;")).setName("edge1");
+    Edge edge2 = new Edge().setId("e2").setSourceVertex(vertex).setTargetVertex(vertex).setGuard(new Guard("flag === true")).setName("edge2");
+    return new Model().addEdge(edge1).addEdge(edge2).addAction(new Action("var flag = false;"));
+  }
+
+  private Machine createMachineExecution() {
+    return createMachineExecution(new SimpleProfiler());
+  }
+
+  private Machine createMachineExecution(Profiler profiler) {
+    Context context = new TestExecutionContext(createModel(), new RandomPath(new EdgeCoverage(100)));
+    context.setNextElement(context.getModel().getVertices().get(0));
+    SimpleMachine machine = new SimpleMachine(context);
+    machine.setProfiler(profiler);
     while (machine.hasNextStep()) {
       machine.getNextStep();
     }
@@ -0,0 +1,81 @@
+package org.graphwalker.core.machine;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.model.Model;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class ScriptEnginePoolTest {
+
+  public static class OnDemandContext extends ExecutionContext {
+  }
+
+  public static class PrewarmedContext extends ExecutionContext {
+
+    public boolean isReady() {
+      return true;
+    }
+  }
+
+  @Test
+  public void createOnDemand() throws Exception {
+    ScriptEnginePool pool = ScriptEnginePool.getPool(OnDemandContext.class);
+    pool.setSize(0);
+    new OnDemandContext();
+    new OnDemandContext();
+    assertThat(pool.getBorrowedCount(), is(2L));
+    assertThat(pool.getCreatedCount(), is(2L));
+    assertThat(pool.getPrewarmedCount(), is(0L));
+    assertThat(pool.getIdleCount(), is(0));
+    assertTrue(pool.getTotalCreationTime(TimeUnit.NANOSECONDS) > 0);
+  }
+
+  @Test
+  public void borrowPrewarmed() throws Exception {
+    ScriptEnginePool pool = ScriptEnginePool.getPool(PrewarmedContext.class);
+    pool.setSize(1);
+    new PrewarmedContext();
+    long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+    while (pool.getIdleCount() < 1 && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    ExecutionContext context = new PrewarmedContext();
+    context.setModel(new Model().build());
+    assertThat(pool.getPrewarmedCount(), is(1L));
+    assertThat(context.getScriptEngine().eval("isReady()"), is(true));
+  }
+}
@@ -28,22 +28,34 @@ package org.graphwalker.core.machine;
  */
 
 import org.graphwalker.core.condition.EdgeCoverage;
+import org.graphwalker.core.condition.Length;
 import org.graphwalker.core.condition.ReachedVertex;
+import org.graphwalker.core.condition.StopConditionBase;
 import org.graphwalker.core.condition.StopConditionException;
 import org.graphwalker.core.condition.VertexCoverage;
+import org.graphwalker.core.event.BatchObserver;
+import org.graphwalker.core.event.EventType;
 import org.graphwalker.core.generator.AStarPath;
 import org.graphwalker.core.generator.RandomPath;
 import org.graphwalker.core.generator.ShortestAllPaths;
 import org.graphwalker.core.model.*;
 import org.graphwalker.core.statistics.Execution;
+import org.graphwalker.core.statistics.Phase;
+import org.graphwalker.core.statistics.PhaseTimer;
+import org.graphwalker.core.statistics.RingExecutionPath;
+import org.graphwalker.core.statistics.SimpleProfiler;
 import org.junit.Test;
+import org.slf4j.MDC;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 
@@ -66,6 +78,304 @@ public class SimpleMachineTest {
     assertNotEquals(context.getProfiler().getTotalVisitCount(), 0);
   }
 
+  @Test
+  public void sequenceTraceIds() throws Exception {
+    Vertex vertex = new Vertex();
+    Model model = new Model().addEdge(new Edge().setSourceVertex(vertex).setTargetVertex(vertex));
+    Context context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    context.setNextElement(vertex);
+    SimpleMachine machine = new SimpleMachine(context);
+    machine.setTraceMode(TraceMode.SEQUENCE);
+    List<Long> traces = new ArrayList<>();
+    while (machine.hasNextStep()) {
+      machine.getNextStep();
+      traces.add(Long.valueOf(MDC.get("trace")));
+    }
+    assertFalse(traces.isEmpty());
+    for (int i = 1; i < traces.size(); i++) {
+      assertTrue(traces.get(i - 1) < traces.get(i));
+    }
+    machine.setTraceMode(TraceMode.NONE);
+    assertNull(MDC.get("trace"));
+  }
+
+  @Test
+  public void traceModeProperty() throws Exception {
+    try {
+      System.setProperty("graphwalker.traceMode", "sequence");
+      assertThat(new SimpleMachine().getTraceMode(), is(TraceMode.SEQUENCE));
+      System.setProperty("graphwalker.traceMode", "fast");
+      assertThat(new SimpleMachine().getTraceMode(), is(TraceMode.UUID));
+    } finally {
+      System.clearProperty("graphwalker.traceMode");
+    }
+  }
+
+  @Test
+  public void checkpointAndResume() throws Exception {
+    Vertex vertex = new Vertex().setName("v_Loop");
+    Model model = new Model()
+      .addEdge(new Edge().setName("e_Up").setSourceVertex(vertex).setTargetVertex(vertex).addAction(new Action("i++;")))
+      .addEdge(new Edge().setName("e_Down").setSourceVertex(vertex).setTargetVertex(vertex).addAction(new Action("i--;")))
+      .addAction(new Action("var i = 0;"));
+    Context context = new TestExecutionContext(model, new RandomPath(new Length(60)));
+    context.setNextElement(vertex);
+    SimpleMachine machine = new SimpleMachine(context);
+    machine.getNextSteps(20);
+    ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+    machine.checkpoint(checkpoint);
+    List<String> expected = machine.stream(10).map(Step::getElementName).collect(Collectors.toList());
+
+    Context resumedContext = new TestExecutionContext(model, new RandomPath(new Length(60)));
+    resumedContext.setNextElement(vertex);
+    SimpleMachine resumed = SimpleMachine.resume(new ByteArrayInputStream(checkpoint.toByteArray()), Arrays.asList(resumedContext));
+    assertThat(resumed.getProfiler().getTotalVisitCount(), is(20L));
+    List<String> actual = resumed.stream(10).map(Step::getElementName).collect(Collectors.toList());
+    assertThat(actual, is(expected));
+    assertThat(resumedContext.getKeys().get("i"), is(context.getKeys().get("i")));
+    assertThat(resumed.getProfiler().getTotalVisitCount(), is(context.getProfiler().getTotalVisitCount()));
+  }
+
+  @Test
+  public void checkpointLeavesExecutionUnchanged() throws Exception {
+    Vertex vertex = new Vertex().setName("v_Loop");
+    Model model = new Model()
+      .addEdge(new Edge().setName("e_Up").setSourceVertex(vertex).setTargetVertex(vertex))
+      .addEdge(new Edge().setName("e_Down").setSourceVertex(vertex).setTargetVertex(vertex));
+    List<List<String>> walks = new ArrayList<>();
+    for (boolean checkpointed : new boolean[]{false, true}) {
+      Context context = new TestExecutionContext(model, new RandomPath(new Length(60)));
+      context.setNextElement(vertex);
+      SimpleMachine machine = new SimpleMachine(context);
+      machine.setSeed(42);
+      machine.getNextSteps(20);
+      if (checkpointed) {
+        machine.checkpoint(new ByteArrayOutputStream());
+      }
+      walks.add(machine.stream(20).map(Step::getElementName).collect(Collectors.toList()));
+    }
+    assertThat(walks.get(1), is(walks.get(0)));
+  }
+
+  @Test
+  public void checkpointKeepsCountsBeyondExecutionPath() throws Exception {
+    Vertex vertex = new Vertex().setName("v_Loop");
+    Edge up = new Edge().setId("e_Up").setName("e_Up").setSourceVertex(vertex).setTargetVertex(vertex);
+    Model model = new Model()
+      .addEdge(up)
+      .addEdge(new Edge().setName("e_Down").setSourceVertex(vertex).setTargetVertex(vertex));
+    Context context = new TestExecutionContext(model, new RandomPath(new Length(60)));
+    context.setNextElement(vertex);
+    SimpleMachine machine = new SimpleMachine(context);
+    machine.setProfiler(new SimpleProfiler(new RingExecutionPath(4)));
+    machine.getNextSteps(20);
+    ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+    machine.checkpoint(checkpoint);
+
+    Context resumedContext = new TestExecutionContext(model, new RandomPath(new Length(60)));
+    resumedContext.setNextElement(vertex);
+    SimpleMachine resumed = SimpleMachine.resume(new ByteArrayInputStream(checkpoint.toByteArray()), Arrays.asList(resumedContext));
+    assertThat(resumed.getProfiler().getTotalVisitCount(), is(20L));
+    assertTrue(resumed.getProfiler().getExecutionPath().isEmpty());
+    Element element = context.getModel().getElementById(up.getId());
+    Element resumedElement = resumedContext.getModel().getElementById(up.getId());
+    assertThat(resumed.getProfiler().getVisitCount(resumedContext, resumedElement), is(machine.getProfiler().getVisitCount(context, element)));
+    assertThat(resumed.getProfiler().getProfile(resumedContext, resumedElement).getTotalExecutionTime(),
+      is(machine.getProfiler().getProfile(context, element).getTotalExecutionTime()));
+  }
+
+  private static List<String> walk(Model model, Vertex start, long seed) {
+    Context context = new TestExecutionContext(model, new RandomPath(new Length(40)));
+    context.setNextElement(start);
+    SimpleMachine machine = new SimpleMachine(context);
+    machine.setSeed(seed);
+    return machine.stream(10).map(Step::getElementName).collect(Collectors.toList());
+  }
+
+  @Test
+  public void seedRepeatsExecution() throws Exception {
+    Vertex vertex = new Vertex().setName("v_Loop");
+    Model model = new Model()
+      .addEdge(new Edge().setName("e_Up").setSourceVertex(vertex).setTargetVertex(vertex))
+      .addEdge(new Edge().setName("e_Down").setSourceVertex(vertex).setTargetVertex(vertex))
+      .addEdge(new Edge().setName("e_Stay").setSourceVertex(vertex).setTargetVertex(vertex));
+    List<String> expected = walk(model, vertex, 42L);
+    assertThat(walk(model, vertex, 42L), is(expected));
+    assertThat(walk(model, vertex, 43L), not(expected));
+
+    RandomPath generator = new RandomPath(new Length(40));
+    generator.setSeed(7L);
+    Context context = new TestExecutionContext(model, generator);
+    context.setNextElement(vertex);
+    SimpleMachine machine = new SimpleMachine(context);
+    machine.setSeed(42L);
+    assertThat(machine.getSeed(), is(42L));
+    assertTrue(generator.isSeeded());
+    assertThat(machine.stream(10).map(Step::getElementName).collect(Collectors.toList()), not(expected));
+  }
+
+  public static class CountingContext extends ExecutionContext {
+
+    private int invocations = 0;
+
+    public void v_Loop() {
+      invocations++;
+    }
+
+    public void e_Up() {
+      invocations++;
+    }
+  }
+
+  @Test
+  public void dryRun() throws Exception {
+    Vertex vertex = new Vertex().setName("v_Loop");
+    Model model = new Model()
+      .addEdge(new Edge().setName("e_Up").setSourceVertex(vertex).setTargetVertex(vertex)
+        .setGuard(new Guard("i < 5")).addAction(new Action("i++;")))
+      .addAction(new Action("var i = 0;"));
+    CountingContext context = new CountingContext();
+    context.setModel(model.build()).setPathGenerator(new RandomPath(new EdgeCoverage(100)));
+    context.setNextElement(vertex);
+    SimpleMachine machine = new SimpleMachine(context);
+    machine.setDryRun(true);
+    while (machine.hasNextStep()) {
+      machine.getNextStep();
+    }
+    assertThat(context.invocations, is(0));
+    assertThat(context.getKeys().get("i"), is("1"));
+    assertThat(machine.getProfiler().getTotalVisitCount(), is(3L));
+    assertThat(machine.getProfiler().getExecutionPath().get(1).getElement().getName(), is("e_Up"));
+  }
+
+  @Test
+  public void phaseTimer() throws Exception {
+    Vertex vertex = new Vertex().setName("v_Idle");
+    Model model = new Model()
+      .addEdge(new Edge().setName("e_Up").setSourceVertex(vertex).setTargetVertex(vertex)
+        .setGuard(new Guard("i < 5")).addAction(new Action("i++;")))
+      .addAction(new Action("var i = 0;"));
+    CountingContext context = new CountingContext();
+    context.setModel(model.build()).setPathGenerator(new RandomPath(new EdgeCoverage(100)));
+    context.setNextElement(vertex);
+    SimpleMachine machine = new SimpleMachine(context);
+    PhaseTimer phaseTimer = new PhaseTimer();
+    machine.setPhaseTimer(phaseTimer);
+    machine.addObserver((observedMachine, element, type) -> {
+    });
+    while (machine.hasNextStep()) {
+      machine.getNextStep();
+    }
+    assertSame(phaseTimer, context.getPhaseTimer());
+    assertThat(phaseTimer.getContexts().size(), is(1));
+    assertThat(phaseTimer.getHistogram(context, Phase.SUT).getCount(), is(3L));
+    assertThat(phaseTimer.getHistogram(context.getPathGenerator(), Phase.ACTIONS).getCount(), is(3L));
+    assertTrue(0 < phaseTimer.getHistogram(Phase.SUT).getSum());
+    assertTrue(0 < phaseTimer.getHistogram(Phase.GUARDS).getSum());
+    assertTrue(0 < phaseTimer.getHistogram(Phase.OBSERVERS).getSum());
+    assertTrue(0 < phaseTimer.getHistogram(Phase.PATH_GENERATION).getSum());
+    assertThat(phaseTimer.getHistogram(Phase.SHARED_STATE).getSum(), is(0L));
+  }
+
+  @Test
+  public void batchSteps() throws Exception {
+    Vertex start = new Vertex().setName("v_Start");
+    Vertex end = new Vertex().setName("v_End");
+    Model model = new Model().addEdge(new Edge().setName("e_Go").setSourceVertex(start).setTargetVertex(end));
+    Context context = new TestExecutionContext(model, new RandomPath(new VertexCoverage(100)));
+    context.setNextElement(start);
+    Machine machine = new SimpleMachine(context);
+    List<Step> steps = machine.getNextSteps(2);
+    assertThat(steps.size(), is(2));
+    assertThat(steps.get(0).getElementName(), is("v_Start"));
+    assertThat(steps.get(1).getElementName(), is("e_Go"));
+    assertThat(steps.get(1).getContextIndex(), is(0));
+    List<String> names = machine.stream(2).map(Step::getElementName).collect(Collectors.toList());
+    assertThat(names, is(Arrays.asList("v_End")));
+    assertTrue(machine.getNextSteps(10).isEmpty());
+  }
+
+  @Test
+  public void stepsOfContextsRunningTheSameModel() throws Exception {
+    Vertex start = new Vertex().setName("v_Start");
+    Model model = new Model().addEdge(new Edge().setName("e_Loop").setSourceVertex(start).setTargetVertex(start));
+    Context first = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    Context second = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    first.setNextElement(start);
+    Machine machine = new SimpleMachine(first, second);
+    second.setCurrentElement(second.getModel().getVertices().get(0));
+    assertThat(machine.getNextSteps(1).get(0).getContextIndex(), is(0));
+    assertThat(Step.of(machine, second).getContextIndex(), is(1));
+    assertThat(Step.of(machine, second), not(Step.of(machine, first)));
+  }
+
+  @Test
+  public void batchObserver() throws Exception {
+    Vertex vertex = new Vertex().setName("v_Loop");
+    Model model = new Model().addEdge(new Edge().setName("e_Loop").setSourceVertex(vertex).setTargetVertex(vertex));
+    Context context = new TestExecutionContext(model, new RandomPath(new Length(100)));
+    context.setNextElement(vertex);
+    Machine machine = new SimpleMachine(context);
+    List<Integer> batches = new ArrayList<>();
+    List<EventType> events = new ArrayList<>();
+    machine.addObserver(new BatchObserver() {
+      @Override
+      public void updateBatch(Machine machine, List<Step> steps) {
+        batches.add(steps.size());
+      }
+
+      @Override
+      public void update(Machine machine, Element element, EventType type) {
+        events.add(type);
+      }
+    });
+    machine.getNextSteps(10);
+    assertThat(batches, is(Arrays.asList(10)));
+    assertTrue(events.isEmpty());
+    machine.getNextStep();
+    assertThat(events, is(Arrays.asList(EventType.BEFORE_ELEMENT, EventType.AFTER_ELEMENT)));
+    assertThat(batches.size(), is(1));
+  }
+
+  @Test
+  public void batchChecksOtherContextsOnce() throws Exception {
+    CountingCondition condition = new CountingCondition();
+    Context other = new TestExecutionContext(new Model().addVertex(new Vertex()), new RandomPath(condition));
+    Vertex vertex = new Vertex();
+    Model model = new Model().addEdge(new Edge().setSourceVertex(vertex).setTargetVertex(vertex));
+    Context context = new TestExecutionContext(model, new RandomPath(new Length(100)));
+    context.setNextElement(vertex);
+    Machine machine = new SimpleMachine(other, context);
+    int checks = condition.checks;
+    machine.getNextSteps(10);
+    assertThat(condition.checks - checks, is(1));
+    checks = condition.checks;
+    for (int i = 0; i < 10 && machine.hasNextStep(); i++) {
+      machine.getNextStep();
+    }
+    assertThat(condition.checks - checks, is(10));
+  }
+
+  private static class CountingCondition extends StopConditionBase {
+
+    private int checks = 0;
+
+    private CountingCondition() {
+      super("");
+    }
+
+    @Override
+    public double getFulfilment() {
+      return 0;
+    }
+
+    @Override
+    public boolean isFulfilled() {
+      checks++;
+      return false;
+    }
+  }
+
   @Test
   public void loopEdge() throws Exception {
     Vertex vertex = new Vertex();
@@ -183,6 +493,32 @@ public class SimpleMachineTest {
     assertThat(expectedPath, is(path));
   }
 
+  @Test
+  public void sharedStateOfReplacedContext() throws Exception {
+    Vertex start = new Vertex();
+    Vertex shared1 = new Vertex().setSharedState("MyState");
+    Edge edge1 = new Edge().setSourceVertex(start).setTargetVertex(shared1);
+    Vertex shared2 = new Vertex().setSharedState("MyState");
+    Vertex stop = new Vertex();
+    Edge edge2 = new Edge().setSourceVertex(shared2).setTargetVertex(stop);
+    Vertex replaced = new Vertex().setSharedState("MyState");
+    Edge replacedEdge = new Edge().setSourceVertex(replaced).setTargetVertex(new Vertex());
+    List<Context> contexts = new ArrayList<>();
+    contexts.add(new TestExecutionContext(new Model().addEdge(edge1), new RandomPath(new VertexCoverage(100))).setNextElement(start));
+    contexts.add(new TestExecutionContext(new Model().addEdge(replacedEdge), new RandomPath(new VertexCoverage(100))));
+    Machine machine = new SimpleMachine(contexts);
+    Context replacement = new TestExecutionContext(new Model().addEdge(edge2), new RandomPath(new VertexCoverage(100)));
+    replacement.setProfiler(machine.getProfiler());
+    machine.getContexts().set(1, replacement);
+    while (machine.hasNextStep()) {
+      machine.getNextStep();
+    }
+    List<Element> expectedPath = Arrays.<Element>asList(start.build(), edge1.build(), shared1.build(), shared2.build(), edge2.build(), stop.build());
+    List<Element> path = machine.getProfiler().getExecutionPath().stream()
+      .map(Execution::getElement).collect(Collectors.toList());
+    assertThat(expectedPath, is(path));
+  }
+
   @Test(expected = MachineException.class)
   public void singleSharedStates() throws Exception {
     Vertex start = new Vertex();
@@ -0,0 +1,117 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.condition.EdgeCoverage;
+import org.graphwalker.core.generator.RandomPath;
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.SimpleMachine;
+import org.graphwalker.core.machine.TestExecutionContext;
+import org.graphwalker.core.model.Action;
+import org.graphwalker.core.model.Edge;
+import org.graphwalker.core.model.Guard;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.Vertex;
+import org.graphwalker.core.statistics.PhaseTimer;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class MachineMetricsTest {
+
+  @Test
+  public void collect() throws Exception {
+    Vertex vertex = new Vertex().setName("v_Idle");
+    Model model = new Model().setName("Counter")
+      .addEdge(new Edge().setName("e_Up").setSourceVertex(vertex).setTargetVertex(vertex)
+        .setGuard(new Guard("i < 5")).addAction(new Action("i++;")))
+      .addVertex(new Vertex().setName("v_Unreachable"))
+      .addAction(new Action("var i = 0;"));
+    Context context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    context.setNextElement(vertex);
+    SimpleMachine machine = new SimpleMachine(context);
+    MetricRegistry registry = new MetricRegistry();
+    MachineMetrics metrics = registry.register(new MachineMetrics(machine, "machine", "test"));
+    assertNull(machine.getPhaseTimer());
+    machine.setPhaseTimer(new PhaseTimer());
+    while (machine.hasNextStep()) {
+      machine.getNextStep();
+    }
+    List<MetricFamily> families = registry.collect();
+    assertThat(getValue(families, "graphwalker_steps_total"), is(3.0));
+    assertTrue(0 < getValue(families, "graphwalker_steps_per_second"));
+    assertTrue(0 < getValue(families, "graphwalker_guard_evaluations_total"));
+    assertTrue(0 < getValue(families, "graphwalker_script_evaluations_total"));
+    assertThat(getValue(families, "graphwalker_edge_coverage_percent"), is(100.0));
+    assertThat(getValue(families, "graphwalker_vertex_coverage_percent"), is(50.0));
+    assertThat(getValue(families, "graphwalker_path_generation_seconds_count"), is(3.0));
+
+    String text = PrometheusTextFormat.format(registry);
+    assertThat(text, containsString("graphwalker_steps_total{machine=\"test\"} 3\n"));
+    assertThat(text, containsString("graphwalker_vertex_coverage_percent{model=\"Counter\",context=\"0\",machine=\"test\"} 50\n"));
+    assertThat(text, containsString("# TYPE graphwalker_path_generation_seconds summary\n"));
+
+    metrics.close();
+    assertTrue(machine.getObservers().isEmpty());
+  }
+
+  @Test
+  public void contextsOfTheSameModel() throws Exception {
+    Vertex vertex = new Vertex().setName("v_Idle");
+    Model model = new Model().addEdge(new Edge().setName("e_Loop").setSourceVertex(vertex).setTargetVertex(vertex));
+    Context first = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    Context second = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    first.setNextElement(vertex);
+    SimpleMachine machine = new SimpleMachine(first, second);
+    MetricRegistry registry = new MetricRegistry();
+    registry.register(new MachineMetrics(machine));
+    String text = PrometheusTextFormat.format(registry);
+    assertThat(text, containsString("graphwalker_edge_coverage_percent{model=\"\",context=\"0\"} 0\n"));
+    assertThat(text, containsString("graphwalker_edge_coverage_percent{model=\"\",context=\"1\"} 0\n"));
+  }
+
+  private static double getValue(List<MetricFamily> families, String name) {
+    for (MetricFamily family : families) {
+      for (Sample sample : family.getSamples()) {
+        if (name.equals(sample.getName())) {
+          return sample.getValue();
+        }
+      }
+    }
+    throw new AssertionError("Missing metric " + name);
+  }
+}
@@ -0,0 +1,115 @@
+package org.graphwalker.core.metrics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Scanner;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class MetricRegistryTest {
+
+  @Test
+  public void prometheusTextFormat() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    Counter counter = registry.counter("test_total", "A \\ counter\nover lines");
+    counter.add(2);
+    registry.gauge("test_ratio", "A gauge", () -> 0.25);
+    registry.register(() -> Collections.singletonList(new MetricFamily("test_total", "", MetricType.COUNTER)
+      .addSample(Double.POSITIVE_INFINITY, "model", "a \"b\"")));
+    assertThat(PrometheusTextFormat.format(registry), is(
+      "# HELP test_total A \\\\ counter\\nover lines\n" +
+      "# TYPE test_total counter\n" +
+      "test_total 2\n" +
+      "test_total{model=\"a \\\"b\\\"\"} +Inf\n" +
+      "# HELP test_ratio A gauge\n" +
+      "# TYPE test_ratio gauge\n" +
+      "test_ratio 0.25\n"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void conflictingTypes() {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("test", "");
+    registry.gauge("test", "", () -> 1);
+    registry.collect();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void duplicateLabels() {
+    MetricRegistry registry = new MetricRegistry();
+    registry.register(() -> Collections.singletonList(new MetricFamily("test", "", MetricType.GAUGE)
+      .addSample(1, "model", "a", "context", "0")));
+    registry.register(() -> Collections.singletonList(new MetricFamily("test", "", MetricType.GAUGE)
+      .addSample(2, "context", "0", "model", "a")));
+    registry.collect();
+  }
+
+  @Test
+  public void jmx() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    Counter counter = registry.counter("test_total", "A counter");
+    ObjectName name = MetricRegistryMBean.register(registry, "MetricRegistryTest");
+    try {
+      counter.increment();
+      assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "test_total"), is((Object) 1.0));
+      assertThat(ManagementFactory.getPlatformMBeanServer().getMBeanInfo(name).getAttributes().length, is(1));
+    } finally {
+      MetricRegistryMBean.unregister(name);
+    }
+  }
+
+  @Test
+  public void httpScrape() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    Counter counter = registry.counter("test_total", "A counter");
+    try (MetricsHttpServer server = new MetricsHttpServer(0, registry)) {
+      counter.add(3);
+      HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort()
+                                                                 + MetricsHttpServer.PATH).openConnection();
+      assertThat(connection.getResponseCode(), is(200));
+      assertThat(connection.getContentType(), is(PrometheusTextFormat.CONTENT_TYPE));
+      try (InputStream input = connection.getInputStream()) {
+        String body = new Scanner(input, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+        assertThat(body, is(PrometheusTextFormat.format(registry)));
+      }
+    }
+  }
+}
@@ -31,7 +31,9 @@ import org.graphwalker.core.model.Model.RuntimeModel;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.core.Is.is;
@@ -335,6 +337,34 @@ public class ModelTest {
     assertThat(model.build().getInEdges(vertex.build()).size(), is(1));
   }
 
+  @Test
+  public void testVariableDependencies() throws Exception {
+    Vertex vertex = new Vertex();
+    Edge login = new Edge().setSourceVertex(vertex).setTargetVertex(vertex)
+      .setGuard(new Guard("!loggedIn && attempts < 3")).addAction(new Action("attempts++; loggedIn = true"));
+    Edge admin = new Edge().setSourceVertex(vertex).setTargetVertex(vertex)
+      .setGuard(new Guard("role == 'admin'"));
+    Edge browse = new Edge().setSourceVertex(vertex).setTargetVertex(vertex)
+      .setGuard(new Guard("isReady()"));
+    Edge always = new Edge().setSourceVertex(vertex).setTargetVertex(vertex)
+      .setGuard(new Guard("1 < 2"));
+    RuntimeModel model = new Model().addEdge(login).addEdge(admin).addEdge(browse).addEdge(always)
+      .addAction(new Action("var attempts = 0; var loggedIn = false; var role = 'admin';")).build();
+    assertThat(model.getReadVariables(model.getEdges().get(0).getGuard()), is(asSet("loggedIn", "attempts")));
+    assertThat(model.getWrittenVariables(model.getEdges().get(0).getActions().get(0)), is(asSet("attempts", "loggedIn")));
+    assertThat(model.getWrittenVariables(model.getActions().get(0)), is(asSet("attempts", "loggedIn", "role")));
+    assertThat(model.getWrittenVariables(), is(asSet("attempts", "loggedIn", "role")));
+    assertNull(model.getReadVariables(model.getEdges().get(2).getGuard()));
+    assertFalse(model.isConstant(model.getEdges().get(0).getGuard()));
+    assertFalse(model.isConstant(model.getEdges().get(1).getGuard()));
+    assertFalse(model.isConstant(model.getEdges().get(2).getGuard()));
+    assertTrue(model.isConstant(model.getEdges().get(3).getGuard()));
+  }
+
+  private static Set<String> asSet(String... names) {
+    return new HashSet<>(Arrays.asList(names));
+  }
+
   @Test
   public void testEquality() throws Exception {
     Model model1 = new Model().setId("ID1");
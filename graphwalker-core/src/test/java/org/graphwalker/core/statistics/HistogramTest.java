@@ -0,0 +1,115 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class HistogramTest {
+
+  @Test
+  public void statistics() throws Exception {
+    Histogram histogram = new Histogram();
+    histogram.record(3000);
+    histogram.record(1000);
+    histogram.record(2000);
+    assertThat(histogram.getCount(), is(3L));
+    assertThat(histogram.getSum(), is(6000L));
+    assertThat(histogram.getMin(), is(1000L));
+    assertThat(histogram.getMax(), is(3000L));
+    assertThat(histogram.getMean(), is(2000L));
+    assertThat(histogram.getFirst(), is(3000L));
+    assertThat(histogram.getLast(), is(2000L));
+    assertThat(histogram.getPercentile(0), is(1000L));
+    assertThat(histogram.getPercentile(100), is(3000L));
+  }
+
+  @Test
+  public void percentiles() throws Exception {
+    Histogram histogram = new Histogram();
+    for (long value = 1; value <= 100_000; value++) {
+      histogram.record(value * 1000);
+    }
+    assertWithin(histogram.getPercentile(50), 50_000_000L);
+    assertWithin(histogram.getPercentile(90), 90_000_000L);
+    assertWithin(histogram.getPercentile(99), 99_000_000L);
+    assertWithin(histogram.getPercentile(99.9), 99_900_000L);
+    assertThat(histogram.getPercentile(100), is(100_000_000L));
+  }
+
+  @Test
+  public void smallValuesAreExact() throws Exception {
+    Histogram histogram = new Histogram();
+    for (long value = 0; value < 16; value++) {
+      histogram.record(value);
+    }
+    assertThat(histogram.getPercentile(50), is(7L));
+    assertThat(histogram.getPercentile(100), is(15L));
+  }
+
+  @Test
+  public void merge() throws Exception {
+    Histogram first = new Histogram();
+    Histogram second = new Histogram();
+    for (long value = 1; value <= 1000; value++) {
+      first.record(value);
+      second.record(value + 1000);
+    }
+    Histogram merged = first.copy().merge(second);
+    assertThat(merged.getCount(), is(2000L));
+    assertThat(merged.getMin(), is(1L));
+    assertThat(merged.getMax(), is(2000L));
+    assertThat(merged.getFirst(), is(1L));
+    assertThat(merged.getLast(), is(2000L));
+    assertWithin(merged.getPercentile(50), 1000L);
+    assertThat(first.getCount(), is(1000L));
+    assertThat(new Histogram().merge(second).getFirst(), is(1001L));
+  }
+
+  @Test
+  public void largestValue() throws Exception {
+    Histogram histogram = new Histogram();
+    histogram.record(Long.MAX_VALUE);
+    assertThat(histogram.getPercentile(50), is(Long.MAX_VALUE));
+  }
+
+  @Test(expected = MissingExecutionException.class)
+  public void emptyPercentile() throws Exception {
+    new Histogram().getPercentile(50);
+  }
+
+  private static void assertWithin(long actual, long expected) {
+    assertTrue(actual + " is not within 1/16 of " + expected, Math.abs(actual - expected) <= expected / 16);
+  }
+}
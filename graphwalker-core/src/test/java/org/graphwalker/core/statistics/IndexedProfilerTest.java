@@ -0,0 +1,137 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.condition.EdgeCoverage;
+import org.graphwalker.core.generator.RandomPath;
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.SimpleMachine;
+import org.graphwalker.core.machine.TestExecutionContext;
+import org.graphwalker.core.model.Edge;
+import org.graphwalker.core.model.Element;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.Vertex;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class IndexedProfilerTest {
+
+  @Test
+  public void create() throws Exception {
+    Vertex start = new Vertex().setId("start");
+    Context context = new TestExecutionContext()
+      .setModel(new Model()
+        .addEdge(new Edge()
+          .setSourceVertex(start)
+          .setTargetVertex(new Vertex())).build())
+      .setCurrentElement(start.build());
+    Profiler profiler = new IndexedProfiler();
+    profiler.addContext(context);
+    assertThat(profiler.getContexts(), is(new HashSet<>(Arrays.asList(context))));
+    assertFalse(profiler.isVisited(context, start.build()));
+    assertThat(profiler.getUnvisitedEdges().size(), is(1));
+    assertThat(profiler.getUnvisitedVertices(context).size(), is(2));
+    profiler.start(context);
+    profiler.stop(context);
+    profiler.start(context);
+    profiler.stop(context);
+    assertTrue(profiler.isVisited(context, start.build()));
+    assertThat(profiler.getTotalVisitCount(), is(2L));
+    assertThat(profiler.getVisitCount(context, start.build()), is(2L));
+    assertThat(profiler.getVisitedVertices(context).size(), is(1));
+    assertThat(profiler.getUnvisitedElements(context).size(), is(2));
+    assertThat(profiler.getProfile(context, start.build()).getExecutionCount(), is(2L));
+    assertThat(profiler.getProfiles().size(), is(1));
+    assertThat(profiler.getExecutionPath().size(), is(2));
+    assertThat(profiler.getExecutionPath().get(1).getElement(), is(context.getCurrentElement()));
+  }
+
+  @Test
+  public void reindexOnModelChange() throws Exception {
+    Vertex start = new Vertex().setId("start");
+    Edge edge = new Edge().setId("edge").setSourceVertex(start).setTargetVertex(new Vertex());
+    Context context = new TestExecutionContext()
+      .setModel(new Model().addEdge(edge).build())
+      .setCurrentElement(start.build());
+    Profiler profiler = new IndexedProfiler();
+    profiler.start(context);
+    profiler.stop(context);
+    context.setModel(new Model().addVertex(new Vertex().setId("other")).addVertex(start).build());
+    assertThat(profiler.getVisitCount(context, start.build()), is(1L));
+    assertThat(profiler.getUnvisitedElements(context).size(), is(1));
+    assertThat(profiler.getExecutionPath().get(0).getElement().getId(), is("start"));
+  }
+
+  @Test
+  public void sameResultsAsSimpleProfiler() throws Exception {
+    Vertex v1 = new Vertex().setName("v1");
+    Vertex v2 = new Vertex().setName("v2");
+    Model model = new Model()
+      .addEdge(new Edge().setName("e1").setSourceVertex(v1).setTargetVertex(v2))
+      .addEdge(new Edge().setName("e2").setSourceVertex(v2).setTargetVertex(v1))
+      .addEdge(new Edge().setName("e3").setSourceVertex(v2).setTargetVertex(v2))
+      .addEdge(new Edge().setName("e4").setSourceVertex(v1).setTargetVertex(v1));
+    Profiler simple = walk(model, v1, new SimpleProfiler());
+    Profiler indexed = walk(model, v1, new IndexedProfiler());
+    assertThat(names(indexed.getExecutionPath().stream().map(Execution::getElement).collect(Collectors.toList())),
+      is(names(simple.getExecutionPath().stream().map(Execution::getElement).collect(Collectors.toList()))));
+    assertThat(names(indexed.getVisitedEdges()), is(names(simple.getVisitedEdges())));
+    assertThat(names(indexed.getVisitedVertices()), is(names(simple.getVisitedVertices())));
+    assertThat(names(indexed.getUnvisitedElements()), is(names(simple.getUnvisitedElements())));
+    assertThat(indexed.getTotalVisitCount(), is(simple.getTotalVisitCount()));
+    assertThat(indexed.getProfiles().size(), is(simple.getProfiles().size()));
+  }
+
+  private static Profiler walk(Model model, Vertex start, Profiler profiler) {
+    Context context = new TestExecutionContext(model, new RandomPath(new EdgeCoverage(100)));
+    context.setNextElement(start);
+    SimpleMachine machine = new SimpleMachine(context);
+    machine.setProfiler(profiler);
+    machine.setSeed(42L);
+    while (machine.hasNextStep()) {
+      machine.getNextStep();
+    }
+    return machine.getProfiler();
+  }
+
+  private static List<String> names(List<Element> elements) {
+    return elements.stream().map(Element::getName).collect(Collectors.toList());
+  }
+}
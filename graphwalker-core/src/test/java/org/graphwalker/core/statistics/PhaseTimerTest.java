@@ -0,0 +1,70 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.condition.EdgeCoverage;
+import org.graphwalker.core.generator.RandomPath;
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.TestExecutionContext;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.Vertex;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class PhaseTimerTest {
+
+  @Test
+  public void nestedPhasesAreExclusive() throws Exception {
+    Context context = new TestExecutionContext(new Model().addVertex(new Vertex()), new RandomPath(new EdgeCoverage(100)));
+    PhaseTimer phaseTimer = new PhaseTimer();
+    phaseTimer.start(Phase.PATH_GENERATION);
+    phaseTimer.start(Phase.GUARDS);
+    Thread.sleep(50);
+    phaseTimer.stop();
+    phaseTimer.stop();
+    phaseTimer.stop();
+    long guards = phaseTimer.getStepTime(Phase.GUARDS);
+    long pathGeneration = phaseTimer.getStepTime(Phase.PATH_GENERATION);
+    assertTrue(guards >= TimeUnit.MILLISECONDS.toNanos(50));
+    assertTrue(pathGeneration < guards);
+    phaseTimer.endStep(context);
+    assertThat(phaseTimer.getStepTime(Phase.GUARDS), is(0L));
+    assertThat(phaseTimer.getHistogram(context, Phase.GUARDS).getSum(), is(guards));
+    assertThat(phaseTimer.getHistogram(context.getPathGenerator(), Phase.PATH_GENERATION).getSum(), is(pathGeneration));
+    assertThat(phaseTimer.getHistogram(Phase.SUT).getCount(), is(1L));
+    assertThat(phaseTimer.getHistogram(Phase.SUT).getSum(), is(0L));
+  }
+}
@@ -38,6 +38,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public class ProfileTest {
 
@@ -88,6 +89,8 @@ public class ProfileTest {
     assertThat(profile.getFirstExecutionTime(TimeUnit.MICROSECONDS), is(1L));
     assertThat(profile.getLastExecutionTime(TimeUnit.MICROSECONDS), is(2L));
     assertThat(profile.getTotalExecutionTime(TimeUnit.MICROSECONDS), is(6L));
+    assertTrue(profile.getPercentileExecutionTime(50) >= 2000L && profile.getPercentileExecutionTime(50) < 2125L);
+    assertThat(profile.getPercentileExecutionTime(99, TimeUnit.MICROSECONDS), is(3L));
   }
 
   @Test
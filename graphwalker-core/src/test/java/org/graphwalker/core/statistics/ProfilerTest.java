@@ -38,8 +38,10 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.core.Is.is;
@@ -208,4 +210,25 @@ public final class ProfilerTest {
     assertThat(profiler.getUnvisitedEdges(contextA).size(), is(0));
     assertThat(profiler.getUnvisitedEdges(contextB).size(), is(0));
   }
+
+  @Test
+  public void visitListener() throws Exception {
+    Profiler profiler = new SimpleProfiler();
+    List<Boolean> firstVisits = new ArrayList<>();
+    VisitListener listener = (visitContext, element, firstVisit) -> {
+      assertThat(visitContext, is(context));
+      assertThat(element, is(start.build()));
+      firstVisits.add(firstVisit);
+    };
+    profiler.addVisitListener(listener);
+    profiler.addVisitListener(listener);
+    profiler.start(context);
+    profiler.stop(context);
+    profiler.start(context);
+    profiler.stop(context);
+    profiler.removeVisitListener(listener);
+    profiler.start(context);
+    profiler.stop(context);
+    assertThat(firstVisits, is(Arrays.asList(true, false)));
+  }
 }
@@ -0,0 +1,81 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.TestExecutionContext;
+import org.graphwalker.core.model.Edge;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.Vertex;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class RingExecutionPathTest {
+
+  @Test
+  public void keepsLastExecutions() throws Exception {
+    Vertex vertex = new Vertex();
+    Context context = new TestExecutionContext().setModel(new Model().addVertex(vertex).build());
+    RingExecutionPath executionPath = new RingExecutionPath(3);
+    for (long time = 0; time < 5; time++) {
+      executionPath.add(new Execution(context, vertex.build(), time, 1));
+    }
+    assertThat(executionPath.size(), is(3));
+    assertThat(executionPath.stream().map(Execution::getTime).collect(Collectors.toList()), is(Arrays.asList(2L, 3L, 4L)));
+    assertThat(executionPath.get(executionPath.size() - 1).getTime(), is(4L));
+  }
+
+  @Test
+  public void profilerCountsEveryExecution() throws Exception {
+    Vertex start = new Vertex();
+    Context context = new TestExecutionContext()
+      .setModel(new Model().addEdge(new Edge().setSourceVertex(start).setTargetVertex(new Vertex())).build())
+      .setCurrentElement(start.build());
+    Profiler profiler = new SimpleProfiler(new RingExecutionPath(2));
+    for (int i = 0; i < 5; i++) {
+      profiler.start(context);
+      profiler.stop(context);
+    }
+    assertThat(profiler.getExecutionPath().size(), is(2));
+    assertThat(profiler.getTotalVisitCount(), is(5L));
+    assertThat(profiler.getVisitCount(context, start.build()), is(5L));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void capacityMustBePositive() throws Exception {
+    new RingExecutionPath(0);
+  }
+}
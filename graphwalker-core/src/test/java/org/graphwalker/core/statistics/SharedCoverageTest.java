@@ -0,0 +1,96 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.condition.EdgeCoverage;
+import org.graphwalker.core.generator.QuickRandomPath;
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.Machine;
+import org.graphwalker.core.machine.SimpleMachine;
+import org.graphwalker.core.machine.TestExecutionContext;
+import org.graphwalker.core.model.Edge;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.Vertex;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class SharedCoverageTest {
+
+  private static Model.RuntimeModel createModel() {
+    Vertex v1 = new Vertex().setName("v1");
+    Vertex v2 = new Vertex().setName("v2");
+    Vertex v3 = new Vertex().setName("v3");
+    return new Model()
+      .addEdge(new Edge().setName("e1").setSourceVertex(v1).setTargetVertex(v2))
+      .addEdge(new Edge().setName("e2").setSourceVertex(v2).setTargetVertex(v3))
+      .addEdge(new Edge().setName("e3").setSourceVertex(v3).setTargetVertex(v1))
+      .build();
+  }
+
+  @Test
+  public void visitOnce() throws Exception {
+    Model.RuntimeModel model = createModel();
+    SharedCoverage coverage = new SharedCoverage(model);
+    assertThat(coverage.getEdgeCount(), is(3));
+    assertThat(coverage.getVertexCount(), is(3));
+    assertFalse(coverage.isVisited(model.getEdges().get(0)));
+    assertTrue(coverage.visit(model.getEdges().get(0)));
+    assertFalse(coverage.visit(model.getEdges().get(0)));
+    assertTrue(coverage.visit(model.getVertices().get(0)));
+    assertTrue(coverage.isVisited(model.getEdges().get(0)));
+    assertThat(coverage.getVisitedEdgeCount(), is(1));
+    assertThat(coverage.getVisitedVertexCount(), is(1));
+  }
+
+  @Test
+  public void cooperatingMachines() throws Exception {
+    Model.RuntimeModel model = createModel();
+    SharedCoverage coverage = new SharedCoverage(model);
+    Context first = new TestExecutionContext().setModel(model).setPathGenerator(new QuickRandomPath(new EdgeCoverage(100)));
+    Context second = new TestExecutionContext().setModel(model).setPathGenerator(new QuickRandomPath(new EdgeCoverage(100)));
+    first.setSharedCoverage(coverage).setNextElement(model.getVertices().get(0));
+    second.setSharedCoverage(coverage).setNextElement(model.getVertices().get(0));
+    Machine firstMachine = new SimpleMachine(first);
+    Machine secondMachine = new SimpleMachine(second);
+    while (firstMachine.hasNextStep()) {
+      firstMachine.getNextStep();
+    }
+    assertThat(coverage.getVisitedEdgeCount(), is(3));
+    assertTrue(secondMachine.hasNextStep());
+    secondMachine.getNextStep();
+    assertFalse(secondMachine.hasNextStep());
+    assertThat(secondMachine.getProfiler().getTotalVisitCount(), is(1L));
+  }
+}
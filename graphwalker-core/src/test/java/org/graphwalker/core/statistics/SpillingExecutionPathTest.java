@@ -0,0 +1,72 @@
+package org.graphwalker.core.statistics;
+
+/*
+ * #%L
+ * GraphWalker Core
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.TestExecutionContext;
+import org.graphwalker.core.model.Element;
+import org.graphwalker.core.model.Model;
+import org.graphwalker.core.model.Vertex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class SpillingExecutionPathTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void spillsAcrossPages() throws Exception {
+    Vertex vertex = new Vertex();
+    Context context = new TestExecutionContext().setModel(new Model().addVertex(vertex).build());
+    Element element = context.getModel().getVertices().get(0);
+    Element unknown = new Vertex().build();
+    int count = SpillingExecutionPath.PAGE_RECORDS + 10;
+    try (SpillingExecutionPath executionPath = new SpillingExecutionPath(temporaryFolder.newFile())) {
+      for (int i = 0; i < count; i++) {
+        executionPath.add(new Execution(context, 0 == i % 2 ? element : unknown, i, 2L * i));
+      }
+      assertThat(executionPath.size(), is(count));
+      Execution last = executionPath.get(count - 1);
+      assertSame(context, last.getContext());
+      assertSame(unknown, last.getElement());
+      assertThat(last.getTime(), is((long) count - 1));
+      assertThat(last.getDuration(), is(2L * (count - 1)));
+      assertSame(element, executionPath.get(SpillingExecutionPath.PAGE_RECORDS).getElement());
+      assertThat(executionPath.stream().mapToLong(Execution::getTime).sum(), is((long) count * (count - 1) / 2));
+    }
+  }
+}
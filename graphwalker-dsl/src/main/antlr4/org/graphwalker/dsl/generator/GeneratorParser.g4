@@ -5,7 +5,11 @@ options {
 }
 
 parse
- : (generator)* EOF
+ : (generator)* (seed)? EOF
+ ;
+
+seed
+ : Alphanumeric LPAREN Number RPAREN
  ;
 
 generator
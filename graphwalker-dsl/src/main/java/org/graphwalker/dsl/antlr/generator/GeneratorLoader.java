@@ -29,11 +29,14 @@ package org.graphwalker.dsl.antlr.generator;
 
 import org.graphwalker.core.condition.*;
 import org.graphwalker.core.generator.*;
+import org.graphwalker.core.machine.Seedable;
+import org.graphwalker.dsl.antlr.DslException;
 import org.graphwalker.dsl.generator.GeneratorParser;
 import org.graphwalker.dsl.generator.GeneratorParserBaseListener;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -44,6 +47,7 @@ public class GeneratorLoader extends GeneratorParserBaseListener {
   private StopCondition stopCondition = null;
   private final List<PathGenerator> pathGenerators = new ArrayList<>();
   private final List<StopCondition> stopConditions = new ArrayList<>();
+  private Long seed = null;
 
   @Override
   public void exitBooleanAndExpression(GeneratorParser.BooleanAndExpressionContext ctx) {
@@ -109,7 +113,36 @@ public class GeneratorLoader extends GeneratorParserBaseListener {
     stopConditions.clear();
   }
 
+  @Override
+  public void exitSeed(GeneratorParser.SeedContext ctx) {
+    if (!"seed".equalsIgnoreCase(ctx.getChild(0).getText())) {
+      throw new DslException("Unknown option: " + ctx.getChild(0).getText());
+    }
+    try {
+      seed = Long.parseLong(ctx.getChild(2).getText());
+    } catch (NumberFormatException e) {
+      throw new DslException("The seed must be a whole number, but was: " + ctx.getChild(2).getText());
+    }
+  }
+
+  /**
+   * Seeds the random generators with the seed given by {@code seed(n)}, when several generators are combined each
+   * one gets a seed of its own derived from it.
+   */
+  private void setSeed() {
+    SplittableRandom random = new SplittableRandom(seed);
+    for (PathGenerator pathGenerator : pathGenerators) {
+      long generatorSeed = pathGenerators.size() == 1 ? seed : random.split().nextLong();
+      if (pathGenerator instanceof Seedable) {
+        ((Seedable) pathGenerator).setSeed(generatorSeed);
+      }
+    }
+  }
+
   public PathGenerator getGenerator() {
+    if (null != seed) {
+      setSeed();
+    }
     if (pathGenerators.isEmpty()) {
       return null;
     } else if (pathGenerators.size() == 1) {
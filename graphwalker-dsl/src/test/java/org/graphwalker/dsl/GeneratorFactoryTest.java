@@ -295,4 +295,22 @@ public class GeneratorFactoryTest {
     Assert.assertThat(generator.getStopCondition(), instanceOf(AlternativeCondition.class));
     Assert.assertThat(((AlternativeCondition) generator.getStopCondition()).getStopConditions().size(), is(3));
   }
+
+  @Test
+  public void seededGenerator() {
+    PathGenerator generator = GeneratorFactory.parse("random(edge_coverage(100)) seed(42)");
+    Assert.assertThat(generator, instanceOf(RandomPath.class));
+    Assert.assertThat(((RandomPath) generator).isSeeded(), is(true));
+    Assert.assertThat(((RandomPath) GeneratorFactory.parse("random(edge_coverage(100))")).isSeeded(), is(false));
+  }
+
+  @Test(expected = DslException.class)
+  public void fractionalSeed() {
+    GeneratorFactory.parse("random(edge_coverage(100)) seed(4.2)");
+  }
+
+  @Test(expected = DslException.class)
+  public void unknownOption() {
+    GeneratorFactory.parse("random(edge_coverage(100)) sead(42)");
+  }
 }
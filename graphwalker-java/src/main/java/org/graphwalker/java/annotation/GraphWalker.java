@@ -55,4 +55,9 @@ public @interface GraphWalker {
   Class<? extends StopCondition> stopCondition() default VertexCoverage.class;
 
   String stopConditionValue() default "100";
+
+  /**
+   * The seed of the random path generator, by default it is derived from the seed of the machine.
+   */
+  String seed() default "";
 }
@@ -65,9 +65,9 @@ public class XMLReportGenerator {
   public void writeReport(File reportDirectory, Executor executor) {
     Testsuites testsuites = new Testsuites();
     List<Report> reports = new ArrayList<>();
-    Machine machine = executor.getMachine();
+    List<Machine> machines = executor.getMachines();
 
-    Report report = new Report(machine, startTime);
+    Report report = new Report(machines, startTime);
     Testsuite testsuite = new Testsuite();
     List<String> keys = new ArrayList<>(systemProperties.stringPropertyNames());
     Collections.sort(keys);
@@ -85,7 +85,7 @@ public class XMLReportGenerator {
     testsuite.setErrors(report.getErrorsAsString());
     testsuite.setTime(report.getTimeAsString());
     testsuite.setTimestamp(report.getTimestamp());
-    for (Context context : machine.getContexts()) {
+    for (Context context : getContexts(machines)) {
       Testcase testcase = new Testcase();
       testcase.setName(context.getClass().getSimpleName());
       testcase.setClassname(context.getClass().getName());
@@ -125,6 +125,14 @@ public class XMLReportGenerator {
     }
   }
 
+  private List<Context> getContexts(List<Machine> machines) {
+    List<Context> contexts = new ArrayList<>();
+    for (Machine machine : machines) {
+      contexts.addAll(machine.getContexts());
+    }
+    return contexts;
+  }
+
   private void consolidate(Testsuites testsuites, List<Report> reports) {
     long tests = 0;
     long failures = 0;
@@ -185,10 +193,10 @@ public class XMLReportGenerator {
     private int time = 0;
     private final String timestamp;
 
-    Report(Machine machine, Date startTime) {
+    Report(List<Machine> machines, Date startTime) {
       DateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
       timestamp = formatter.format(startTime);
-      for (Context context : machine.getContexts()) {
+      for (Context context : getContexts(machines)) {
         tests++;
         switch (context.getExecutionStatus()) {
           case FAILED: {
@@ -39,6 +39,7 @@ public final class Configuration {
   private final Set<String> includes = new HashSet<>();
   private final Set<String> excludes = new HashSet<>();
   private final Set<String> groups = new HashSet<>();
+  private String shard = "";
 
   public Set<String> getIncludes() {
     return includes.isEmpty() ? DEFAULT : includes;
@@ -84,4 +85,16 @@ public final class Configuration {
     groups.add(group);
     return this;
   }
+
+  public String getShard() {
+    return shard;
+  }
+
+  /**
+   * @param shard the shard of the edges to execute, given as {@code i/N}, or an empty string to execute all edges
+   */
+  public Configuration setShard(String shard) {
+    this.shard = shard;
+    return this;
+  }
 }
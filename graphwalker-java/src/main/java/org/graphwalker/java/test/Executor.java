@@ -33,7 +33,9 @@ import org.graphwalker.core.machine.MachineException;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -49,6 +51,13 @@ public interface Executor {
 
   Machine getMachine();
 
+  /**
+   * @return all machines run by the executor
+   */
+  default List<Machine> getMachines() {
+    return Collections.singletonList(getMachine());
+  }
+
   Result getResult();
 
   boolean isFailure(Context context);
@@ -0,0 +1,270 @@
+package org.graphwalker.java.test;
+
+/*
+ * #%L
+ * GraphWalker Java
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.graphwalker.core.machine.Context;
+import org.graphwalker.core.machine.Machine;
+import org.graphwalker.core.machine.MachineException;
+import org.graphwalker.core.machine.SimpleMachine;
+import org.graphwalker.java.report.XMLReportGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>ParallelTestExecutor</h1>
+ * The ParallelTestExecutor runs several independent test executors at once on a thread pool.
+ * </p>
+ * Each executor has its own machine, with its own contexts, script engines and profiler, so only tests that do not
+ * share states with each other can be run this way. The results of all machines are merged into one {@link Result}
+ * and one report. An execution that fails does not stop the others. When the time budget runs out, the executions
+ * still running are cancelled after their current step and reported as incomplete.
+ *
+ * @author Ivan Bonkin
+ */
+public final class ParallelTestExecutor implements Executor {
+
+  private static final Logger logger = LoggerFactory.getLogger(ParallelTestExecutor.class);
+
+  private final List<TestExecutor> executors;
+  private final Map<Context, MachineException> failures = new HashMap<>();
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private long timeBudget = 0;
+  private long seed = System.nanoTime();
+  private Result result;
+
+  public ParallelTestExecutor(Collection<TestExecutor> executors) {
+    this.executors = new ArrayList<>(executors);
+    if (this.executors.isEmpty()) {
+      throw new TestExecutionException("No test executors to run");
+    }
+  }
+
+  /**
+   * Creates one executor, and hence one machine, per test class.
+   */
+  public ParallelTestExecutor(Class<?>... tests) throws IOException {
+    this(createExecutors(tests));
+  }
+
+  private static List<TestExecutor> createExecutors(Class<?>... tests) throws IOException {
+    List<TestExecutor> executors = new ArrayList<>();
+    for (Class<?> test : tests) {
+      executors.add(new TestExecutor(test));
+    }
+    return executors;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Sets the number of executions run at once, defaults to the number of available processors.
+   */
+  public ParallelTestExecutor setThreads(int threads) {
+    this.threads = Math.max(1, threads);
+    return this;
+  }
+
+  /**
+   * Sets the time all executions together may take, zero means no limit.
+   */
+  public ParallelTestExecutor setTimeBudget(long timeBudget, TimeUnit unit) {
+    this.timeBudget = unit.toMillis(Math.max(0, timeBudget));
+    return this;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Sets the seed the seeds of the machines are derived from, so that all executions can be repeated.
+   */
+  public ParallelTestExecutor setSeed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  public List<TestExecutor> getExecutors() {
+    return executors;
+  }
+
+  @Override
+  public Result execute() {
+    return execute(false);
+  }
+
+  @Override
+  public Result execute(boolean ignoreErrors) {
+    failures.clear();
+    SplittableRandom random = new SplittableRandom(seed);
+    for (TestExecutor executor : executors) {
+      long machineSeed = random.split().nextLong();
+      if (executor.getMachine() instanceof SimpleMachine) {
+        ((SimpleMachine) executor.getMachine()).setSeed(machineSeed);
+      }
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, executors.size()), runnable -> {
+      Thread thread = new Thread(runnable, "graphwalker-executor-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Result>> futures = new ArrayList<>();
+      for (TestExecutor executor : executors) {
+        futures.add(pool.submit(() -> executor.execute(true)));
+      }
+      long deadline = System.currentTimeMillis() + timeBudget;
+      for (int i = 0; i < futures.size(); i++) {
+        await(executors.get(i), futures.get(i), deadline);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    for (TestExecutor executor : executors) {
+      executor.close();
+      for (MachineException failure : executor.getFailures()) {
+        failures.put(failure.getContext(), failure);
+      }
+    }
+    result = new Result();
+    result.updateResults(getMachines(), failures);
+    if (!ignoreErrors && !failures.isEmpty()) {
+      throw new TestExecutionException(result);
+    }
+    return result;
+  }
+
+  private void await(TestExecutor executor, Future<Result> future, long deadline) {
+    try {
+      if (0 == timeBudget) {
+        future.get();
+      } else {
+        future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+      }
+    } catch (TimeoutException e) {
+      logger.warn("The time budget is exhausted, cancelling {}", executor.getMachine().getContexts());
+      cancelAll();
+      awaitCancelled(executor, future);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      cancelAll();
+      throw new TestExecutionException(e);
+    } catch (ExecutionException e) {
+      logger.error(e.getCause().getMessage());
+      failures.put(executor.getMachine().getCurrentContext(), new MachineException(executor.getMachine().getCurrentContext(), e.getCause()));
+    }
+  }
+
+  private void awaitCancelled(TestExecutor executor, Future<Result> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TestExecutionException(e);
+    } catch (ExecutionException e) {
+      logger.error(e.getCause().getMessage());
+      failures.put(executor.getMachine().getCurrentContext(), new MachineException(executor.getMachine().getCurrentContext(), e.getCause()));
+    }
+  }
+
+  /**
+   * Cancels all executions, each stops after its current step.
+   */
+  public void cancelAll() {
+    for (TestExecutor executor : executors) {
+      executor.cancel();
+    }
+  }
+
+  @Override
+  public MachineConfiguration getMachineConfiguration() {
+    MachineConfiguration machineConfiguration = new MachineConfiguration();
+    for (TestExecutor executor : executors) {
+      for (ContextConfiguration contextConfiguration : executor.getMachineConfiguration().getContextConfigurations()) {
+        machineConfiguration.addContextConfiguration(contextConfiguration);
+      }
+    }
+    return machineConfiguration;
+  }
+
+  /**
+   * @return the machine of the first executor, see {@link #getMachines()} for all of them
+   */
+  @Override
+  public Machine getMachine() {
+    return executors.get(0).getMachine();
+  }
+
+  @Override
+  public List<Machine> getMachines() {
+    List<Machine> machines = new ArrayList<>();
+    for (TestExecutor executor : executors) {
+      machines.add(executor.getMachine());
+    }
+    return machines;
+  }
+
+  @Override
+  public Result getResult() {
+    return result;
+  }
+
+  @Override
+  public boolean isFailure(Context context) {
+    return failures.containsKey(context);
+  }
+
+  @Override
+  public MachineException getFailure(Context context) {
+    return failures.get(context);
+  }
+
+  @Override
+  public Collection<MachineException> getFailures() {
+    return failures.values();
+  }
+
+  @Override
+  public void reportResults(File file, Date startTime, Properties properties) {
+    new XMLReportGenerator(startTime, properties).writeReport(file, this);
+    if (!getFailures().isEmpty()) {
+      throw new TestExecutionException(
+        MessageFormat.format("There are test failures.\n\n Please refer to {0} for the individual test results.", file.getAbsolutePath()));
+    }
+  }
+}
@@ -27,21 +27,33 @@ package org.graphwalker.java.test;
  * #L%
  */
 
+import org.graphwalker.core.generator.PathGenerator;
 import org.graphwalker.core.machine.Context;
 import org.graphwalker.core.machine.Machine;
 import org.graphwalker.core.machine.MachineException;
 import org.graphwalker.core.machine.RequirementStatus;
+import org.graphwalker.core.machine.SimpleMachine;
 import org.graphwalker.core.model.Element;
 import org.graphwalker.core.model.Requirement;
+import org.graphwalker.core.statistics.Histogram;
+import org.graphwalker.core.statistics.Phase;
+import org.graphwalker.core.statistics.PhaseTimer;
+import org.graphwalker.core.statistics.Profile;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import static org.graphwalker.core.common.Objects.isNotNull;
 import static org.graphwalker.core.common.Objects.isNotNullOrEmpty;
 
 /**
@@ -84,6 +96,13 @@ public final class Result {
   }
 
   public void updateResults(Machine machine, Map<Context, MachineException> failures) {
+    updateResults(Collections.singletonList(machine), failures);
+  }
+
+  /**
+   * Merges the results of several machines, e.g. of machines executed in parallel, into this result.
+   */
+  public void updateResults(Collection<Machine> machines, Map<Context, MachineException> failures) {
     int modelCount = 0;
     int completedModelCount = 0;
     int incompleteModelCount = 0;
@@ -97,6 +116,9 @@ public final class Result {
     int totalNumberOfRequirementsNotCovered = 0;
     int totalNumberOfRequirementsPassed = 0;
     int totalNumberOfRequirementsFailed = 0;
+    int totalNumberOfVisitedEdges = 0;
+    int totalNumberOfVisitedVertices = 0;
+    long totalNumberOfSteps = 0;
 
     JSONArray edgesNotVisitedJson = new JSONArray();
     JSONArray verticesNotVisitedJson = new JSONArray();
@@ -104,7 +126,55 @@ public final class Result {
     JSONArray requirementsPassedJson = new JSONArray();
     JSONArray requirementsFailedJson = new JSONArray();
 
-    for (Context context : machine.getContexts()) {
+    JSONArray seedsJson = new JSONArray();
+    Histogram executionTimes = new Histogram();
+    Map<String, JSONObject> elementTimesJson = new LinkedHashMap<>();
+    Map<String, Histogram> elementTimes = new HashMap<>();
+    Map<Phase, Histogram> phaseTimes = new LinkedHashMap<>();
+    Map<String, Map<Phase, Histogram>> contextPhaseTimes = new LinkedHashMap<>();
+    Map<String, Map<Phase, Histogram>> generatorPhaseTimes = new LinkedHashMap<>();
+    List<Context> contexts = new ArrayList<>();
+    for (Machine machine : machines) {
+      PhaseTimer phaseTimer = machine.getPhaseTimer();
+      if (isNotNull(phaseTimer)) {
+        for (Context context : phaseTimer.getContexts()) {
+          for (Phase phase : Phase.values()) {
+            merge(phaseTimes, phase, phaseTimer.getHistogram(context, phase));
+            merge(contextPhaseTimes.computeIfAbsent(context.getModel().getName(), k -> new LinkedHashMap<>()),
+                  phase, phaseTimer.getHistogram(context, phase));
+          }
+        }
+        for (PathGenerator pathGenerator : phaseTimer.getPathGenerators()) {
+          for (Phase phase : Phase.values()) {
+            merge(generatorPhaseTimes.computeIfAbsent(pathGenerator.toString(), k -> new LinkedHashMap<>()),
+                  phase, phaseTimer.getHistogram(pathGenerator, phase));
+          }
+        }
+      }
+      if (machine instanceof SimpleMachine) {
+        seedsJson.put(((SimpleMachine) machine).getSeed());
+      }
+      contexts.addAll(machine.getContexts());
+      totalNumberOfVisitedEdges += machine.getProfiler().getVisitedEdges().size();
+      totalNumberOfVisitedVertices += machine.getProfiler().getVisitedVertices().size();
+      totalNumberOfSteps += machine.getProfiler().getTotalVisitCount();
+      for (Profile profile : machine.getProfiler().getProfiles()) {
+        String modelName = profile.getContext().getModel().getName();
+        Element element = profile.getElement();
+        String key = modelName + "/" + element.getId();
+        elementTimes.computeIfAbsent(key, k -> {
+          JSONObject jsonElement = new JSONObject();
+          jsonElement.put("elementName", element.getName());
+          jsonElement.put("elementId", element.getId());
+          jsonElement.put("modelName", modelName);
+          elementTimesJson.put(k, jsonElement);
+          return new Histogram();
+        }).merge(profile.getHistogram());
+        executionTimes.merge(profile.getHistogram());
+      }
+    }
+
+    for (Context context : contexts) {
       switch (context.getExecutionStatus()) {
         case COMPLETED: {
           completedModelCount++;
@@ -172,6 +242,8 @@ public final class Result {
     }
 
     results = new JSONObject();
+    results.put("seeds", seedsJson);
+    results.put("totalNumberOfSteps", totalNumberOfSteps);
     results.put("totalNumberOfModels", modelCount);
     results.put("totalCompletedNumberOfModels", completedModelCount);
     results.put("totalIncompleteNumberOfModels", incompleteModelCount);
@@ -179,14 +251,14 @@ public final class Result {
     results.put("totalNotExecutedNumberOfModels", notExecutedModelCount);
     results.put("totalNumberOfEdges", totalNumberOfEdges);
     results.put("totalNumberOfUnvisitedEdges", totalNumberOfUnvisitedEdges);
-    results.put("totalNumberOfVisitedEdges", machine.getProfiler().getVisitedEdges().size());
+    results.put("totalNumberOfVisitedEdges", totalNumberOfVisitedEdges);
     if (totalNumberOfEdges > 0) {
       results.put("edgeCoverage",
                   100 * (totalNumberOfEdges - totalNumberOfUnvisitedEdges) / totalNumberOfEdges);
     }
     results.put("totalNumberOfVertices", totalNumberOfVertices);
     results.put("totalNumberOfUnvisitedVertices", totalNumberOfUnvisitedVertices);
-    results.put("totalNumberOfVisitedVertices", machine.getProfiler().getVisitedVertices().size());
+    results.put("totalNumberOfVisitedVertices", totalNumberOfVisitedVertices);
     if (totalNumberOfVertices > 0) {
       results.put("vertexCoverage", 100 * (totalNumberOfVertices - totalNumberOfUnvisitedVertices)
                                     / totalNumberOfVertices);
@@ -195,6 +267,33 @@ public final class Result {
     results.put("edgesNotVisited", edgesNotVisitedJson);
     results.put("verticesNotVisited", verticesNotVisitedJson);
 
+    results.put("executionTimeUnit", TimeUnit.NANOSECONDS.name());
+    results.put("executionTime", toJson(new JSONObject(), executionTimes));
+    JSONArray elementTimesArray = new JSONArray();
+    for (Map.Entry<String, JSONObject> entry : elementTimesJson.entrySet()) {
+      elementTimesArray.put(toJson(entry.getValue(), elementTimes.get(entry.getKey())));
+    }
+    results.put("elementExecutionTimes", elementTimesArray);
+
+    if (!phaseTimes.isEmpty()) {
+      JSONObject phaseTimesJson = toJson(new JSONObject(), phaseTimes);
+      JSONArray contextPhaseTimesJson = new JSONArray();
+      for (Map.Entry<String, Map<Phase, Histogram>> entry : contextPhaseTimes.entrySet()) {
+        JSONObject jsonElement = new JSONObject();
+        jsonElement.put("modelName", entry.getKey());
+        contextPhaseTimesJson.put(toJson(jsonElement, entry.getValue()));
+      }
+      JSONArray generatorPhaseTimesJson = new JSONArray();
+      for (Map.Entry<String, Map<Phase, Histogram>> entry : generatorPhaseTimes.entrySet()) {
+        JSONObject jsonElement = new JSONObject();
+        jsonElement.put("generator", entry.getKey());
+        generatorPhaseTimesJson.put(toJson(jsonElement, entry.getValue()));
+      }
+      phaseTimesJson.put("contexts", contextPhaseTimesJson);
+      phaseTimesJson.put("generators", generatorPhaseTimesJson);
+      results.put("phaseTimes", phaseTimesJson);
+    }
+
     if (totalNumberOfRequirements > 0) {
       results.put("totalNumberOfRequirement", totalNumberOfRequirements);
       results.put("totalNumberOfUncoveredRequirement", totalNumberOfRequirementsNotCovered);
@@ -219,6 +318,31 @@ public final class Result {
     }
   }
 
+  private static JSONObject toJson(JSONObject json, Histogram histogram) {
+    json.put("count", histogram.getCount());
+    if (0 < histogram.getCount()) {
+      json.put("min", histogram.getMin());
+      json.put("max", histogram.getMax());
+      json.put("mean", histogram.getMean());
+      json.put("p50", histogram.getPercentile(50));
+      json.put("p90", histogram.getPercentile(90));
+      json.put("p99", histogram.getPercentile(99));
+      json.put("p999", histogram.getPercentile(99.9));
+    }
+    return json;
+  }
+
+  private static void merge(Map<Phase, Histogram> histograms, Phase phase, Histogram histogram) {
+    histograms.computeIfAbsent(phase, k -> new Histogram()).merge(histogram);
+  }
+
+  private static JSONObject toJson(JSONObject json, Map<Phase, Histogram> histograms) {
+    for (Map.Entry<Phase, Histogram> entry : histograms.entrySet()) {
+      json.put(entry.getKey().name(), toJson(new JSONObject(), entry.getValue()));
+    }
+    return json;
+  }
+
   private String getStackTrace(Throwable throwable) {
     StringWriter writer = new StringWriter();
     throwable.printStackTrace(new PrintWriter(writer, true));
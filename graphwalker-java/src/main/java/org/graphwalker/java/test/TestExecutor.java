@@ -27,13 +27,16 @@ package org.graphwalker.java.test;
  * #L%
  */
 
+import org.graphwalker.core.condition.ShardCoverage;
 import org.graphwalker.core.event.EventType;
 import org.graphwalker.core.event.Observer;
 import org.graphwalker.core.machine.Context;
 import org.graphwalker.core.machine.Machine;
 import org.graphwalker.core.machine.MachineException;
+import org.graphwalker.core.machine.Seedable;
 import org.graphwalker.core.machine.SimpleMachine;
 import org.graphwalker.core.model.Element;
+import org.graphwalker.core.statistics.PhaseTimer;
 import org.graphwalker.dsl.antlr.generator.GeneratorFactory;
 import org.graphwalker.io.factory.ContextFactoryScanner;
 import org.graphwalker.java.annotation.*;
@@ -62,7 +65,7 @@ import static org.graphwalker.core.model.Model.RuntimeModel;
 /**
  * @author Nils Olsson
  */
-public final class TestExecutor implements Executor, Observer {
+public final class TestExecutor implements Executor, Observer, AutoCloseable {
 
   private static final Logger logger = LoggerFactory.getLogger(TestExecutor.class);
 
@@ -86,14 +89,18 @@ public final class TestExecutor implements Executor, Observer {
   private final Configuration configuration;
   private final MachineConfiguration machineConfiguration;
   private final Map<Context, MachineException> failures = new HashMap<>();
-  private final Machine machine;
+  private final SimpleMachine machine;
   private Result result;
+  private volatile boolean cancelled = false;
 
   public TestExecutor(Configuration configuration) throws IOException {
     this.configuration = configuration;
     this.machineConfiguration = createMachineConfiguration(AnnotationUtils.findTests(reflections));
     this.machine = createMachine(machineConfiguration);
     this.machine.addObserver(this);
+    if (isNotNullOrEmpty(configuration.getShard())) {
+      setShard(configuration.getShard());
+    }
   }
 
   public TestExecutor(Class<?>... tests) throws IOException {
@@ -122,6 +129,63 @@ public final class TestExecutor implements Executor, Observer {
     return machine;
   }
 
+  /**
+   * Stops a running execution after the current step, the contexts not completed by then are reported as incomplete.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  public boolean isDryRun() {
+    return machine.isDryRun();
+  }
+
+  /**
+   * Switches the dry run mode, which plans the path without touching the system under test. The methods
+   * implementing the model, the execution and element hooks, and the contexts observing the machine are skipped.
+   */
+  public TestExecutor setDryRun(boolean dryRun) {
+    machine.setDryRun(dryRun);
+    for (Context context : machine.getContexts()) {
+      if (context instanceof Observer) {
+        if (dryRun) {
+          machine.deleteObserver((Observer) context);
+        } else {
+          machine.addObserver((Observer) context);
+        }
+      }
+    }
+    return this;
+  }
+
+  public boolean isPhaseTiming() {
+    return isNotNull(machine.getPhaseTimer());
+  }
+
+  /**
+   * Switches the timing of the phases of each step, e.g. path generation, guards, actions and the system under
+   * test. The breakdown is reported under {@code phaseTimes} of the result.
+   */
+  public TestExecutor setPhaseTiming(boolean phaseTiming) {
+    machine.setPhaseTimer(phaseTiming ? new PhaseTimer() : null);
+    return this;
+  }
+
+  /**
+   * Restricts the execution to one shard of the edges, given as {@code i/N}. The stop conditions of the path
+   * generators are replaced, so that running all N shards, e.g. on separate build agents, covers all edges.
+   */
+  public TestExecutor setShard(String shard) {
+    for (Context context : machine.getContexts()) {
+      context.getPathGenerator().setStopCondition(ShardCoverage.parse(shard));
+    }
+    return this;
+  }
+
   private MachineConfiguration createMachineConfiguration(Collection<Class<?>> testClasses) {
     MachineConfiguration machineConfiguration = new MachineConfiguration();
     for (Class<?> testClass : testClasses) {
@@ -184,15 +248,18 @@ public final class TestExecutor implements Executor, Observer {
     } else {
       context.setPathGenerator(PathGeneratorFactory.createPathGenerator(annotation));
     }
+    if (isNotNullOrEmpty(annotation.seed()) && context.getPathGenerator() instanceof Seedable) {
+      ((Seedable) context.getPathGenerator()).setSeed(parseSeed(annotation.seed(), context));
+    }
     if (isNotNullOrEmpty(annotation.start()) && isNotNull(context.getModel())) {
       context.setNextElement(getElement(context.getModel(), annotation.start()));
     }
   }
 
 
-  private Machine createMachine(MachineConfiguration machineConfiguration) throws IOException {
+  private SimpleMachine createMachine(MachineConfiguration machineConfiguration) throws IOException {
     Collection<Context> contexts = createContexts(machineConfiguration);
-    Machine machine = new SimpleMachine(contexts);
+    SimpleMachine machine = new SimpleMachine(contexts);
     for (Context context : machine.getContexts()) {
       if (context instanceof Observer) {
         machine.addObserver((Observer) context);
@@ -214,16 +281,24 @@ public final class TestExecutor implements Executor, Observer {
   @Override
   public Result execute(boolean ignoreErrors) {
     result = new Result();
-    executeAnnotation(BeforeExecution.class, machine);
     try {
-      while (machine.hasNextStep()) {
-        machine.getNextStep();
+      if (!machine.isDryRun()) {
+        executeAnnotation(BeforeExecution.class, machine);
+      }
+      try {
+        while (!cancelled && machine.hasNextStep()) {
+          machine.getNextStep();
+        }
+      } catch (MachineException e) {
+        logger.error(e.getMessage());
+        failures.put(e.getContext(), e);
+      }
+      if (!machine.isDryRun()) {
+        executeAnnotation(AfterExecution.class, machine);
       }
-    } catch (MachineException e) {
-      logger.error(e.getMessage());
-      failures.put(e.getContext(), e);
+    } finally {
+      close();
     }
-    executeAnnotation(AfterExecution.class, machine);
     result.updateResults(machine, failures);
     if (!ignoreErrors && !failures.isEmpty()) {
       throw new TestExecutionException(result);
@@ -236,6 +311,15 @@ public final class TestExecutor implements Executor, Observer {
     return result;
   }
 
+  /**
+   * Closes the machine, which stops the thread notifying its asynchronous observers. The executor closes it
+   * itself at the end of every execution.
+   */
+  @Override
+  public void close() {
+    machine.close();
+  }
+
   private boolean isTestIncluded(GraphWalker annotation, String name) {
     boolean belongsToGroup = false;
     for (String group : annotation.groups()) {
@@ -261,6 +345,14 @@ public final class TestExecutor implements Executor, Observer {
     return false;
   }
 
+  private long parseSeed(String seed, Context context) {
+    try {
+      return Long.parseLong(seed.trim());
+    } catch (NumberFormatException e) {
+      throw new TestExecutionException("The seed of " + context.getClass().getName() + " must be a whole number, but was: " + seed);
+    }
+  }
+
   private Element getElement(RuntimeModel model, String name) {
     List<Element> elements = model.findElements(name);
     if (null == elements || elements.isEmpty()) {
@@ -307,6 +399,9 @@ public final class TestExecutor implements Executor, Observer {
 
   @Override
   public void update(Machine machine, Element element, EventType type) {
+    if (this.machine.isDryRun()) {
+      return;
+    }
     switch (type) {
       case BEFORE_ELEMENT: {
         executeAnnotation(BeforeElement.class, machine.getCurrentContext());
@@ -0,0 +1,67 @@
+package org.graphwalker.java.test;
+
+/*
+ * #%L
+ * GraphWalker Java
+ * %%
+ * Original work Copyright (c) 2005 - 2014 GraphWalker
+ * Modified work Copyright (c) 2018 - 2019 Avito
+ * %%
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ * #L%
+ */
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+
+/**
+ * @author Ivan Bonkin
+ */
+public class ParallelTestExecutorTest {
+
+  @Test
+  public void mergeResults() throws IOException {
+    Executor executor = new ParallelTestExecutor(
+      TestExecutorTest.SingleStartElements.class,
+      TestExecutorTest.DSLConfiguredTest.class,
+      TestExecutorTest.ThrowExceptionTest.class)
+      .setThreads(2)
+      .setTimeBudget(1, TimeUnit.MINUTES);
+    Result result = executor.execute(true);
+    JSONObject results = result.getResults();
+    Assert.assertThat(executor.getMachines().size(), is(3));
+    Assert.assertThat(executor.getFailures().size(), is(1));
+    Assert.assertThat(results.getInt("totalNumberOfModels"), is(3));
+    Assert.assertThat(results.getInt("totalFailedNumberOfModels"), is(1));
+    Assert.assertThat(results.getInt("totalCompletedNumberOfModels"), is(2));
+  }
+
+  @Test(expected = TestExecutionException.class)
+  public void failureInOneMachine() throws IOException {
+    new ParallelTestExecutor(
+      TestExecutorTest.SingleStartElements.class,
+      TestExecutorTest.ThrowExceptionTest.class).execute();
+  }
+}
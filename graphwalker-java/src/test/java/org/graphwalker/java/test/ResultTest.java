@@ -72,6 +72,9 @@ public class ResultTest {
     Assert.assertThat("edgeCoverage", results.getInt("edgeCoverage"), is(100));
     Assert.assertThat("totalNumberOfVertices", results.getInt("totalNumberOfVertices"), is(16));
     Assert.assertThat("totalNumberOfUnvisitedEdges", results.getInt("totalNumberOfUnvisitedEdges"), is(0));
+    Assert.assertThat("executionTime", results.getJSONObject("executionTime").getLong("count"),
+      is(results.getLong("totalNumberOfSteps")));
+    Assert.assertThat("elementExecutionTimes", results.getJSONArray("elementExecutionTimes").length(), is(41));
   }
 
   /**
@@ -115,6 +118,24 @@ public class ResultTest {
     Assert.assertThat("requirementsFailed", results.getJSONArray("requirementsFailed").length(), is(0));
   }
 
+  /**
+   * Verifies the phase breakdown of the steps, reported only when the phase timing is switched on.
+   */
+  @Test
+  public void phaseTimes() throws IOException {
+    List<Context> contexts = new JsonContextFactory().create(Paths.get("org/graphwalker/java/test/Login.json"));
+    JSONObject results = new TestExecutor(contexts).execute(true).getResults();
+    Assert.assertFalse("phaseTimes", results.has("phaseTimes"));
+
+    contexts = new JsonContextFactory().create(Paths.get("org/graphwalker/java/test/Login.json"));
+    results = new TestExecutor(contexts).setPhaseTiming(true).execute(true).getResults();
+    JSONObject phaseTimes = results.getJSONObject("phaseTimes");
+    Assert.assertThat("SUT", phaseTimes.getJSONObject("SUT").getLong("count"),
+      is(results.getLong("totalNumberOfSteps")));
+    Assert.assertThat("contexts", phaseTimes.getJSONArray("contexts").length(), is(1));
+    Assert.assertThat("generators", phaseTimes.getJSONArray("generators").length(), is(1));
+  }
+
   /**
    * Verifies statistics multiple with model that has run failures.
    */
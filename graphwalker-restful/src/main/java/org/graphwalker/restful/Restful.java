@@ -28,6 +28,9 @@ package org.graphwalker.restful;
  */
 
 import org.graphwalker.core.machine.*;
+import org.graphwalker.core.metrics.MachineMetrics;
+import org.graphwalker.core.metrics.MetricRegistry;
+import org.graphwalker.core.metrics.PrometheusTextFormat;
 import org.graphwalker.core.model.Action;
 import org.graphwalker.io.factory.json.JsonContextFactory;
 import org.graphwalker.java.test.Result;
@@ -51,6 +54,8 @@ public class Restful {
   private Machine machine;
   private Boolean verbose;
   private Boolean unvisited;
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private MachineMetrics machineMetrics;
 
   public Restful(List<Context> contexts, Boolean verbose, Boolean unvisited) throws Exception {
     this.verbose = verbose;
@@ -64,7 +69,19 @@ public class Restful {
 
   public void setContexts(List<Context> contexts) {
     this.contexts = contexts;
-    machine = new SimpleMachine(this.contexts);
+    setMachine(new SimpleMachine(this.contexts));
+  }
+
+  private void setMachine(Machine machine) {
+    if (machineMetrics != null) {
+      machineMetrics.close();
+      metricRegistry.unregister(machineMetrics);
+    }
+    if (this.machine instanceof MachineBase) {
+      ((MachineBase) this.machine).close();
+    }
+    this.machine = machine;
+    machineMetrics = metricRegistry.register(new MachineMetrics(machine));
   }
 
   @POST
@@ -187,7 +204,7 @@ public class Restful {
     logger.debug("Received restart");
     JSONObject resultJson = new JSONObject();
     try {
-      machine = new SimpleMachine(contexts);
+      setMachine(new SimpleMachine(contexts));
       resultJson.put("result", "ok");
     } catch (Exception e) {
       e.printStackTrace();
@@ -235,6 +252,18 @@ public class Restful {
     return resultJson.toString();
   }
 
+  /**
+   * Returns the metrics of the machine in the Prometheus text format, so that a long run can be scraped
+   * while it is going on.
+   */
+  @GET
+  @Produces(PrometheusTextFormat.CONTENT_TYPE)
+  @Path("metrics")
+  public String metrics() {
+    logger.debug("Received metrics");
+    return PrometheusTextFormat.format(metricRegistry);
+  }
+
   public List<Context> getContexts() {
     return contexts;
   }
@@ -243,6 +272,10 @@ public class Restful {
     return machine;
   }
 
+  public MetricRegistry getMetricRegistry() {
+    return metricRegistry;
+  }
+
   public Boolean getVerbose() {
     return verbose;
   }
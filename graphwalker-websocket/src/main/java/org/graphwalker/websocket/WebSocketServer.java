@@ -32,7 +32,11 @@ import org.graphwalker.core.event.EventType;
 import org.graphwalker.core.event.Observer;
 import org.graphwalker.core.machine.Context;
 import org.graphwalker.core.machine.Machine;
+import org.graphwalker.core.machine.MachineBase;
 import org.graphwalker.core.machine.SimpleMachine;
+import org.graphwalker.core.metrics.MachineMetrics;
+import org.graphwalker.core.metrics.MetricRegistry;
+import org.graphwalker.core.metrics.PrometheusTextFormat;
 import org.graphwalker.core.model.Element;
 import org.graphwalker.io.factory.json.JsonContextFactory;
 import org.graphwalker.io.factory.yed.YEdContextFactory;
@@ -62,6 +66,8 @@ public class WebSocketServer extends org.java_websocket.server.WebSocketServer i
   private Map<WebSocket, Machine> machines;
   private Machine machine = null;
   private MODE mode;
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+  private final Map<WebSocket, MachineMetrics> machineMetrics = new HashMap<>();
 
   enum MODE {
     EDITOR,
@@ -94,6 +100,7 @@ public class WebSocketServer extends org.java_websocket.server.WebSocketServer i
     machines = new HashMap<>();
     this.machine = machine;
     this.machine.addObserver(this);
+    metricRegistry.register(new MachineMetrics(machine));
     sockets = new HashSet<>();
     mode = MODE.PLAYBACK;
   }
@@ -108,7 +115,8 @@ public class WebSocketServer extends org.java_websocket.server.WebSocketServer i
   @Override
   public void onClose(WebSocket socket, int code, String reason, boolean remote) {
     sockets.remove(socket);
-    machines.remove(socket);
+    closeMachine(machines.remove(socket));
+    unregisterMetrics(socket);
     logger.info(socket.getRemoteSocketAddress().getAddress().getHostAddress() + " has disconnected");
   }
 
@@ -159,7 +167,10 @@ public class WebSocketServer extends org.java_websocket.server.WebSocketServer i
           }
           Machine machine = new SimpleMachine(contexts);
           machine.addObserver(this);
-          machines.put(socket, machine);
+          closeMachine(machines.put(socket, machine));
+          unregisterMetrics(socket);
+          machineMetrics.put(socket, metricRegistry.register(new MachineMetrics(machine, "client",
+            socket.getRemoteSocketAddress().toString())));
           response.put("success", true);
         } catch (Exception e) {
           logger.error(e.getMessage());
@@ -278,6 +289,12 @@ public class WebSocketServer extends org.java_websocket.server.WebSocketServer i
         }
         break;
       }
+      case "METRICS": {
+        response.put("command", "metrics");
+        response.put("metrics", PrometheusTextFormat.format(metricRegistry));
+        response.put("success", true);
+        break;
+      }
       case "CONVERTGRAPHML": {
         response.put("command", "convertGraphml");
         response.put("success", false);
@@ -303,6 +320,23 @@ public class WebSocketServer extends org.java_websocket.server.WebSocketServer i
     socket.send(response.toString());
   }
 
+  /**
+   * Closes a machine started by a client, the machine of a playback is shared by all clients and left open.
+   */
+  private void closeMachine(Machine machine) {
+    if (machine instanceof MachineBase && machine != this.machine) {
+      ((MachineBase) machine).close();
+    }
+  }
+
+  private void unregisterMetrics(WebSocket socket) {
+    MachineMetrics metrics = machineMetrics.remove(socket);
+    if (metrics != null) {
+      metrics.close();
+      metricRegistry.unregister(metrics);
+    }
+  }
+
   private List<String> checkContexts(WebSocket socket, List<Context> contexts) {
     if (contexts == null) {
       return new ArrayList<>();
@@ -406,6 +440,13 @@ public class WebSocketServer extends org.java_websocket.server.WebSocketServer i
     return machines;
   }
 
+  /**
+   * Returns the metrics of the machines of all the connected clients, told apart by the {@code client} label.
+   */
+  public MetricRegistry getMetricRegistry() {
+    return metricRegistry;
+  }
+
   private String getVersionString() {
     Properties properties = new Properties();
     InputStream inputStream = getClass().getResourceAsStream("/version.properties");